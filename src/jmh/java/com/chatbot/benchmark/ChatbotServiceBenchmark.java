@@ -0,0 +1,85 @@
+package com.chatbot.benchmark;
+
+import com.chatbot.config.ChatConfig;
+import com.chatbot.model.ChatMessage;
+import com.chatbot.nlp.ModelSnapshot;
+import com.chatbot.nlp.PatternIndex;
+import com.chatbot.service.ChatbotService;
+import com.chatbot.service.NLPService;
+import com.chatbot.service.TrainingDataService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChatbotServiceBenchmark {
+
+    private static final int MESSAGES = 4096;
+
+    // Built-in 16 patterns plus generated ones
+    @Param({"0", "1000", "100000"})
+    public int extraPatterns;
+
+    private AnnotationConfigApplicationContext context;
+    private ChatbotService chatbotService;
+    private NLPService nlpService;
+    private TrainingDataService trainingDataService;
+    private String[] messages;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Plain context: no caching proxies, so every call does the full work
+        context = new AnnotationConfigApplicationContext(
+            ChatConfig.class, NLPService.class, TrainingDataService.class, ChatbotService.class);
+        chatbotService = context.getBean(ChatbotService.class);
+        nlpService = context.getBean(NLPService.class);
+        trainingDataService = context.getBean(TrainingDataService.class);
+        if (extraPatterns > 0) {
+            trainingDataService.addTrainingData(Corpus.trainingPatterns(extraPatterns, 11));
+        }
+        messages = Corpus.messages(MESSAGES, 42);
+        // Measure with spelling correction in place; it is built in the background
+        while (nlpService.spellCorrector(trainingDataService.getModel()) == null) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ChatMessage processMessage(Cursor cursor) {
+        return chatbotService.processMessage(messages[cursor.next++ & (MESSAGES - 1)]);
+    }
+
+    // One new virtual thread per message, as with spring.threads.virtual.enabled=true, so no
+    // per-thread scratch is ever reused; compare with processMessage
+    @Benchmark
+    public ChatMessage processMessageOnVirtualThread(Cursor cursor) throws Exception {
+        String message = messages[cursor.next++ & (MESSAGES - 1)];
+        FutureTask<ChatMessage> task = new FutureTask<>(() -> chatbotService.processMessage(message));
+        Thread.ofVirtual().start(task);
+        return task.get();
+    }
+
+    @Benchmark
+    public List<PatternIndex.Match> findBestMatchingPatterns(Cursor cursor) {
+        String message = messages[cursor.next++ & (MESSAGES - 1)];
+        ModelSnapshot model = trainingDataService.getModel();
+        return model.getPatternIndex().search(nlpService.queryVector(message, model.getDictionary()), 3, 0.3);
+    }
+}
@@ -0,0 +1,75 @@
+package com.chatbot.benchmark;
+
+import java.util.*;
+
+// Seeded generator for chat-like messages and synthetic training patterns
+public final class Corpus {
+
+    private static final String[] GREETINGS = {
+        "hi", "hello there", "hey", "good morning", "good afternoon team", "hello, anyone around?"
+    };
+    private static final String[] QUESTIONS = {
+        "how much does the premium plan cost", "what services do you offer", "can you help me with my account",
+        "how does the chatbot work", "where can I find the pricing page", "why was my payment declined",
+        "tell me about your products", "do you have any discounts on the annual fee"
+    };
+    private static final String[] CLOSINGS = {
+        "thanks a lot", "thank you so much!", "bye", "goodbye and see you", "appreciate the support"
+    };
+    private static final String[] ENTITY_TEMPLATES = {
+        "my email is user%d@example.com, please reply", "call me at 555-123-%04d", "order %d has not arrived yet",
+        "I paid $%d.99 twice, refund please"
+    };
+    private static final String[] VOCABULARY = {
+        "account", "billing", "invoice", "support", "chatbot", "integration", "api", "plan", "premium", "price",
+        "cost", "refund", "login", "password", "feature", "product", "service", "delivery", "order", "upgrade",
+        "cancel", "subscription", "website", "mobile", "app", "error", "slow", "fast", "team", "enterprise"
+    };
+
+    private Corpus() {}
+
+    // Realistic mix: short intents, longer questions, messages with entities and free text
+    public static String[] messages(int count, long seed) {
+        Random random = new Random(seed);
+        String[] messages = new String[count];
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(10);
+            if (kind < 2) {
+                messages[i] = pick(random, GREETINGS);
+            } else if (kind < 6) {
+                messages[i] = pick(random, QUESTIONS) + (random.nextBoolean() ? "?" : "");
+            } else if (kind < 7) {
+                messages[i] = pick(random, CLOSINGS);
+            } else if (kind < 8) {
+                messages[i] = String.format(pick(random, ENTITY_TEMPLATES), random.nextInt(10_000));
+            } else {
+                messages[i] = words(random, 3 + random.nextInt(12));
+            }
+        }
+        return messages;
+    }
+
+    // Synthetic training patterns over the same vocabulary, so lookups share terms
+    public static Map<String, List<String>> trainingPatterns(int count, long seed) {
+        Random random = new Random(seed);
+        Map<String, List<String>> patterns = new HashMap<>(count * 2);
+        while (patterns.size() < count) {
+            String pattern = words(random, 2 + random.nextInt(5)) + " " + patterns.size();
+            patterns.put(pattern, List.of("Generated response for: " + pattern));
+        }
+        return patterns;
+    }
+
+    private static String words(Random random, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(pick(random, VOCABULARY));
+        }
+        return sb.toString();
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,47 @@
+package com.chatbot.benchmark;
+
+import com.chatbot.classify.IntentClassifier;
+import com.chatbot.classify.LinearIntentClassifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost per message of the trained intent classifier by number of intents, SIMD vs scalar kernel.
+// The vector kernel is only built and run with -Psimd; without it both params use the scalar kernel.
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LinearIntentClassifierBenchmark {
+
+    private static final int MESSAGES = 4096;
+    private static final int EXAMPLES = 4096;
+
+    @Param({"8", "64", "256"})
+    private int intents;
+
+    @Param({"true", "false"})
+    private boolean simd;
+
+    private LinearIntentClassifier classifier;
+    private String[] messages;
+    private int next;
+
+    @Setup
+    public void setup() {
+        // Synthetic patterns spread round-robin over the intents; only the shape of the model matters here
+        LinearIntentClassifier.Builder builder = LinearIntentClassifier.builder().epochs(5).simd(simd);
+        int i = 0;
+        for (String pattern : Corpus.trainingPatterns(EXAMPLES, 11).keySet()) {
+            builder.add(pattern, "intent-" + (i++ % intents));
+        }
+        classifier = builder.build();
+        messages = Corpus.messages(MESSAGES, 42);
+    }
+
+    @Benchmark
+    public IntentClassifier.Classification classify() {
+        return classifier.classify(messages[next++ & (MESSAGES - 1)], Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,74 @@
+package com.chatbot.benchmark;
+
+import com.chatbot.nlp.EntityScanner;
+import com.chatbot.nlp.ModelSnapshot;
+import com.chatbot.service.NLPService;
+import com.chatbot.service.TrainingDataService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NLPServiceBenchmark {
+
+    private static final int MESSAGES = 4096;
+
+    private AnnotationConfigApplicationContext context;
+    private NLPService nlpService;
+    private ModelSnapshot model;
+    private String[] messages;
+    private String[] patterns;
+    private int next;
+
+    @Setup
+    public void setup() {
+        // Built-in corpus, so similarity and intents are scored against a real model
+        context = new AnnotationConfigApplicationContext(NLPService.class, TrainingDataService.class);
+        nlpService = context.getBean(NLPService.class);
+        model = context.getBean(TrainingDataService.class).getModel();
+        messages = Corpus.messages(MESSAGES, 42);
+        patterns = Corpus.messages(MESSAGES, 7);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private String message() {
+        return messages[next++ & (MESSAGES - 1)];
+    }
+
+    @Benchmark
+    public String preprocessText() {
+        return nlpService.preprocessText(message());
+    }
+
+    @Benchmark
+    public Map<String, Integer> extractKeywords() {
+        return nlpService.extractKeywords(message());
+    }
+
+    @Benchmark
+    public double calculateSimilarity() {
+        int i = next++ & (MESSAGES - 1);
+        return nlpService.calculateSimilarity(messages[i], patterns[i], model);
+    }
+
+    @Benchmark
+    public String extractIntent() {
+        return nlpService.extractIntent(message(), model);
+    }
+
+    @Benchmark
+    public List<EntityScanner.Entity> extractEntities() {
+        return nlpService.extractEntities(message());
+    }
+}
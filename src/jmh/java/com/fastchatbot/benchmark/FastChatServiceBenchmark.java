@@ -0,0 +1,77 @@
+package com.fastchatbot.benchmark;
+
+import com.chatbot.benchmark.Corpus;
+import com.chatbot.session.SessionStore;
+import com.fastchatbot.model.FastMessage;
+import com.fastchatbot.service.FastChatService;
+import com.fastchatbot.service.FastJsonCodec;
+import com.fastchatbot.service.FastNLPService;
+import com.fastchatbot.service.ResponseCatalog;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FastChatServiceBenchmark {
+
+    private static final int MESSAGES = 4096;
+
+    private AnnotationConfigApplicationContext context;
+    private FastChatService chatService;
+    private FastJsonCodec jsonCodec;
+    private ObjectMapper objectMapper;
+    private String[] messages;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Plain context without @EnableCaching: measures the uncached pipeline
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean("batchPool", ForkJoinPool.class, () -> new ForkJoinPool(1));
+        context.registerBean(SessionStore.class, () -> new SessionStore(8, 64 << 20, 1_800_000, 64));
+        // Same inclusion as spring.jackson.default-property-inclusion, so both write the same JSON
+        context.registerBean(ObjectMapper.class,
+            () -> new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL));
+        context.register(FastNLPService.class, ResponseCatalog.class, FastChatService.class, FastJsonCodec.class);
+        context.refresh();
+        chatService = context.getBean(FastChatService.class);
+        jsonCodec = context.getBean(FastJsonCodec.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        messages = Corpus.messages(MESSAGES, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public FastMessage processMessage(Cursor cursor) {
+        return chatService.processMessage(messages[cursor.next++ & (MESSAGES - 1)]);
+    }
+
+    // Reply bytes as /chat used to produce them, through data binding
+    @Benchmark
+    public byte[] processMessageJackson(Cursor cursor) throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(chatService.processMessage(messages[cursor.next++ & (MESSAGES - 1)]));
+    }
+
+    // ... and from the pre-encoded templates
+    @Benchmark
+    public byte[] processMessageTemplate(Cursor cursor) {
+        return jsonCodec.encode(chatService.reply(messages[cursor.next++ & (MESSAGES - 1)], null), null);
+    }
+}
@@ -0,0 +1,74 @@
+package com.fastchatbot.benchmark;
+
+import com.chatbot.benchmark.Corpus;
+import com.fastchatbot.service.FastNLPService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FastNLPServiceBenchmark {
+
+    private static final int MESSAGES = 4096;
+
+    private AnnotationConfigApplicationContext context;
+    private FastNLPService nlpService;
+    private String[] messages;
+    private String[] others;
+    private int next;
+
+    @Setup
+    public void setup() {
+        // Plain context without @EnableCaching, so @Cacheable is bypassed and the raw cost is measured
+        context = new AnnotationConfigApplicationContext(FastNLPService.class);
+        nlpService = context.getBean(FastNLPService.class);
+        messages = Corpus.messages(MESSAGES, 42);
+        others = Corpus.messages(MESSAGES, 7);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private String message() {
+        return messages[next++ & (MESSAGES - 1)];
+    }
+
+    @Benchmark
+    public String fastPreprocess() {
+        return nlpService.fastPreprocess(message());
+    }
+
+    @Benchmark
+    public String fastCorrectSpelling() {
+        return nlpService.fastCorrectSpelling(nlpService.fastPreprocess(message()));
+    }
+
+    @Benchmark
+    public String fastIntentDetection() {
+        return nlpService.fastIntentDetection(message());
+    }
+
+    @Benchmark
+    public float fastSimilarity() {
+        int i = next++ & (MESSAGES - 1);
+        return nlpService.fastSimilarity(messages[i], others[i]);
+    }
+
+    @Benchmark
+    public List<FastNLPService.SimilarPattern> fastSimilarPatterns() {
+        return nlpService.fastSimilarPatterns(message(), 5);
+    }
+
+    @Benchmark
+    public String[] fastKeywords() {
+        return nlpService.fastKeywords(message());
+    }
+}
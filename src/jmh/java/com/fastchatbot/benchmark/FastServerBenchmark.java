@@ -0,0 +1,77 @@
+package com.fastchatbot.benchmark;
+
+import com.chatbot.benchmark.Corpus;
+import com.fastchatbot.FastChatbotApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end POST /api/fast/chat over loopback, Tomcat workers vs Netty event loops.
+// Each JMH thread is one keep-alive connection, so -t sets the number of open connections.
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FastServerBenchmark {
+
+    private static final int MESSAGES = 4096;
+
+    // reactive needs -Pbenchmarks,reactive
+    @Param({"servlet", "reactive"})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+    private URI chatUri;
+    private String[] bodies;
+
+    @State(Scope.Thread)
+    public static class Connection {
+        HttpClient client;
+        int next;
+
+        @Setup(Level.Trial)
+        public void open() {
+            client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(FastChatbotApplication.class)
+            .properties("server.port=0", "logging.level.root=WARN", "logging.level.com.fastchatbot=WARN");
+        if (mode.equals("reactive")) builder.profiles("reactive");
+        context = builder.run();
+        chatUri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                             + "/api/fast/chat");
+
+        String[] messages = Corpus.messages(MESSAGES, 42);
+        bodies = new String[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            bodies[i] = "{\"message\":\"" + messages[i].replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int chat(Connection connection) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(chatUri)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(bodies[connection.next++ & (MESSAGES - 1)]))
+            .build();
+        HttpResponse<byte[]> response = connection.client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) throw new IllegalStateException("HTTP " + response.statusCode());
+        return response.body().length;
+    }
+}
@@ -0,0 +1,392 @@
+package com.chatbot.load;
+
+import com.chatbot.AIChatbotApplication;
+import com.chatbot.metrics.LatencyHistogram;
+import com.chatbot.service.NLPService;
+import com.chatbot.service.TrainingDataService;
+import com.fastchatbot.FastChatbotApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Drives one chat endpoint with a traffic mix and reports throughput and latency percentiles.
+// Open loop sends at a fixed arrival rate and times each request from when it was due, so a stalled
+// server is charged for the requests queued up behind the stall. Closed loop keeps a fixed number of
+// connections busy; a slow response there also holds back the requests that connection would have
+// sent, so its percentiles are corrected by back-filling those (HdrHistogram's expected-interval
+// correction). Service times, measured from the actual send, are reported next to both.
+// Usage: LoadGenerator [options] [-- application args]
+public final class LoadGenerator {
+
+    private static final String USAGE = """
+        Usage: LoadGenerator [options] [-- application args]
+          --target chat|fast|fast-async  endpoint to drive (default fast)
+          --mode open|closed             fixed arrival rate or fixed concurrency (default open)
+          --rate N                       open loop: requests per second (default 1000)
+          --max-in-flight N              open loop: outstanding requests before sends wait (default 1024)
+          --connections N                closed loop: concurrent connections (default 16)
+          --think-ms N                   closed loop: pause after each response (default 0)
+          --expected-interval-ms N       closed loop: normal time between sends on a connection, for the
+                                         correction (default think time + warmup median)
+          --duration S                   measured seconds (default 30)
+          --warmup S                     unmeasured seconds before that (default 10)
+          --mix kind=weight,...          pattern, variant, random, session and suggest
+                                         (default %s)
+          --seed N                       traffic seed (default 42)
+          --timeout-ms N                 per request (default 10000)
+          --url http://host:port         drive a running server instead of starting one
+        Application args after --, e.g. --spring.profiles.active=reactive or
+        --spring.threads.virtual.enabled=true, start the application with those settings.
+        """.formatted(TrafficMix.DEFAULT_MIX);
+
+    private static final double[] PERCENTILES = {0.50, 0.90, 0.99, 0.999, 0.9999, 1.0};
+
+    enum Target {
+        CHAT(AIChatbotApplication.class, "/api/chat/message", "/api/chat/suggestions?partial="),
+        FAST(FastChatbotApplication.class, "/api/fast/chat", "/api/fast/suggestions?q="),
+        FAST_ASYNC(FastChatbotApplication.class, "/api/fast/chat-async", "/api/fast/suggestions?q=");
+
+        final Class<?> application;
+        final String messagePath;
+        final String suggestPath;
+
+        Target(Class<?> application, String messagePath, String suggestPath) {
+            this.application = application;
+            this.messagePath = messagePath;
+            this.suggestPath = suggestPath;
+        }
+    }
+
+    record Options(Target target, boolean openLoop, int rate, int maxInFlight, int connections,
+                   long thinkMillis, long expectedIntervalMillis, int durationSeconds, int warmupSeconds,
+                   String mix, long seed, long timeoutMillis, String url, String[] applicationArgs) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            String[] applicationArgs = new String[0];
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--")) {
+                    applicationArgs = Arrays.copyOfRange(args, i + 1, args.length);
+                    break;
+                }
+                if (!args[i].startsWith("--") || i + 1 == args.length) {
+                    throw new IllegalArgumentException("Invalid argument: " + args[i]);
+                }
+                values.put(args[i].substring(2), args[++i]);
+            }
+
+            Options options = new Options(
+                Target.valueOf(take(values, "target", "fast").toUpperCase(Locale.ROOT).replace('-', '_')),
+                switch (take(values, "mode", "open")) {
+                    case "open" -> true;
+                    case "closed" -> false;
+                    default -> throw new IllegalArgumentException("Invalid mode, expected open or closed");
+                },
+                positive(take(values, "rate", "1000"), "rate"),
+                positive(take(values, "max-in-flight", "1024"), "max-in-flight"),
+                positive(take(values, "connections", "16"), "connections"),
+                Long.parseLong(take(values, "think-ms", "0")),
+                Long.parseLong(take(values, "expected-interval-ms", "0")),
+                positive(take(values, "duration", "30"), "duration"),
+                Integer.parseInt(take(values, "warmup", "10")),
+                take(values, "mix", TrafficMix.DEFAULT_MIX),
+                Long.parseLong(take(values, "seed", "42")),
+                positive(take(values, "timeout-ms", "10000"), "timeout-ms"),
+                values.remove("url"),
+                applicationArgs);
+            if (!values.isEmpty()) throw new IllegalArgumentException("Unknown option: --" + values.keySet().iterator().next());
+            return options;
+        }
+
+        private static String take(Map<String, String> values, String name, String defaultValue) {
+            String value = values.remove(name);
+            return value != null ? value : defaultValue;
+        }
+
+        private static int positive(String value, String name) {
+            int parsed = Integer.parseInt(value);
+            if (parsed <= 0) throw new IllegalArgumentException("--" + name + " must be positive");
+            return parsed;
+        }
+    }
+
+    private final Options options;
+    private final TrafficMix mix;
+    private final String baseUrl;
+    private final HttpClient client;
+
+    private LoadGenerator(Options options, TrafficMix mix, String baseUrl) {
+        this.options = options;
+        this.mix = mix;
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(options.timeoutMillis()))
+            .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Before the first logger exists
+        System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+        Options options;
+        TrafficMix mix;
+        try {
+            options = Options.parse(args);
+            mix = TrafficMix.parse(options.mix(), trainingPatterns());
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        ConfigurableApplicationContext application = null;
+        String baseUrl = options.url();
+        if (baseUrl == null) {
+            // Random port and no startup output, the report is the output. Passed as arguments, which
+            // take precedence over application.properties; the application args come later and win.
+            List<String> applicationArgs = new ArrayList<>(List.of("--server.port=0", "--spring.main.banner-mode=off"));
+            applicationArgs.addAll(Arrays.asList(options.applicationArgs()));
+            application = new SpringApplicationBuilder(options.target().application)
+                .run(applicationArgs.toArray(new String[0]));
+            baseUrl = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            LoadGenerator generator = new LoadGenerator(options, mix, baseUrl);
+            Results results = options.openLoop() ? generator.openLoop() : generator.closedLoop();
+            generator.report(results, System.out);
+        } finally {
+            if (application != null) application.close();
+        }
+    }
+
+    // Same patterns the chat engine is trained on, without starting the web layer
+    private static Collection<String> trainingPatterns() {
+        try (AnnotationConfigApplicationContext context =
+                 new AnnotationConfigApplicationContext(NLPService.class, TrainingDataService.class)) {
+            return new ArrayList<>(context.getBean(TrainingDataService.class).getTrainingData().keySet());
+        }
+    }
+
+    private Results openLoop() throws InterruptedException {
+        Results results = new Results(0);
+        Semaphore inFlight = new Semaphore(options.maxInFlight());
+        SplittableRandom random = new SplittableRandom(options.seed());
+        double periodNanos = 1e9 / options.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds());
+
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * periodNanos);
+            if (due - end >= 0) break;
+            for (long wait; (wait = due - System.nanoTime()) > 0; ) LockSupport.parkNanos(wait);
+            // Waiting here delays the send, not the due time the request is timed from
+            inFlight.acquire();
+
+            TrafficMix.Request request = mix.next(random);
+            boolean measured = due - measureFrom >= 0;
+            long sent = System.nanoTime();
+            client.sendAsync(toHttp(request), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    long done = System.nanoTime();
+                    inFlight.release();
+                    if (measured) {
+                        results.record(request.kind(), done - due, done - sent,
+                                       response != null ? response.statusCode() : 0, unwrap(error));
+                    }
+                });
+        }
+
+        if (!inFlight.tryAcquire(options.maxInFlight(), options.timeoutMillis() + 1000, TimeUnit.MILLISECONDS)) {
+            System.err.println("Some requests were still outstanding at the end of the run");
+        }
+        results.measuredNanos = end - measureFrom;
+        return results;
+    }
+
+    private Results closedLoop() throws InterruptedException {
+        long thinkNanos = TimeUnit.MILLISECONDS.toNanos(options.thinkMillis());
+        long expectedIntervalNanos = TimeUnit.MILLISECONDS.toNanos(options.expectedIntervalMillis());
+        SplittableRandom seeds = new SplittableRandom(options.seed());
+
+        if (options.warmupSeconds() > 0) {
+            Results warmup = new Results(0);
+            runConnections(warmup, seeds, TimeUnit.SECONDS.toNanos(options.warmupSeconds()), thinkNanos);
+            if (expectedIntervalNanos == 0) {
+                expectedIntervalNanos = thinkNanos + warmup.service.valueAt(0.5);
+            }
+        }
+        // Without a warmup or an explicit interval the think time is the only known pacing
+        if (expectedIntervalNanos == 0) expectedIntervalNanos = thinkNanos;
+
+        Results results = new Results(expectedIntervalNanos);
+        long start = System.nanoTime();
+        runConnections(results, seeds, TimeUnit.SECONDS.toNanos(options.durationSeconds()), thinkNanos);
+        results.measuredNanos = System.nanoTime() - start;
+        return results;
+    }
+
+    // One virtual thread per connection, each sending its next request as soon as the last one is done
+    private void runConnections(Results results, SplittableRandom seeds, long durationNanos, long thinkNanos)
+            throws InterruptedException {
+        long end = System.nanoTime() + durationNanos;
+        ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+        for (int c = 0; c < options.connections(); c++) {
+            SplittableRandom random = seeds.split();
+            connections.execute(() -> {
+                while (System.nanoTime() - end < 0) {
+                    TrafficMix.Request request = mix.next(random);
+                    long sent = System.nanoTime();
+                    int status = 0;
+                    Throwable error = null;
+                    try {
+                        status = client.send(toHttp(request), HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (IOException e) {
+                        error = e;
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long latency = System.nanoTime() - sent;
+                    results.record(request.kind(), latency, latency, status, error);
+                    if (thinkNanos > 0) LockSupport.parkNanos(thinkNanos);
+                }
+            });
+        }
+        connections.shutdown();
+        if (!connections.awaitTermination(durationNanos + TimeUnit.MILLISECONDS.toNanos(options.timeoutMillis()) * 2,
+                                          TimeUnit.NANOSECONDS)) {
+            connections.shutdownNow();
+        }
+    }
+
+    private HttpRequest toHttp(TrafficMix.Request request) {
+        Target target = options.target();
+        if (request.kind() == TrafficMix.Kind.SUGGEST) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + target.suggestPath
+                                                     + URLEncoder.encode(request.message(), StandardCharsets.UTF_8)))
+                .timeout(Duration.ofMillis(options.timeoutMillis()))
+                .GET()
+                .build();
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + target.messagePath))
+            .timeout(Duration.ofMillis(options.timeoutMillis()))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(request.json()))
+            .build();
+    }
+
+    private void report(Results results, PrintStream out) {
+        double seconds = results.measuredNanos / 1e9;
+        long requests = results.requests.sum();
+        out.printf("Target      %s %s%n", options.target().name().toLowerCase(Locale.ROOT).replace('_', '-'),
+                   baseUrl + options.target().messagePath);
+        if (options.openLoop()) {
+            out.printf("Load        open loop at %d req/s for %d s after %d s warmup, up to %d in flight%n",
+                       options.rate(), options.durationSeconds(), options.warmupSeconds(), options.maxInFlight());
+        } else {
+            out.printf("Load        closed loop, %d connections, %d ms think time, for %d s after %d s warmup%n",
+                       options.connections(), options.thinkMillis(), options.durationSeconds(), options.warmupSeconds());
+        }
+        out.printf("Mix         %s (seed %d)%n", mix.describe(), options.seed());
+        out.printf("Requests    %d completed, %d errors (%d timeouts)%n",
+                   requests, results.errors.sum(), results.timeouts.sum());
+        results.errorTypes.forEach((type, count) -> out.printf("            %d x %s%n", count.sum(), type));
+        out.printf("Throughput  %.1f req/s%n%n", requests / seconds);
+
+        out.printf("%-24s%10s%10s%10s%10s%10s%10s%10s%n", "Latency (ms)", "p50", "p90", "p99", "p99.9", "p99.99", "max", "mean");
+        if (options.openLoop()) {
+            printLatencies(out, "response (from due time)", results.corrected);
+        } else if (results.expectedIntervalNanos > 0) {
+            printLatencies(out, "corrected", results.corrected);
+            out.printf("%-24s%s%n", "", "expected interval " + millis(results.expectedIntervalNanos) + " ms");
+        } else {
+            out.println("(no correction: no warmup to take the expected interval from)");
+        }
+        printLatencies(out, "service (from send)", results.service);
+
+        out.printf("%n%-24s%10s%10s%10s%10s%n", "By kind", "requests", "errors", "p50 ms", "p99 ms");
+        for (TrafficMix.Kind kind : TrafficMix.Kind.values()) {
+            long count = results.requestsByKind.get(kind).sum();
+            if (count == 0) continue;
+            LatencyHistogram latencies = results.byKind.get(kind);
+            out.printf("%-24s%10d%10d%10s%10s%n", kind.name().toLowerCase(Locale.ROOT), count,
+                       results.errorsByKind.get(kind).sum(),
+                       millis(latencies.valueAt(0.5)), millis(latencies.valueAt(0.99)));
+        }
+    }
+
+    private static void printLatencies(PrintStream out, String label, LatencyHistogram histogram) {
+        StringBuilder line = new StringBuilder(String.format("%-24s", label));
+        for (double percentile : PERCENTILES) line.append(String.format("%10s", millis(histogram.valueAt(percentile))));
+        double meanMicros = ((Number) histogram.snapshot().get("meanMicros")).doubleValue();
+        line.append(String.format("%10.3f", meanMicros / 1000));
+        out.println(line);
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    // Measured requests of one run. corrected holds the open loop's due-time latencies, or the closed
+    // loop's latencies with back-filled samples; service holds the time from send to response.
+    private static final class Results {
+        final long expectedIntervalNanos;
+        final LatencyHistogram corrected = new LatencyHistogram();
+        final LatencyHistogram service = new LatencyHistogram();
+        final Map<TrafficMix.Kind, LatencyHistogram> byKind = new EnumMap<>(TrafficMix.Kind.class);
+        final Map<TrafficMix.Kind, LongAdder> requestsByKind = new EnumMap<>(TrafficMix.Kind.class);
+        final Map<TrafficMix.Kind, LongAdder> errorsByKind = new EnumMap<>(TrafficMix.Kind.class);
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        // "HTTP 503", "HttpTimeoutException", ...
+        final Map<String, LongAdder> errorTypes = new ConcurrentSkipListMap<>();
+        long measuredNanos;
+
+        Results(long expectedIntervalNanos) {
+            this.expectedIntervalNanos = expectedIntervalNanos;
+            for (TrafficMix.Kind kind : TrafficMix.Kind.values()) {
+                byKind.put(kind, new LatencyHistogram());
+                requestsByKind.put(kind, new LongAdder());
+                errorsByKind.put(kind, new LongAdder());
+            }
+        }
+
+        // status is 0 when the request failed with error
+        void record(TrafficMix.Kind kind, long latencyNanos, long serviceNanos, int status, Throwable error) {
+            corrected.recordCorrected(latencyNanos, expectedIntervalNanos);
+            service.record(serviceNanos);
+            byKind.get(kind).recordCorrected(latencyNanos, expectedIntervalNanos);
+            requests.increment();
+            requestsByKind.get(kind).increment();
+            if (error != null || status < 200 || status >= 300) {
+                errors.increment();
+                errorsByKind.get(kind).increment();
+                if (error instanceof HttpTimeoutException) timeouts.increment();
+                String type = error != null ? error.getClass().getSimpleName() : "HTTP " + status;
+                errorTypes.computeIfAbsent(type, t -> new LongAdder()).increment();
+            }
+        }
+    }
+}
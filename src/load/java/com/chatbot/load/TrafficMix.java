@@ -0,0 +1,157 @@
+package com.chatbot.load;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.util.*;
+
+// Weighted mix of request kinds over the training patterns plus random text. Draws only from the
+// random passed in, so a seeded run sends the same sequence every time.
+final class TrafficMix {
+
+    enum Kind {
+        // A training pattern as is
+        PATTERN,
+        // A training pattern with a typo and different casing or punctuation
+        VARIANT,
+        // Words from the patterns' vocabulary mixed with made-up ones
+        RANDOM,
+        // A training pattern sent as part of one of SESSIONS conversations
+        SESSION,
+        // A typeahead lookup for a prefix of a training pattern
+        SUGGEST
+    }
+
+    record Request(Kind kind, String message, String sessionId) {
+
+        // Chat request body; suggestion requests send the message as the prefix instead
+        String json() {
+            JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+            StringBuilder json = new StringBuilder(message.length() + 48).append("{\"message\":\"");
+            encoder.quoteAsString(message, json);
+            if (sessionId != null) json.append("\",\"sessionId\":\"").append(sessionId);
+            return json.append("\"}").toString();
+        }
+    }
+
+    static final String DEFAULT_MIX = "pattern=50,variant=15,random=20,session=5,suggest=10";
+
+    private static final int SESSIONS = 1000;
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private final Kind[] kinds;
+    private final int[] cumulativeWeights;
+    private final String[] patterns;
+    private final String[] vocabulary;
+
+    private TrafficMix(Kind[] kinds, int[] cumulativeWeights, String[] patterns) {
+        this.kinds = kinds;
+        this.cumulativeWeights = cumulativeWeights;
+        this.patterns = patterns;
+        Set<String> words = new TreeSet<>();
+        for (String pattern : patterns) {
+            for (String word : pattern.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}']+")) {
+                if (!word.isEmpty()) words.add(word);
+            }
+        }
+        this.vocabulary = words.toArray(new String[0]);
+    }
+
+    // "kind=weight,..." with kinds named as in Kind, case-insensitive; missing kinds get weight 0
+    static TrafficMix parse(String spec, Collection<String> patterns) {
+        List<Kind> kinds = new ArrayList<>();
+        List<Integer> cumulative = new ArrayList<>();
+        int total = 0;
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) throw new IllegalArgumentException("Invalid mix entry: " + part);
+            Kind kind;
+            int weight;
+            try {
+                kind = Kind.valueOf(pair[0].trim().toUpperCase(Locale.ROOT));
+                weight = Integer.parseInt(pair[1].trim());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid mix entry: " + part);
+            }
+            if (weight < 0) throw new IllegalArgumentException("Negative weight: " + part);
+            if (weight == 0) continue;
+            total += weight;
+            kinds.add(kind);
+            cumulative.add(total);
+        }
+        if (total == 0) throw new IllegalArgumentException("Mix has no weight: " + spec);
+        // Sorted, so the sequence for a seed doesn't depend on the order of the pattern source
+        String[] sorted = patterns.stream().filter(pattern -> !pattern.isBlank()).sorted().toArray(String[]::new);
+        if (sorted.length == 0) throw new IllegalArgumentException("No training patterns to draw from");
+        return new TrafficMix(kinds.toArray(new Kind[0]),
+                              cumulative.stream().mapToInt(Integer::intValue).toArray(), sorted);
+    }
+
+    Request next(SplittableRandom random) {
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int k = 0;
+        while (draw >= cumulativeWeights[k]) k++;
+        Kind kind = kinds[k];
+        String pattern = patterns[random.nextInt(patterns.length)];
+        return switch (kind) {
+            case PATTERN -> new Request(kind, pattern, null);
+            case VARIANT -> new Request(kind, variant(pattern, random), null);
+            case RANDOM -> new Request(kind, randomText(random), null);
+            case SESSION -> new Request(kind, pattern, "load-" + random.nextInt(SESSIONS));
+            case SUGGEST -> new Request(kind, pattern.substring(0, 1 + random.nextInt(Math.min(12, pattern.length()))), null);
+        };
+    }
+
+    String describe() {
+        StringBuilder description = new StringBuilder();
+        for (int k = 0; k < kinds.length; k++) {
+            if (k > 0) description.append(',');
+            int weight = cumulativeWeights[k] - (k > 0 ? cumulativeWeights[k - 1] : 0);
+            description.append(kinds[k].name().toLowerCase(Locale.ROOT)).append('=').append(weight);
+        }
+        return description.toString();
+    }
+
+    // One typo (dropped, doubled or swapped letter) in a longer word, then casing or punctuation
+    private static String variant(String pattern, SplittableRandom random) {
+        StringBuilder text = new StringBuilder(pattern);
+        int at = random.nextInt(text.length());
+        int length = text.length();
+        for (int tries = 0; tries < length; tries++, at = (at + 1) % length) {
+            if (at + 1 < length && Character.isLetter(text.charAt(at)) && Character.isLetter(text.charAt(at + 1))) {
+                switch (random.nextInt(3)) {
+                    case 0 -> text.deleteCharAt(at);
+                    case 1 -> text.insert(at, text.charAt(at));
+                    default -> {
+                        char c = text.charAt(at);
+                        text.setCharAt(at, text.charAt(at + 1));
+                        text.setCharAt(at + 1, c);
+                    }
+                }
+                break;
+            }
+        }
+        switch (random.nextInt(4)) {
+            case 0 -> text.setCharAt(0, Character.toUpperCase(text.charAt(0)));
+            case 1 -> text.append('?');
+            case 2 -> text.append("!!");
+            default -> { }
+        }
+        return text.toString();
+    }
+
+    private String randomText(SplittableRandom random) {
+        int words = 2 + random.nextInt(11);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) text.append(' ');
+            if (vocabulary.length > 0 && random.nextInt(10) < 7) {
+                text.append(vocabulary[random.nextInt(vocabulary.length)]);
+            } else {
+                for (int n = 3 + random.nextInt(6); n > 0; n--) {
+                    text.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+                }
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,150 @@
+package com.chatbot.classify;
+
+import com.chatbot.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs classifiers cheapest first. The first answer at or above its tier's confidence cut-off
+// ends the cascade; answers below it are kept, and if no tier reaches its cut-off the most
+// confident of them wins, else the fallback. Each tier gets a deadline of its own budget and
+// is counted per call, so hit rates show where traffic ends.
+public final class ClassifierCascade {
+
+    // Decision plus the tier that made it ("fallback" when none answered). overBudget marks a
+    // result from a cascade where some tier ran past its budget and may have cut its search short.
+    public record Result(String intent, float confidence, String match, String tier, boolean overBudget) {}
+
+    private final Tier[] tiers;
+    private final Result fallback;
+    private final LongAdder classifications = new LongAdder();
+    private final LongAdder belowCutoff = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    private ClassifierCascade(List<Tier> tiers, Result fallback) {
+        this.tiers = tiers.toArray(new Tier[0]);
+        this.fallback = fallback;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Text must already be normalized the way the tiers expect
+    public Result classify(String text) {
+        classifications.increment();
+        Result best = null;
+        boolean overBudget = false;
+        for (Tier tier : tiers) {
+            long start = System.nanoTime();
+            IntentClassifier.Classification answer = tier.classifier.classify(text, start + tier.budgetNanos);
+            long elapsed = System.nanoTime() - start;
+            tier.latency.record(elapsed);
+            if (elapsed > tier.budgetNanos) {
+                tier.overBudget.increment();
+                overBudget = true;
+            }
+
+            if (answer == null) {
+                tier.noAnswer.increment();
+                continue;
+            }
+            if (answer.confidence() >= tier.minConfidence) {
+                tier.hits.increment();
+                return new Result(answer.intent(), answer.confidence(), answer.match(), tier.name, overBudget);
+            }
+            tier.passed.increment();
+            if (best == null || answer.confidence() > best.confidence()) {
+                best = new Result(answer.intent(), answer.confidence(), answer.match(), tier.name, false);
+            }
+        }
+        if (best != null) {
+            belowCutoff.increment();
+            return overBudget ? withOverBudget(best) : best;
+        }
+        fallbacks.increment();
+        return overBudget ? withOverBudget(fallback) : fallback;
+    }
+
+    public Map<String, Object> stats() {
+        long total = classifications.sum();
+        Map<String, Object> tierStats = new LinkedHashMap<>();
+        for (Tier tier : tiers) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long hits = tier.hits.sum();
+            stats.put("minConfidence", tier.minConfidence);
+            stats.put("budgetMicros", tier.budgetNanos / 1000);
+            stats.put("calls", tier.latency.count());
+            stats.put("hits", hits);
+            stats.put("hitRate", rate(hits, total));
+            stats.put("belowCutoff", tier.passed.sum());
+            stats.put("noAnswer", tier.noAnswer.sum());
+            stats.put("overBudget", tier.overBudget.sum());
+            stats.put("latency", tier.latency.snapshot());
+            tierStats.put(tier.name, stats);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("classifications", total);
+        result.put("tiers", tierStats);
+        result.put("belowCutoff", belowCutoff.sum());
+        result.put("belowCutoffRate", rate(belowCutoff.sum(), total));
+        result.put("fallback", fallbacks.sum());
+        result.put("fallbackRate", rate(fallbacks.sum(), total));
+        return result;
+    }
+
+    private static Result withOverBudget(Result result) {
+        return new Result(result.intent(), result.confidence(), result.match(), result.tier(), true);
+    }
+
+    private static double rate(long count, long total) {
+        return total == 0 ? 0.0 : Math.round(count * 10000.0 / total) / 10000.0;
+    }
+
+    private static final class Tier {
+        final String name;
+        final IntentClassifier classifier;
+        final float minConfidence;
+        final long budgetNanos;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder hits = new LongAdder();
+        final LongAdder passed = new LongAdder();
+        final LongAdder noAnswer = new LongAdder();
+        final LongAdder overBudget = new LongAdder();
+
+        Tier(String name, IntentClassifier classifier, float minConfidence, long budgetNanos) {
+            this.name = name;
+            this.classifier = classifier;
+            this.minConfidence = minConfidence;
+            this.budgetNanos = budgetNanos;
+        }
+    }
+
+    public static final class Builder {
+
+        private final List<Tier> tiers = new ArrayList<>();
+        private Result fallback = new Result("general", 0.0f, null, "fallback", false);
+
+        private Builder() {}
+
+        // Tiers run in the order added, so add the cheapest first
+        public Builder tier(String name, IntentClassifier classifier, float minConfidence, long budgetMicros) {
+            tiers.add(new Tier(name, classifier, minConfidence, Math.max(1, budgetMicros) * 1000));
+            return this;
+        }
+
+        // Answer when no tier answers at all
+        public Builder fallback(String intent, float confidence) {
+            this.fallback = new Result(intent, confidence, null, "fallback", false);
+            return this;
+        }
+
+        public ClassifierCascade build() {
+            return new ClassifierCascade(tiers, fallback);
+        }
+    }
+}
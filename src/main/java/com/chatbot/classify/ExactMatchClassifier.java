@@ -0,0 +1,114 @@
+package com.chatbot.classify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Whole-text lookup of known phrases. Only a 64-bit hash of each phrase is kept, so a million
+// phrases take about 24 MB; a wrong hit would need a hash collision with an indexed phrase.
+// Immutable once built; safe for concurrent use.
+public final class ExactMatchClassifier implements IntentClassifier {
+
+    private final float confidence;
+    private final String[] intents;
+    // Open addressing; 0 marks an empty slot
+    private final long[] hashes;
+    private final int[] intentIds;
+
+    private ExactMatchClassifier(Builder builder) {
+        this.confidence = builder.confidence;
+        this.intents = builder.intents.toArray(new String[0]);
+        int capacity = Integer.highestOneBit(Math.max(8, builder.size * 2) * 2 - 1);
+        this.hashes = new long[capacity];
+        this.intentIds = new int[capacity];
+        for (int i = 0; i < builder.size; i++) {
+            long h = builder.phraseHashes[i];
+            int slot = slot(h);
+            while (hashes[slot] != 0 && hashes[slot] != h) slot = (slot + 1) & (capacity - 1);
+            // Later duplicates win, like a map put
+            hashes[slot] = h;
+            intentIds[slot] = builder.phraseIntents[i];
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Classification classify(String text, long deadlineNanos) {
+        String intent = intentOf(text);
+        return intent == null ? null : new Classification(intent, confidence, text);
+    }
+
+    // Intent of the exact phrase, or null
+    public String intentOf(String text) {
+        long h = hash(text);
+        int slot = slot(h);
+        while (hashes[slot] != 0) {
+            if (hashes[slot] == h) return intents[intentIds[slot]];
+            slot = (slot + 1) & (hashes.length - 1);
+        }
+        return null;
+    }
+
+    public long estimatedBytes() {
+        return 12L * hashes.length;
+    }
+
+    private int slot(long h) {
+        return (int) (h ^ (h >>> 32)) * 0x9E3779B9 >>> 1 & (hashes.length - 1);
+    }
+
+    private static long hash(String text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h = (h ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    public static final class Builder {
+
+        private final List<String> intents = new ArrayList<>();
+        private final Map<String, Integer> intentIds = new HashMap<>();
+        private long[] phraseHashes = new long[64];
+        private int[] phraseIntents = new int[64];
+        private int size;
+        private float confidence = 0.99f;
+
+        private Builder() {}
+
+        // The phrase must be normalized the same way as the text later classified
+        public Builder add(String phrase, String intent) {
+            if (phrase == null || phrase.isEmpty()) return this;
+            if (size == phraseHashes.length) {
+                phraseHashes = Arrays.copyOf(phraseHashes, size * 2);
+                phraseIntents = Arrays.copyOf(phraseIntents, size * 2);
+            }
+            Integer id = intentIds.computeIfAbsent(intent, k -> {
+                intents.add(k);
+                return intents.size() - 1;
+            });
+            phraseHashes[size] = hash(phrase);
+            phraseIntents[size] = id;
+            size++;
+            return this;
+        }
+
+        public Builder confidence(float confidence) {
+            this.confidence = confidence;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public ExactMatchClassifier build() {
+            return new ExactMatchClassifier(this);
+        }
+    }
+}
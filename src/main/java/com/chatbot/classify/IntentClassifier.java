@@ -0,0 +1,18 @@
+package com.chatbot.classify;
+
+// One tier of a ClassifierCascade. Gets normalized text and returns an intent with a confidence in
+// [0, 1], or null when it has no opinion. Tiers that loop over candidates should stop once
+// System.nanoTime() passes the deadline and answer with what they have so far.
+@FunctionalInterface
+public interface IntentClassifier {
+
+    // match is the training pattern the decision came from, if any
+    record Classification(String intent, float confidence, String match) {
+
+        public Classification(String intent, float confidence) {
+            this(intent, confidence, null);
+        }
+    }
+
+    Classification classify(String text, long deadlineNanos);
+}
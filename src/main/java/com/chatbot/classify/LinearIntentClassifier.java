@@ -0,0 +1,424 @@
+package com.chatbot.classify;
+
+import com.chatbot.concurrent.Scratch;
+import com.chatbot.nlp.Tokenizer;
+import com.chatbot.nlp.Tokens;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+// Multinomial logistic regression over hashed features: words, word pairs and the character
+// trigrams of each word (so typos still share most features), plus a bias and a question mark
+// flag. Scoring sums one row of weights per feature with a ScoringKernel, so a message costs the
+// same however many intents there are, up to the vector width. Confidence is the softmax
+// probability at a temperature fitted on held-out folds of the training data.
+// Immutable once built; safe for concurrent use.
+public final class LinearIntentClassifier implements IntentClassifier {
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long BIAS = 0x6a09e667f3bcc908L;
+    private static final long QUESTION_MARK = 0xbb67ae8584caa73bL;
+    private static final long WORD = 0x3c6ef372fe94f82bL;
+    private static final long BIGRAM = 0xa54ff53a5f1d36f1L;
+    private static final long TRIGRAM = 0x510e527fade682d1L;
+    // Word boundary markers for trigrams, outside the tokenizer's alphabet
+    private static final char WORD_START = 1;
+    private static final char WORD_END = 2;
+
+    // Calibration uses k folds up to this many examples, then a single held-out fold
+    private static final int FOLDS = 5;
+    private static final int CROSS_VALIDATION_LIMIT = 20_000;
+    private static final int CALIBRATION_BINS = 10;
+
+    private static final Scratch<Features> QUERY_FEATURES = new Scratch<>(Features::new);
+    private static final Scratch<float[]> QUERY_SCORES = new Scratch<>(() -> new float[64]);
+
+    private final String[] intents;
+    private final int featureBits;
+    private final int width;
+    private final float[] weights;
+    private final float temperature;
+    private final ScoringKernel kernel;
+    private final Map<String, Object> training;
+
+    private LinearIntentClassifier(String[] intents, int featureBits, int width, float[] weights,
+                                   float temperature, ScoringKernel kernel, Map<String, Object> training) {
+        this.intents = intents;
+        this.featureBits = featureBits;
+        this.width = width;
+        this.weights = weights;
+        this.temperature = temperature;
+        this.kernel = kernel;
+        this.training = training;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Always answers: the most probable intent and its calibrated probability
+    @Override
+    public Classification classify(String text, long deadlineNanos) {
+        Features features = QUERY_FEATURES.get();
+        features.extract(text, 64 - featureBits);
+        float[] scores = QUERY_SCORES.get();
+        if (scores.length < width) {
+            scores = new float[width];
+            QUERY_SCORES.set(scores);
+        }
+        kernel.score(weights, width, features.ids, features.count, features.value(), scores);
+
+        int best = 0;
+        for (int c = 1; c < intents.length; c++) {
+            if (scores[c] > scores[best]) best = c;
+        }
+        double sum = 0;
+        for (int c = 0; c < intents.length; c++) {
+            sum += Math.exp((scores[c] - scores[best]) / temperature);
+        }
+        return new Classification(intents[best], (float) (1 / sum));
+    }
+
+    public List<String> intents() {
+        return List.of(intents);
+    }
+
+    public long estimatedBytes() {
+        return 4L * weights.length;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("intents", intents.length);
+        stats.put("featureBits", featureBits);
+        stats.put("kernel", kernel.name());
+        stats.put("lanes", kernel.lanes());
+        stats.put("temperature", Math.round(temperature * 1000) / 1000.0);
+        stats.put("estimatedBytes", estimatedBytes());
+        stats.putAll(training);
+        return stats;
+    }
+
+    // Hashed feature ids of one text; duplicates are kept and count twice
+    private static final class Features {
+        int[] ids = new int[64];
+        int count;
+
+        void extract(String text, int shift) {
+            count = 0;
+            add(BIAS, shift);
+            if (text.indexOf('?') >= 0) add(QUESTION_MARK, shift);
+            Tokens tokens = Tokenizer.ALPHANUMERIC.tokenize(text);
+            for (int i = 0; i < tokens.count(); i++) {
+                add(tokens.hash(i) ^ WORD, shift);
+                if (i > 0) add(tokens.hash(i - 1) * FNV_PRIME + tokens.hash(i) ^ BIGRAM, shift);
+                int length = tokens.length(i);
+                // Trigrams of the word between boundary markers: "^hi$" gives "^hi" and "hi$"
+                for (int start = -1; start + 2 <= length; start++) {
+                    long h = TRIGRAM;
+                    for (int k = start; k < start + 3; k++) {
+                        char c = k < 0 ? WORD_START : k >= length ? WORD_END : tokens.charAt(i, k);
+                        h = (h ^ c) * FNV_PRIME;
+                    }
+                    add(h, shift);
+                }
+            }
+        }
+
+        // Every feature weighs the same, scaled so long and short texts score alike
+        float value() {
+            return (float) (1 / Math.sqrt(count));
+        }
+
+        private void add(long hash, int shift) {
+            if (count == ids.length) ids = Arrays.copyOf(ids, count * 2);
+            ids[count++] = (int) (mix(hash) >>> shift);
+        }
+
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+    }
+
+    // Loaded on first use
+    private static final class OffTopic {
+        static final List<String> TEXTS = load("off-topic.txt");
+
+        private static List<String> load(String resource) {
+            List<String> texts = new ArrayList<>();
+            try (InputStream in = LinearIntentClassifier.class.getResourceAsStream(resource)) {
+                if (in == null) throw new IllegalStateException("Missing resource " + resource);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank() && line.charAt(0) != '#') texts.add(line.trim());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read " + resource, e);
+            }
+            return List.copyOf(texts);
+        }
+    }
+
+    public static final class Builder {
+
+        private final List<String> texts = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+        private int featureBits = 16;
+        private int epochs = 30;
+        private float learningRate = 0.5f;
+        private float l2 = 1e-5f;
+        private long seed = 42;
+        private boolean simd = true;
+
+        private Builder() {}
+
+        // The text must be normalized the same way as the text later classified
+        public Builder add(String text, String intent) {
+            if (text == null || text.isBlank()) return this;
+            texts.add(text);
+            labels.add(intent);
+            return this;
+        }
+
+        // Bundled everyday messages that belong to none of the intents (lower case, no punctuation).
+        // Without them every message looks like some intent: "my feet hurt" shares trigrams with
+        // "fee" and scores as pricing.
+        public Builder addOffTopic(String intent) {
+            for (String text : OffTopic.TEXTS) add(text, intent);
+            return this;
+        }
+
+        // 2^bits rows of weights, each as wide as the intents rounded up to the vector width
+        public Builder featureBits(int featureBits) {
+            if (featureBits < 8 || featureBits > 24) {
+                throw new IllegalArgumentException("Feature bits must be in 8..24: " + featureBits);
+            }
+            this.featureBits = featureBits;
+            return this;
+        }
+
+        public Builder epochs(int epochs) {
+            this.epochs = Math.max(1, epochs);
+            return this;
+        }
+
+        public Builder learningRate(float learningRate) {
+            this.learningRate = learningRate;
+            return this;
+        }
+
+        public Builder l2(float l2) {
+            this.l2 = l2;
+            return this;
+        }
+
+        // Training shuffles examples with this seed, so the same data gives the same model
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        // false forces the scalar kernel even when the Vector API is available
+        public Builder simd(boolean simd) {
+            this.simd = simd;
+            return this;
+        }
+
+        public int size() {
+            return texts.size();
+        }
+
+        public LinearIntentClassifier build() {
+            if (texts.isEmpty()) throw new IllegalStateException("No training examples");
+            long start = System.nanoTime();
+
+            Map<String, Integer> ids = new HashMap<>();
+            List<String> intents = new ArrayList<>();
+            int n = texts.size();
+            int[] y = new int[n];
+            int[][] x = new int[n][];
+            Features features = new Features();
+            for (int i = 0; i < n; i++) {
+                y[i] = ids.computeIfAbsent(labels.get(i), k -> {
+                    intents.add(k);
+                    return intents.size() - 1;
+                });
+                features.extract(texts.get(i), 64 - featureBits);
+                x[i] = Arrays.copyOf(features.ids, features.count);
+            }
+
+            ScoringKernel kernel = simd ? ScoringKernel.best() : ScoringKernel.ScalarKernel.INSTANCE;
+            int classes = intents.size();
+            int width = (classes + kernel.lanes() - 1) / kernel.lanes() * kernel.lanes();
+
+            // Out-of-fold scores: each example scored by a model that did not see it
+            SplittableRandom random = new SplittableRandom(seed);
+            int[] fold = new int[n];
+            int[] order = shuffled(n, random);
+            for (int i = 0; i < n; i++) fold[order[i]] = i % FOLDS;
+            int folds = n < 2 * FOLDS ? 0 : n <= CROSS_VALIDATION_LIMIT ? FOLDS : 1;
+            float[][] heldOut = new float[n][];
+            for (int f = 0; f < folds; f++) {
+                int held = f;
+                float[] w = train(x, y, i -> fold[i] != held, classes, width, random.split());
+                for (int i = 0; i < n; i++) {
+                    if (fold[i] == held) heldOut[i] = scores(w, width, x[i], classes);
+                }
+            }
+
+            Map<String, Object> training = new LinkedHashMap<>();
+            training.put("examples", n);
+            float temperature = 1.0f;
+            if (folds > 0) {
+                temperature = fitTemperature(heldOut, y);
+                int scored = 0;
+                int correct = 0;
+                double logLoss = 0;
+                double[] binConfidence = new double[CALIBRATION_BINS];
+                int[] binCorrect = new int[CALIBRATION_BINS];
+                int[] binCount = new int[CALIBRATION_BINS];
+                for (int i = 0; i < n; i++) {
+                    if (heldOut[i] == null) continue;
+                    double[] p = softmax(heldOut[i], temperature);
+                    int best = argmax(p);
+                    scored++;
+                    if (best == y[i]) correct++;
+                    logLoss -= Math.log(Math.max(1e-12, p[y[i]]));
+                    int bin = Math.min(CALIBRATION_BINS - 1, (int) (p[best] * CALIBRATION_BINS));
+                    binConfidence[bin] += p[best];
+                    if (best == y[i]) binCorrect[bin]++;
+                    binCount[bin]++;
+                }
+                // Expected calibration error: gap between confidence and accuracy, weighted per bin
+                double calibrationError = 0;
+                for (int b = 0; b < CALIBRATION_BINS; b++) {
+                    if (binCount[b] > 0) calibrationError += Math.abs(binConfidence[b] - binCorrect[b]);
+                }
+                training.put("heldOutExamples", scored);
+                training.put("heldOutAccuracy", round((double) correct / scored));
+                training.put("heldOutLogLoss", round(logLoss / scored));
+                training.put("heldOutCalibrationError", round(calibrationError / scored));
+            }
+
+            float[] weights = train(x, y, i -> true, classes, width, random.split());
+            training.put("trainingMillis", (System.nanoTime() - start) / 1_000_000);
+            return new LinearIntentClassifier(intents.toArray(new String[0]), featureBits, width, weights,
+                                              temperature, kernel, training);
+        }
+
+        // Plain SGD on the softmax loss with a decaying step; L2 shrinks only the rows touched
+        private float[] train(int[][] x, int[] y, IntPredicate use, int classes, int width,
+                              SplittableRandom random) {
+            float[] w = new float[(1 << featureBits) * width];
+            double[] p = new double[classes];
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                float rate = learningRate / (1 + 0.1f * epoch);
+                for (int i : shuffled(x.length, random)) {
+                    if (!use.test(i)) continue;
+                    int[] row = x[i];
+                    float value = (float) (1 / Math.sqrt(row.length));
+                    float[] s = scores(w, width, row, classes);
+                    double max = s[0];
+                    for (int c = 1; c < classes; c++) max = Math.max(max, s[c]);
+                    double sum = 0;
+                    for (int c = 0; c < classes; c++) sum += p[c] = Math.exp(s[c] - max);
+                    for (int c = 0; c < classes; c++) {
+                        float gradient = (float) (p[c] / sum - (c == y[i] ? 1 : 0)) * value;
+                        for (int id : row) {
+                            int at = id * width + c;
+                            w[at] -= rate * (gradient + l2 * w[at]);
+                        }
+                    }
+                }
+            }
+            return w;
+        }
+
+        private static float[] scores(float[] w, int width, int[] row, int classes) {
+            float[] s = new float[classes];
+            for (int id : row) {
+                for (int c = 0; c < classes; c++) s[c] += w[id * width + c];
+            }
+            float value = (float) (1 / Math.sqrt(row.length));
+            for (int c = 0; c < classes; c++) s[c] *= value;
+            return s;
+        }
+
+        // Temperature with the lowest held-out log loss, by golden-section search over log T
+        private static float fitTemperature(float[][] scores, int[] y) {
+            double lo = Math.log(0.05);
+            double hi = Math.log(20);
+            double ratio = (Math.sqrt(5) - 1) / 2;
+            for (int step = 0; step < 40; step++) {
+                double a = hi - ratio * (hi - lo);
+                double b = lo + ratio * (hi - lo);
+                if (logLoss(scores, y, Math.exp(a)) < logLoss(scores, y, Math.exp(b))) {
+                    hi = b;
+                } else {
+                    lo = a;
+                }
+            }
+            return (float) Math.exp((lo + hi) / 2);
+        }
+
+        private static double logLoss(float[][] scores, int[] y, double temperature) {
+            double loss = 0;
+            for (int i = 0; i < scores.length; i++) {
+                if (scores[i] == null) continue;
+                loss -= Math.log(Math.max(1e-12, softmax(scores[i], temperature)[y[i]]));
+            }
+            return loss;
+        }
+
+        private static double[] softmax(float[] s, double temperature) {
+            double max = s[0];
+            for (float v : s) max = Math.max(max, v);
+            double[] p = new double[s.length];
+            double sum = 0;
+            for (int c = 0; c < s.length; c++) sum += p[c] = Math.exp((s[c] - max) / temperature);
+            for (int c = 0; c < s.length; c++) p[c] /= sum;
+            return p;
+        }
+
+        private static int argmax(double[] p) {
+            int best = 0;
+            for (int c = 1; c < p.length; c++) {
+                if (p[c] > p[best]) best = c;
+            }
+            return best;
+        }
+
+        private static int[] shuffled(int n, SplittableRandom random) {
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) order[i] = i;
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = order[i];
+                order[i] = order[j];
+                order[j] = t;
+            }
+            return order;
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 10000) / 10000.0;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.chatbot.classify;
+
+// Inner loop of LinearIntentClassifier: scores[0, width) = value x the sum of the weight rows
+// of the given features, each row width floats long and starting at feature x width.
+interface ScoringKernel {
+
+    // Rows are padded to a multiple of this many floats
+    int lanes();
+
+    String name();
+
+    void score(float[] weights, int width, int[] features, int count, float value, float[] scores);
+
+    // SIMD through the Vector API when built with -Psimd and the JVM runs with --add-modules
+    // jdk.incubator.vector, else plain loops. The vector kernel is loaded by name, so nothing
+    // links against the incubator module unless both are there.
+    static ScoringKernel best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (ScoringKernel) Class.forName("com.chatbot.classify.VectorKernel")
+                    .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Fall through to the scalar kernel
+            }
+        }
+        return ScalarKernel.INSTANCE;
+    }
+
+    final class ScalarKernel implements ScoringKernel {
+
+        static final ScalarKernel INSTANCE = new ScalarKernel();
+
+        private ScalarKernel() {}
+
+        @Override
+        public int lanes() {
+            return 1;
+        }
+
+        @Override
+        public String name() {
+            return "scalar";
+        }
+
+        @Override
+        public void score(float[] weights, int width, int[] features, int count, float value, float[] scores) {
+            for (int c = 0; c < width; c++) scores[c] = 0;
+            for (int i = 0; i < count; i++) {
+                int row = features[i] * width;
+                for (int c = 0; c < width; c++) scores[c] += weights[row + c];
+            }
+            for (int c = 0; c < width; c++) scores[c] *= value;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.chatbot.concurrent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Concurrency limit that follows measured latency (the gradient method): a short average of recent
+// round trips is compared with a long one. While they agree the limit grows by about its square
+// root per sample; once queueing makes the short average rise past tolerance x the long one, the
+// limit shrinks in proportion, down to half per sample. Requests over the limit are refused
+// instead of queued, so callers can shed them at once. Releases only add to striped counters;
+// about one in UPDATE_EVERY of them folds the pending samples into the averages and the limit,
+// and only if no other thread is already doing so.
+public final class AdaptiveLimiter {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 600;
+    // Once latency fell well below the long average, pull it down faster so the limit can recover
+    private static final double LONG_DRIFT_RATIO = 2.0;
+    private static final double LONG_DRIFT_DECAY = 0.95;
+    // Power of two
+    private static final int UPDATE_EVERY = 16;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder samples = new LongAdder();
+    private volatile double limit;
+
+    // Samples not yet folded into the averages
+    private final LongAdder pendingCount = new LongAdder();
+    private final LongAdder pendingRtt = new LongAdder();
+    private final LongAdder pendingInFlight = new LongAdder();
+    private final AtomicBoolean updating = new AtomicBoolean();
+
+    // Written only by the thread holding updating
+    private volatile double shortRtt;
+    private volatile double longRtt;
+
+    // tolerance: how many times slower than usual requests may get before the limit drops (>= 1).
+    // smoothing: weight of each new estimate in the limit, 1 follows it immediately.
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limit range: " + minLimit + ".." + maxLimit);
+        }
+        if (tolerance < 1 || smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException("Invalid tolerance or smoothing: " + tolerance + ", " + smoothing);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    // share scales the limit for one caller: below 1 it is refused before the limit is reached,
+    // above 1 it still gets in after others are refused. Every true needs a release.
+    public boolean tryAcquire(double share) {
+        int cap = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= cap) return false;
+            if (inFlight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    // Release with the round trip of the request, which feeds the limit
+    public void release(long rttNanos) {
+        pendingRtt.add(Math.max(1, rttNanos));
+        pendingInFlight.add(inFlight.get());
+        pendingCount.increment();
+        samples.increment();
+        inFlight.decrementAndGet();
+        if ((ThreadLocalRandom.current().nextInt() & (UPDATE_EVERY - 1)) == 0 && updating.compareAndSet(false, true)) {
+            try {
+                update();
+            } finally {
+                updating.set(false);
+            }
+        }
+    }
+
+    // Release without a sample, for requests whose duration says nothing about load
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("limit", limit());
+        stats.put("inFlight", inFlight());
+        stats.put("minLimit", minLimit);
+        stats.put("maxLimit", maxLimit);
+        stats.put("shortRttMicros", Math.round(shortRtt / 1000));
+        stats.put("longRttMicros", Math.round(longRtt / 1000));
+        stats.put("samples", samples.sum());
+        return stats;
+    }
+
+    // Applies the pending samples as if one at a time with their mean round trip and load. A
+    // release racing with the drain may land in the next batch; the estimate only drifts by one sample.
+    private void update() {
+        long count = pendingCount.sumThenReset();
+        if (count == 0) return;
+        double rtt = (double) pendingRtt.sumThenReset() / count;
+        double inFlightNow = (double) pendingInFlight.sumThenReset() / count;
+
+        double shortRtt = this.shortRtt;
+        double longRtt = this.longRtt;
+        if (longRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+        }
+        shortRtt += (rtt - shortRtt) * (1 - Math.pow(1 - 2 / (SHORT_WINDOW + 1), count));
+        longRtt += (rtt - longRtt) * (1 - Math.pow(1 - 2 / (LONG_WINDOW + 1), count));
+        if (longRtt / shortRtt > LONG_DRIFT_RATIO) {
+            longRtt *= Math.pow(LONG_DRIFT_DECAY, count);
+        }
+        this.shortRtt = shortRtt;
+        this.longRtt = longRtt;
+
+        double current = limit;
+        // Mostly idle: latency says nothing about how many more requests would fit
+        if (inFlightNow < current / 2) return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        for (long i = 0; i < count; i++) {
+            double estimate = current * gradient + Math.sqrt(current);
+            double next = Math.max(minLimit, Math.min(maxLimit, current * (1 - smoothing) + estimate * smoothing));
+            // Pinned at a bound
+            if (next == current) break;
+            current = next;
+        }
+        limit = current;
+    }
+}
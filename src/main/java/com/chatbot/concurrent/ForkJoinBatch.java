@@ -0,0 +1,63 @@
+package com.chatbot.concurrent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+// Maps a batch across a fork-join pool by recursive range splitting; results keep input order.
+public final class ForkJoinBatch {
+
+    // Aim for a few leaves per worker so stealing can even out uneven messages
+    private static final int LEAVES_PER_WORKER = 4;
+
+    private ForkJoinBatch() {}
+
+    @SuppressWarnings("unchecked")
+    public static <T, R> List<R> map(ForkJoinPool pool, List<T> items, Function<? super T, ? extends R> mapper) {
+        int size = items.size();
+        Object[] results = new Object[size];
+        if (size == 0) return List.of();
+
+        int leafSize = Math.max(1, size / (pool.getParallelism() * LEAVES_PER_WORKER));
+        if (size <= leafSize) {
+            for (int i = 0; i < size; i++) results[i] = mapper.apply(items.get(i));
+        } else {
+            pool.invoke(new MapAction<>(items, mapper, results, 0, size, leafSize));
+        }
+        return (List<R>) Arrays.asList(results);
+    }
+
+    private static final class MapAction<T, R> extends RecursiveAction {
+        private final List<T> items;
+        private final Function<? super T, ? extends R> mapper;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        MapAction(List<T> items, Function<? super T, ? extends R> mapper, Object[] results,
+                  int from, int to, int leafSize) {
+            this.items = items;
+            this.mapper = mapper;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                for (int i = from; i < to; i++) {
+                    results[i] = mapper.apply(items.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MapAction<>(items, mapper, results, from, mid, leafSize),
+                      new MapAction<>(items, mapper, results, mid, to, leafSize));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.chatbot.concurrent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Settings for a LoadShedder, bound from chat.limiter.* or fast.limiter.*
+public class LimiterProperties {
+
+    private boolean enabled = true;
+    private int initialLimit = 20;
+    private int minLimit = 4;
+    private int maxLimit = 1000;
+    private double tolerance = 1.5;
+    private double smoothing = 0.2;
+    private int retryAfterSeconds = 1;
+    // Admitted and counted, but their duration doesn't feed the limit (batches, streams, admin)
+    private List<String> unsampledPaths = new ArrayList<>();
+    private Map<String, Priority> priorities = new LinkedHashMap<>();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getInitialLimit() { return initialLimit; }
+    public void setInitialLimit(int initialLimit) { this.initialLimit = initialLimit; }
+
+    public int getMinLimit() { return minLimit; }
+    public void setMinLimit(int minLimit) { this.minLimit = minLimit; }
+
+    public int getMaxLimit() { return maxLimit; }
+    public void setMaxLimit(int maxLimit) { this.maxLimit = maxLimit; }
+
+    public double getTolerance() { return tolerance; }
+    public void setTolerance(double tolerance) { this.tolerance = tolerance; }
+
+    public double getSmoothing() { return smoothing; }
+    public void setSmoothing(double smoothing) { this.smoothing = smoothing; }
+
+    public int getRetryAfterSeconds() { return retryAfterSeconds; }
+    public void setRetryAfterSeconds(int retryAfterSeconds) { this.retryAfterSeconds = retryAfterSeconds; }
+
+    public List<String> getUnsampledPaths() { return unsampledPaths; }
+    public void setUnsampledPaths(List<String> unsampledPaths) { this.unsampledPaths = unsampledPaths; }
+
+    public Map<String, Priority> getPriorities() { return priorities; }
+    public void setPriorities(Map<String, Priority> priorities) { this.priorities = priorities; }
+
+    public static class Priority {
+        // Path prefixes in this class; the longest matching prefix over all classes decides
+        private List<String> paths = new ArrayList<>();
+        // Fraction of the limit this class may fill; above 1 it is still admitted once others are shed
+        private double share = 1.0;
+
+        public List<String> getPaths() { return paths; }
+        public void setPaths(List<String> paths) { this.paths = paths; }
+
+        public double getShare() { return share; }
+        public void setShare(double share) { this.share = share; }
+    }
+}
@@ -0,0 +1,124 @@
+package com.chatbot.concurrent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Admission in front of the request handlers: each path falls in a priority class that may fill
+// its share of an AdaptiveLimiter, and a request that doesn't fit is refused on the spot rather
+// than queued behind the ones already running. Paths in no class are not limited.
+public final class LoadShedder {
+
+    // Holds one slot of the limit until released; releasing twice is harmless
+    public final class Permit {
+        private final long startNanos = System.nanoTime();
+        private final boolean limited;
+        private final boolean sampled;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(boolean limited, boolean sampled) {
+            this.limited = limited;
+            this.sampled = sampled;
+        }
+
+        public void release() {
+            if (!limited || !released.compareAndSet(false, true)) return;
+            if (sampled) {
+                limiter.release(System.nanoTime() - startNanos);
+            } else {
+                limiter.release();
+            }
+        }
+    }
+
+    private record Route(String prefix, PriorityClass priority) {}
+
+    private static final class PriorityClass {
+        final String name;
+        final double share;
+        final LongAdder admitted = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+
+        PriorityClass(String name, double share) {
+            this.name = name;
+            this.share = share;
+        }
+    }
+
+    private final AdaptiveLimiter limiter;
+    private final int retryAfterSeconds;
+    // Longest prefix first
+    private final Route[] routes;
+    private final String[] unsampledPaths;
+    private final List<PriorityClass> classes = new ArrayList<>();
+    private final Permit unlimited = new Permit(false, false);
+
+    public LoadShedder(LimiterProperties properties) {
+        this.limiter = new AdaptiveLimiter(properties.getInitialLimit(), properties.getMinLimit(),
+                                           properties.getMaxLimit(), properties.getTolerance(),
+                                           properties.getSmoothing());
+        this.retryAfterSeconds = properties.getRetryAfterSeconds();
+        List<Route> routes = new ArrayList<>();
+        properties.getPriorities().forEach((name, priority) -> {
+            if (priority.getShare() <= 0) {
+                throw new IllegalArgumentException("Share of priority " + name + " must be positive");
+            }
+            PriorityClass priorityClass = new PriorityClass(name, priority.getShare());
+            classes.add(priorityClass);
+            for (String path : priority.getPaths()) {
+                routes.add(new Route(path, priorityClass));
+            }
+        });
+        routes.sort(Comparator.comparingInt((Route route) -> route.prefix().length()).reversed());
+        this.routes = routes.toArray(new Route[0]);
+        this.unsampledPaths = properties.getUnsampledPaths().toArray(new String[0]);
+    }
+
+    // A permit to release once the response is complete, or null to answer 503 with Retry-After
+    public Permit tryAdmit(String path) {
+        PriorityClass priority = classify(path);
+        if (priority == null) return unlimited;
+        if (!limiter.tryAcquire(priority.share)) {
+            priority.rejected.increment();
+            return null;
+        }
+        priority.admitted.increment();
+        return new Permit(true, isSampled(path));
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = limiter.stats();
+        Map<String, Object> priorities = new LinkedHashMap<>();
+        for (PriorityClass priority : classes) {
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("share", priority.share);
+            counts.put("admitted", priority.admitted.sum());
+            counts.put("rejected", priority.rejected.sum());
+            priorities.put(priority.name, counts);
+        }
+        stats.put("priorities", priorities);
+        return stats;
+    }
+
+    private PriorityClass classify(String path) {
+        for (Route route : routes) {
+            if (path.startsWith(route.prefix())) return route.priority();
+        }
+        return null;
+    }
+
+    private boolean isSampled(String path) {
+        for (String prefix : unsampledPaths) {
+            if (path.startsWith(prefix)) return false;
+        }
+        return true;
+    }
+}
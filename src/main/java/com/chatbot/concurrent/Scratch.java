@@ -0,0 +1,27 @@
+package com.chatbot.concurrent;
+
+import java.util.function.Supplier;
+
+// Reusable per-thread scratch that is only cached on platform threads. A virtual thread serves one
+// request and is then discarded, so a ThreadLocal would add a map and an entry to every request and
+// never reuse them; virtual threads get a fresh instance per call instead. Keep instances small.
+public final class Scratch<T> {
+
+    private final Supplier<? extends T> factory;
+    private final ThreadLocal<T> cached;
+
+    public Scratch(Supplier<? extends T> factory) {
+        this.factory = factory;
+        this.cached = ThreadLocal.withInitial(factory);
+    }
+
+    // Callers must hold on to the returned instance; a second call may return a different one
+    public T get() {
+        return Thread.currentThread().isVirtual() ? factory.get() : cached.get();
+    }
+
+    // Keeps a grown replacement for this thread's next call; does nothing on a virtual thread
+    public void set(T value) {
+        if (!Thread.currentThread().isVirtual()) cached.set(value);
+    }
+}
@@ -0,0 +1,74 @@
+package com.chatbot.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Coalesces concurrent computations of the same key: the first caller computes, and callers that
+// arrive while it runs wait for its result instead of computing it again. Nothing is kept once the
+// computation is done, so this is not a cache; it only stops a burst of identical requests from
+// doing the same work in parallel before any cache has the answer.
+public final class SingleFlight<K, V> {
+
+    // shared is true when another caller computed the value
+    public record Result<V>(V value, boolean shared) {}
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    // A failure is rethrown to every caller waiting on it. The computation must not ask for its own key.
+    public Result<V> run(K key, Supplier<? extends V> computation) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return new Result<>(await(existing), true);
+        }
+
+        try {
+            V value = computation.get();
+            flight.complete(value);
+            return new Result<>(value, false);
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    // Same, without waiting: a caller that finds the key in flight gets a future of that result, so
+    // an event loop thread can hand it on instead of parking. Otherwise the computation runs on
+    // the calling thread and the future is already complete.
+    public CompletableFuture<Result<V>> runAsync(K key, Supplier<? extends V> computation) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return existing.thenApply(value -> new Result<>(value, true));
+        }
+
+        try {
+            V value = computation.get();
+            flight.complete(value);
+            return CompletableFuture.completedFuture(new Result<>(value, false));
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+    }
+}
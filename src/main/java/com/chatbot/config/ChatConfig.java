@@ -0,0 +1,64 @@
+package com.chatbot.config;
+
+import com.chatbot.concurrent.LimiterProperties;
+import com.chatbot.concurrent.LoadShedder;
+import com.chatbot.controller.AdminTokenFilter;
+import com.chatbot.controller.LoadSheddingFilter;
+import com.chatbot.session.SessionStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ChatConfig {
+    
+    // Pool for /api/chat/message-batch; 0 means one worker per core
+    @Bean(name = "batchPool", destroyMethod = "shutdown")
+    public ForkJoinPool batchPool(@Value("${chat.batch.parallelism:0}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+    
+    // Recent turns per conversation, bounded by memory and idle time
+    @Bean(destroyMethod = "close")
+    public SessionStore sessionStore(@Value("${chat.session.turns:8}") int turns,
+                                     @Value("${chat.session.max-memory-mb:256}") long maxMemoryMb,
+                                     @Value("${chat.session.idle-timeout-seconds:1800}") long idleTimeoutSeconds,
+                                     @Value("${chat.session.stripes:64}") int stripes) {
+        return new SessionStore(turns, maxMemoryMb << 20, TimeUnit.SECONDS.toMillis(idleTimeoutSeconds), stripes);
+    }
+    
+    @Bean
+    @ConfigurationProperties(prefix = "chat.limiter")
+    public LimiterProperties limiterProperties() {
+        return new LimiterProperties();
+    }
+    
+    // Adaptive concurrency limit over /api/chat, shedding low-priority paths first
+    @Bean
+    public LoadShedder loadShedder(LimiterProperties properties) {
+        return new LoadShedder(properties);
+    }
+    
+    @Bean
+    public FilterRegistrationBean<LoadSheddingFilter> loadSheddingFilter(LoadShedder shedder, LimiterProperties properties) {
+        FilterRegistrationBean<LoadSheddingFilter> registration = new FilterRegistrationBean<>(new LoadSheddingFilter(shedder));
+        registration.addUrlPatterns("/api/chat/*");
+        registration.setEnabled(properties.isEnabled());
+        return registration;
+    }
+    
+    // Same switch as AdminController; without it the admin paths are not mapped at all
+    @Bean
+    @ConditionalOnProperty(name = "chat.admin.enabled", havingValue = "true")
+    public FilterRegistrationBean<AdminTokenFilter> adminTokenFilter(@Value("${chat.admin.token:}") String token) {
+        FilterRegistrationBean<AdminTokenFilter> registration = new FilterRegistrationBean<>(new AdminTokenFilter(token));
+        registration.addUrlPatterns("/api/chat/admin/*");
+        return registration;
+    }
+}
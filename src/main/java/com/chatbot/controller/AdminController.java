@@ -0,0 +1,104 @@
+package com.chatbot.controller;
+
+import com.chatbot.nlp.ModelSnapshot;
+import com.chatbot.service.TrainingDataService;
+import com.chatbot.storage.TrainingLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Off unless chat.admin.enabled=true; then every request needs chat.admin.token (AdminTokenFilter)
+@RestController
+@RequestMapping("/api/chat/admin")
+@ConditionalOnProperty(name = "chat.admin.enabled", havingValue = "true")
+public class AdminController {
+    
+    @Autowired
+    private TrainingDataService trainingDataService;
+    
+    // Reloads may only read files below this directory
+    @Value("${chat.admin.corpus-dir:corpus}")
+    private String corpusDir;
+    
+    // Swaps in a JSON corpus or compiled snapshot, e.g. POST /api/chat/admin/reload?file=corpus.json
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Object>> reload(@RequestParam String file) {
+        Path base = Path.of(corpusDir).toAbsolutePath().normalize();
+        Path path = base.resolve(file).normalize();
+        
+        if (!path.startsWith(base)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!Files.isRegularFile(path)) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        long start = System.nanoTime();
+        try {
+            ModelSnapshot model = trainingDataService.reload(path);
+            return ResponseEntity.ok(Map.of(
+                "file", file,
+                "patterns", model.getPatternIndex().size(),
+                "terms", model.getDictionary().size(),
+                "intents", model.getIntentResponses().size(),
+                "elapsedMs", (System.nanoTime() - start) / 1_000_000
+            ));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("file", file, "error", String.valueOf(e.getMessage())));
+        }
+    }
+    
+    // Adds a response to a training pattern; answers once the entry is durable in the training log
+    @PostMapping("/patterns")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> addPattern(@RequestBody Map<String, String> request) {
+        return ingest(TrainingLog.Type.PATTERN, request.get("pattern"), request.get("response"));
+    }
+    
+    @PostMapping("/intent-responses")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> addIntentResponse(@RequestBody Map<String, String> request) {
+        return ingest(TrainingLog.Type.INTENT, request.get("intent"), request.get("response"));
+    }
+    
+    // Folds the training log into a new base snapshot now instead of waiting for the threshold
+    @PostMapping("/compact")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> compact() {
+        return trainingDataService.compact().handle((ignored, error) -> {
+            if (error != null) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).<Map<String, Object>>build();
+            }
+            ModelSnapshot model = trainingDataService.getModel();
+            return ResponseEntity.ok(Map.of(
+                "patterns", model.getPatternIndex().size(),
+                "delta", model.getPatternIndex().deltaSize()
+            ));
+        });
+    }
+    
+    private CompletableFuture<ResponseEntity<Map<String, Object>>> ingest(TrainingLog.Type type, String key, String response) {
+        if (key == null || key.trim().isEmpty() || response == null || response.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        String normalized = type == TrainingLog.Type.PATTERN ? key.toLowerCase() : key;
+        
+        return trainingDataService.ingest(new TrainingLog.Entry(type, normalized, response)).handle((ignored, error) -> {
+            // Applied in memory but not durable; the client should retry
+            if (error != null) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).<Map<String, Object>>build();
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).<Map<String, Object>>body(Map.of(
+                "type", type.name().toLowerCase(),
+                "key", normalized,
+                "response", response
+            ));
+        });
+    }
+}
@@ -1,8 +1,11 @@
 package com.chatbot.controller;
 
+import com.chatbot.concurrent.LoadShedder;
 import com.chatbot.model.ChatMessage;
 import com.chatbot.service.ChatbotService;
+import com.chatbot.session.SessionStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,18 +20,43 @@ public class ChatController {
     @Autowired
     private ChatbotService chatbotService;
     
+    @Autowired
+    private LoadShedder loadShedder;
+    
+    @Value("${chat.batch.max-size:1000}")
+    private int maxBatchSize;
+    
     @PostMapping("/message")
     public ResponseEntity<ChatMessage> sendMessage(@RequestBody Map<String, String> request) {
         String message = request.get("message");
+        String sessionId = request.get("sessionId");
         
         if (message == null || message.trim().isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
+        if (sessionId != null && !SessionStore.isValidId(sessionId)) {
+            return ResponseEntity.badRequest().build();
+        }
         
-        ChatMessage response = chatbotService.processMessage(message);
+        ChatMessage response = chatbotService.processMessage(message, sessionId);
         return ResponseEntity.ok(response);
     }
     
+    @PostMapping("/message-batch")
+    public ResponseEntity<List<ChatMessage>> sendMessages(@RequestBody List<String> messages) {
+        if (messages == null || messages.isEmpty() || messages.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().build();
+        }
+        for (String message : messages) {
+            if (message == null || message.trim().isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        
+        List<ChatMessage> responses = chatbotService.processBatch(messages);
+        return ResponseEntity.ok(responses);
+    }
+    
     @GetMapping("/suggestions")
     public ResponseEntity<List<String>> getSuggestions(@RequestParam(required = false) String partial) {
         List<String> suggestions = chatbotService.getSuggestions(partial != null ? partial : "");
@@ -43,4 +71,42 @@ public class ChatController {
             "version", "1.0.0"
         ));
     }
+    
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> metrics() {
+        return ResponseEntity.ok(chatbotService.getMetrics().snapshot());
+    }
+    
+    @GetMapping("/suggestions/stats")
+    public ResponseEntity<Map<String, Object>> suggestionStats() {
+        return ResponseEntity.ok(chatbotService.getTypeahead().stats());
+    }
+    
+    @GetMapping("/classifier/stats")
+    public ResponseEntity<Map<String, Object>> classifierStats() {
+        return ResponseEntity.ok(chatbotService.classifierStats());
+    }
+    
+    @GetMapping("/limiter/stats")
+    public ResponseEntity<Map<String, Object>> limiterStats() {
+        return ResponseEntity.ok(loadShedder.stats());
+    }
+    
+    @GetMapping("/session/{sessionId}")
+    public ResponseEntity<List<SessionStore.Turn>> sessionHistory(@PathVariable String sessionId) {
+        List<SessionStore.Turn> turns = chatbotService.getSessionStore().history(sessionId);
+        return turns.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(turns);
+    }
+    
+    @DeleteMapping("/session/{sessionId}")
+    public ResponseEntity<Void> endSession(@PathVariable String sessionId) {
+        return chatbotService.getSessionStore().remove(sessionId)
+            ? ResponseEntity.noContent().build()
+            : ResponseEntity.notFound().build();
+    }
+    
+    @GetMapping("/sessions")
+    public ResponseEntity<Map<String, Object>> sessionStats() {
+        return ResponseEntity.ok(chatbotService.getSessionStore().stats());
+    }
 }
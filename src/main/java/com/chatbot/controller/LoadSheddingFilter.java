@@ -0,0 +1,70 @@
+package com.chatbot.controller;
+
+import com.chatbot.concurrent.LoadShedder;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Servlet front of a LoadShedder: refused requests get 503 with Retry-After before any handler,
+// body parsing or thread pool is involved. Async requests hold their permit until they complete.
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    private final LoadShedder shedder;
+
+    public LoadSheddingFilter(LoadShedder shedder) {
+        this.shedder = shedder;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        LoadShedder.Permit permit = shedder.tryAdmit(request.getRequestURI());
+        if (permit == null) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, Integer.toString(shedder.getRetryAfterSeconds()));
+            return;
+        }
+
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseListener(permit));
+                async = true;
+            }
+        } finally {
+            if (!async) permit.release();
+        }
+    }
+
+    private record ReleaseListener(LoadShedder.Permit permit) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Listeners are dropped when async starts again, so stay on for the next cycle
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.chatbot.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-stage latency histograms plus per-intent counters for one message pipeline
+public final class PipelineMetrics {
+
+    private final String engine;
+    private final Map<String, LatencyHistogram> stages = new LinkedHashMap<>();
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final ConcurrentHashMap<String, LongAdder> intents = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(String engine, String... stageNames) {
+        this.engine = engine;
+        for (String stage : stageNames) {
+            stages.put(stage, new LatencyHistogram());
+        }
+    }
+
+    // Stages are fixed at construction; callers keep the histogram rather than looking it up per request
+    public LatencyHistogram stage(String name) {
+        LatencyHistogram histogram = stages.get(name);
+        if (histogram == null) {
+            throw new IllegalArgumentException("Unknown stage: " + name);
+        }
+        return histogram;
+    }
+
+    public LatencyHistogram total() {
+        return total;
+    }
+
+    public void recordIntent(String intent) {
+        intents.computeIfAbsent(intent, k -> new LongAdder()).increment();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stageStats = new LinkedHashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : stages.entrySet()) {
+            stageStats.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        
+        Map<String, Long> intentCounts = new LinkedHashMap<>();
+        intents.forEach((intent, counter) -> intentCounts.put(intent, counter.sum()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("engine", engine);
+        result.put("total", total.snapshot());
+        result.put("stages", stageStats);
+        result.put("intents", intentCounts);
+        return result;
+    }
+}
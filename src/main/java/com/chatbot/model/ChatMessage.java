@@ -1,6 +1,9 @@
 package com.chatbot.model;
 
+import com.chatbot.nlp.EntityScanner;
+
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class ChatMessage {
     private String id;
@@ -9,6 +12,8 @@ public class ChatMessage {
     private LocalDateTime timestamp;
     private double confidence;
     private String intent;
+    private String sessionId;
+    private List<EntityScanner.Entity> entities;
 
     public ChatMessage() {
         this.timestamp = LocalDateTime.now();
@@ -38,4 +43,10 @@ public class ChatMessage {
 
     public String getIntent() { return intent; }
     public void setIntent(String intent) { this.intent = intent; }
+
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+
+    public List<EntityScanner.Entity> getEntities() { return entities; }
+    public void setEntities(List<EntityScanner.Entity> entities) { this.entities = entities; }
 }
@@ -0,0 +1,20 @@
+package com.chatbot.model;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Corpus file for the model compiler: {"patterns": {pattern: [responses]}, "intents": {intent: [responses]}}
+public class TrainingCorpus {
+    private Map<String, List<String>> patterns = new LinkedHashMap<>();
+    private Map<String, List<String>> intents = new LinkedHashMap<>();
+
+    public TrainingCorpus() {}
+
+    // Getters and Setters
+    public Map<String, List<String>> getPatterns() { return patterns; }
+    public void setPatterns(Map<String, List<String>> patterns) { this.patterns = patterns; }
+
+    public Map<String, List<String>> getIntents() { return intents; }
+    public void setIntents(Map<String, List<String>> intents) { this.intents = intents; }
+}
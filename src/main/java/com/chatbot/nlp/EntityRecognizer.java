@@ -0,0 +1,18 @@
+package com.chatbot.nlp;
+
+// One entity type for EntityScanner. The scanner calls match() only at word boundaries whose first
+// char passes canStart(); implementations look a bounded number of chars ahead, so a scan stays
+// linear in the text length.
+public interface EntityRecognizer {
+
+    // Label put on the spans this recognizer produces, e.g. "EMAIL"
+    String type();
+
+    boolean canStart(char c);
+
+    // End (exclusive) of the longest match starting at start, or -1
+    int match(CharSequence text, int start);
+
+    // Canonical value of a span returned by match()
+    String normalize(CharSequence text, int start, int end);
+}
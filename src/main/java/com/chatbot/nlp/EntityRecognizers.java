@@ -0,0 +1,335 @@
+package com.chatbot.nlp;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Locale;
+import java.util.Map;
+
+// Built-in recognizers for EntityScanner, hand-rolled so that none of them needs a regex
+public final class EntityRecognizers {
+
+    public static final String EMAIL = "EMAIL";
+    public static final String PHONE = "PHONE";
+    public static final String DATE = "DATE";
+    public static final String AMOUNT = "AMOUNT";
+    public static final String ORDER_ID = "ORDER_ID";
+    public static final String NUMBER = "NUMBER";
+
+    // Lookahead caps: RFC 5321 local part and domain lengths, and the longest number we read
+    private static final int MAX_LOCAL = 64;
+    private static final int MAX_DOMAIN = 253;
+    private static final int MAX_NUMBER = 32;
+    private static final int MAX_ORDER_ID = 20;
+
+    private static final Map<String, String> CURRENCY_WORDS = Map.of(
+        "usd", "USD", "dollar", "USD", "dollars", "USD",
+        "eur", "EUR", "euro", "EUR", "euros", "EUR",
+        "gbp", "GBP", "pound", "GBP", "pounds", "GBP"
+    );
+
+    private EntityRecognizers() {}
+
+    // name@example.com, normalized to lower case
+    public static EntityRecognizer email() {
+        return new EntityRecognizer() {
+            public String type() { return EMAIL; }
+            public boolean canStart(char c) { return isLetterOrDigit(c); }
+
+            public int match(CharSequence text, int start) {
+                int length = text.length();
+                int i = start;
+                int limit = Math.min(length, start + MAX_LOCAL);
+                while (i < limit && isLocalChar(text.charAt(i))) i++;
+                if (i >= length || text.charAt(i) != '@') return -1;
+
+                // Dot-separated labels; the match ends after the last all-letter label of 2+ chars,
+                // so a sentence-ending period is left out
+                int dots = 0, labelLength = 0, end = -1;
+                boolean letters = true;
+                int domainLimit = Math.min(length, i + 1 + MAX_DOMAIN);
+                for (int j = i + 1; j < domainLimit; j++) {
+                    char c = text.charAt(j);
+                    if (c == '.') {
+                        if (labelLength == 0) break;
+                        dots++;
+                        labelLength = 0;
+                        letters = true;
+                    } else if (isLetterOrDigit(c) || c == '-') {
+                        labelLength++;
+                        letters &= isLetter(c);
+                        if (dots > 0 && letters && labelLength >= 2) end = j + 1;
+                    } else {
+                        break;
+                    }
+                }
+                return end;
+            }
+
+            public String normalize(CharSequence text, int start, int end) {
+                return text.subSequence(start, end).toString().toLowerCase(Locale.ROOT);
+            }
+        };
+    }
+
+    // 555-123-4567, (555) 123-4567, 555.123.4567, +1 555 123 4567, +353 555 123 4567; normalized to digits with any '+'
+    public static EntityRecognizer phone() {
+        return new EntityRecognizer() {
+            public String type() { return PHONE; }
+            public boolean canStart(char c) { return isDigit(c) || c == '(' || c == '+'; }
+
+            public int match(CharSequence text, int start) {
+                int length = text.length();
+                int i = start;
+                if (text.charAt(i) == '+') {
+                    // 1-3 digit country code; a fourth digit fails the separator check
+                    int code = i + 1;
+                    while (code < length && code - i <= 3 && isDigit(text.charAt(code))) code++;
+                    if (code == i + 1 || code >= length || !isPhoneSeparator(text.charAt(code))) return -1;
+                    i = code + 1;
+                }
+
+                // Area code, then exchange and line number
+                if (i < length && text.charAt(i) == '(') {
+                    if (!digitsAt(text, i + 1, 3) || i + 4 >= length || text.charAt(i + 4) != ')') return -1;
+                    i += 5;
+                    if (i < length && text.charAt(i) == ' ') i++;
+                } else {
+                    if (!digitsAt(text, i, 3) || i + 3 >= length || !isPhoneSeparator(text.charAt(i + 3))) return -1;
+                    i += 4;
+                }
+                if (!digitsAt(text, i, 3) || i + 3 >= length || !isPhoneSeparator(text.charAt(i + 3))) return -1;
+                i += 4;
+                return digitsAt(text, i, 4) ? i + 4 : -1;
+            }
+
+            public String normalize(CharSequence text, int start, int end) {
+                StringBuilder digits = new StringBuilder(end - start);
+                for (int i = start; i < end; i++) {
+                    char c = text.charAt(i);
+                    if (isDigit(c) || c == '+') digits.append(c);
+                }
+                return digits.toString();
+            }
+        };
+    }
+
+    // 2024-01-15, 2024/01/15 or US-style 1/15/2024; normalized to ISO 8601
+    public static EntityRecognizer date() {
+        return new EntityRecognizer() {
+            public String type() { return DATE; }
+            public boolean canStart(char c) { return isDigit(c); }
+
+            public int match(CharSequence text, int start) {
+                long parsed = parseDate(text, start);
+                return parsed < 0 ? -1 : (int) (parsed >>> 32);
+            }
+
+            public String normalize(CharSequence text, int start, int end) {
+                int date = (int) parseDate(text, start);
+                return LocalDate.of(date / 10000, date / 100 % 100, date % 100).toString();
+            }
+        };
+    }
+
+    // $12.50, € 5, 1,200 usd, 30 dollars; normalized to "<number> <ISO code>"
+    public static EntityRecognizer amount() {
+        return new EntityRecognizer() {
+            public String type() { return AMOUNT; }
+            public boolean canStart(char c) { return isDigit(c) || currencySymbol(c) != null; }
+
+            public int match(CharSequence text, int start) {
+                if (currencySymbol(text.charAt(start)) != null) {
+                    return number(text, skipSpace(text, start + 1));
+                }
+                int end = number(text, start);
+                if (end < 0) return -1;
+                int word = skipSpace(text, end);
+                int wordEnd = letterRun(text, word);
+                return currencyWord(text, word, wordEnd) != null ? wordEnd : -1;
+            }
+
+            public String normalize(CharSequence text, int start, int end) {
+                String code = currencySymbol(text.charAt(start));
+                if (code != null) {
+                    return withoutGrouping(text, skipSpace(text, start + 1), end) + " " + code;
+                }
+                int numberEnd = number(text, start);
+                int word = skipSpace(text, numberEnd);
+                return withoutGrouping(text, start, numberEnd) + " " + currencyWord(text, word, end);
+            }
+        };
+    }
+
+    // #A12345 or ORD-12345 / ord12345: 4-20 letters and digits with at least one digit.
+    // Normalized to upper case, "#" dropped and the ORD- prefix kept.
+    public static EntityRecognizer orderId() {
+        return new EntityRecognizer() {
+            public String type() { return ORDER_ID; }
+            public boolean canStart(char c) { return c == '#' || c == 'O' || c == 'o'; }
+
+            public int match(CharSequence text, int start) {
+                int body = bodyStart(text, start);
+                if (body < 0) return -1;
+                int end = body;
+                boolean digit = false;
+                while (end < text.length() && end - body < MAX_ORDER_ID && isLetterOrDigit(text.charAt(end))) {
+                    digit |= isDigit(text.charAt(end));
+                    end++;
+                }
+                return end - body >= 4 && digit ? end : -1;
+            }
+
+            public String normalize(CharSequence text, int start, int end) {
+                String body = text.subSequence(bodyStart(text, start), end).toString().toUpperCase(Locale.ROOT);
+                return text.charAt(start) == '#' ? body : "ORD-" + body;
+            }
+
+            private int bodyStart(CharSequence text, int start) {
+                if (text.charAt(start) == '#') return start + 1;
+                int i = start + 3;
+                if (i >= text.length() || !"ord".contentEquals(lowerAscii(text, start, i))) return -1;
+                if (text.charAt(i) == '-') return i + 1;
+                return isDigit(text.charAt(i)) ? i : -1;
+            }
+        };
+    }
+
+    // 42, 1,234, 3.14; normalized without thousands separators
+    public static EntityRecognizer number() {
+        return new EntityRecognizer() {
+            public String type() { return NUMBER; }
+            public boolean canStart(char c) { return isDigit(c); }
+            public int match(CharSequence text, int start) { return EntityRecognizers.number(text, start); }
+            public String normalize(CharSequence text, int start, int end) { return withoutGrouping(text, start, end); }
+        };
+    }
+
+    // Digits with optional ",ddd" groups and decimals; -1 if there is no digit at start
+    static int number(CharSequence text, int start) {
+        int limit = Math.min(text.length(), start + MAX_NUMBER);
+        int i = start;
+        while (i < limit && isDigit(text.charAt(i))) i++;
+        if (i == start) return -1;
+        if (i - start <= 3) {
+            while (i < limit && text.charAt(i) == ',' && digitsAt(text, i + 1, 3)) i += 4;
+        }
+        if (i + 1 < limit && text.charAt(i) == '.' && isDigit(text.charAt(i + 1))) {
+            i++;
+            while (i < limit && isDigit(text.charAt(i))) i++;
+        }
+        return i;
+    }
+
+    // (end << 32) | yyyymmdd for a valid date at start, or -1
+    private static long parseDate(CharSequence text, int start) {
+        int length = text.length();
+        int year, month, day, end;
+        if (digitsAt(text, start, 4)) {
+            int i = start + 4;
+            if (i >= length || (text.charAt(i) != '-' && text.charAt(i) != '/')) return -1;
+            char separator = text.charAt(i);
+            int monthEnd = shortNumber(text, i + 1);
+            if (monthEnd < 0 || monthEnd >= length || text.charAt(monthEnd) != separator) return -1;
+            end = shortNumber(text, monthEnd + 1);
+            if (end < 0) return -1;
+            year = value(text, start, i);
+            month = value(text, i + 1, monthEnd);
+            day = value(text, monthEnd + 1, end);
+        } else {
+            int monthEnd = shortNumber(text, start);
+            if (monthEnd < 0 || monthEnd >= length || text.charAt(monthEnd) != '/') return -1;
+            int dayEnd = shortNumber(text, monthEnd + 1);
+            if (dayEnd < 0 || dayEnd >= length || text.charAt(dayEnd) != '/' || !digitsAt(text, dayEnd + 1, 4)) return -1;
+            end = dayEnd + 5;
+            month = value(text, start, monthEnd);
+            day = value(text, monthEnd + 1, dayEnd);
+            year = value(text, dayEnd + 1, end);
+        }
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > YearMonth.of(year, month).lengthOfMonth()) {
+            return -1;
+        }
+        return ((long) end << 32) | (year * 10000 + month * 100 + day);
+    }
+
+    // End of a 1-2 digit number at i, or -1
+    private static int shortNumber(CharSequence text, int i) {
+        if (digitsAt(text, i, 1)) return i + 1;
+        return digitsAt(text, i, 2) ? i + 2 : -1;
+    }
+
+    // Exactly count digits at i, not followed by another digit
+    static boolean digitsAt(CharSequence text, int i, int count) {
+        if (i + count > text.length()) return false;
+        for (int j = i; j < i + count; j++) {
+            if (!isDigit(text.charAt(j))) return false;
+        }
+        return i + count == text.length() || !isDigit(text.charAt(i + count));
+    }
+
+    private static int value(CharSequence text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) value = value * 10 + (text.charAt(i) - '0');
+        return value;
+    }
+
+    private static String withoutGrouping(CharSequence text, int start, int end) {
+        StringBuilder number = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) != ',') number.append(text.charAt(i));
+        }
+        return number.toString();
+    }
+
+    private static String currencySymbol(char c) {
+        return switch (c) {
+            case '$' -> "USD";
+            case '€' -> "EUR";
+            case '£' -> "GBP";
+            default -> null;
+        };
+    }
+
+    private static String currencyWord(CharSequence text, int start, int end) {
+        if (end - start < 3 || end - start > 7) return null;
+        return CURRENCY_WORDS.get(lowerAscii(text, start, end));
+    }
+
+    private static int skipSpace(CharSequence text, int i) {
+        return i < text.length() && text.charAt(i) == ' ' ? i + 1 : i;
+    }
+
+    private static int letterRun(CharSequence text, int i) {
+        int limit = Math.min(text.length(), i + 8);
+        while (i < limit && isLetter(text.charAt(i))) i++;
+        return i;
+    }
+
+    private static String lowerAscii(CharSequence text, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            chars[i - start] = c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+        }
+        return new String(chars);
+    }
+
+    private static boolean isLocalChar(char c) {
+        return isLetterOrDigit(c) || c == '.' || c == '_' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean isPhoneSeparator(char c) {
+        return c == '-' || c == '.' || c == ' ';
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isLetterOrDigit(char c) {
+        return isLetter(c) || isDigit(c);
+    }
+}
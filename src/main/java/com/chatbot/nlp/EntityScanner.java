@@ -0,0 +1,101 @@
+package com.chatbot.nlp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Single left-to-right pass that finds typed entities in raw text. At each word boundary only the
+// recognizers that can start with the current char are tried; the longest match wins (earlier
+// recognizer on ties) and scanning resumes after it, so spans never overlap.
+public final class EntityScanner {
+
+    // Offsets are into the scanned text, end exclusive
+    public record Entity(String type, int start, int end, String value) {}
+
+    private static final EntityScanner DEFAULTS = builder().addDefaults().build();
+
+    private final EntityRecognizer[] recognizers;
+    // Candidates per ASCII char, in priority order; other chars ask every recognizer
+    private final EntityRecognizer[][] byChar = new EntityRecognizer[128][];
+
+    private EntityScanner(List<EntityRecognizer> recognizers) {
+        this.recognizers = recognizers.toArray(new EntityRecognizer[0]);
+        for (char c = 0; c < 128; c++) {
+            List<EntityRecognizer> candidates = new ArrayList<>();
+            for (EntityRecognizer recognizer : this.recognizers) {
+                if (recognizer.canStart(c)) candidates.add(recognizer);
+            }
+            byChar[c] = candidates.toArray(new EntityRecognizer[0]);
+        }
+    }
+
+    // Email, date, phone, amount, order id and number, in that priority
+    public static EntityScanner defaults() {
+        return DEFAULTS;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public List<Entity> scan(CharSequence text) {
+        List<Entity> entities = null;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            // Entities start at a word boundary
+            if (i > 0 && Character.isLetterOrDigit(c) && Character.isLetterOrDigit(text.charAt(i - 1))) {
+                i++;
+                continue;
+            }
+
+            EntityRecognizer best = null;
+            int bestEnd = -1;
+            for (EntityRecognizer recognizer : c < 128 ? byChar[c] : recognizers) {
+                if (c >= 128 && !recognizer.canStart(c)) continue;
+                int end = recognizer.match(text, i);
+                // ... and end at one
+                if (end > bestEnd && (end == length || !Character.isLetterOrDigit(text.charAt(end)))) {
+                    best = recognizer;
+                    bestEnd = end;
+                }
+            }
+
+            if (best == null) {
+                i++;
+                continue;
+            }
+            if (entities == null) entities = new ArrayList<>(4);
+            entities.add(new Entity(best.type(), i, bestEnd, best.normalize(text, i, bestEnd)));
+            i = bestEnd;
+        }
+        return entities != null ? entities : List.of();
+    }
+
+    public static final class Builder {
+
+        private final List<EntityRecognizer> recognizers = new ArrayList<>();
+
+        private Builder() {}
+
+        public Builder addDefaults() {
+            recognizers.add(EntityRecognizers.email());
+            recognizers.add(EntityRecognizers.date());
+            recognizers.add(EntityRecognizers.phone());
+            recognizers.add(EntityRecognizers.amount());
+            recognizers.add(EntityRecognizers.orderId());
+            recognizers.add(EntityRecognizers.number());
+            return this;
+        }
+
+        // Later recognizers lose ties against earlier ones
+        public Builder add(EntityRecognizer recognizer) {
+            recognizers.add(recognizer);
+            return this;
+        }
+
+        public EntityScanner build() {
+            return new EntityScanner(recognizers);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.chatbot.nlp;
+
+import java.nio.IntBuffer;
+import java.util.*;
+
+// Aho-Corasick automaton compiled once from a keyword table. One pass over the text
+// finds every whole-word keyword; when several labels match, the one declared first wins.
+public final class KeywordAutomaton {
+
+    private static final int ROOT = 0;
+    static final int WORD_START = 1;
+    static final int WORD_END = 2;
+
+    // Character classes: 0 is "not in any keyword", which always falls back to root
+    final int[] charClass;
+    final Map<Character, Integer> extraClasses;
+    final int alphabetSize;
+
+    // Tables are buffers so a compiled model snapshot can be used straight from a mapped file.
+    // Full DFA transition table: next state = delta[state * alphabetSize + class]
+    final IntBuffer delta;
+    // Keyword ending exactly at this state (-1 if none) and nearest suffix state with a keyword
+    final IntBuffer stateKeyword;
+    final IntBuffer dictLink;
+
+    final IntBuffer keywordLength;
+    final IntBuffer keywordLabel;
+    // WORD_START / WORD_END: whether the keyword's first / last char needs a word boundary
+    final IntBuffer keywordFlags;
+    final String[] labels;
+
+    KeywordAutomaton(int[] charClass, Map<Character, Integer> extraClasses, int alphabetSize,
+                     IntBuffer delta, IntBuffer stateKeyword, IntBuffer dictLink,
+                     IntBuffer keywordLength, IntBuffer keywordLabel, IntBuffer keywordFlags, String[] labels) {
+        this.charClass = charClass;
+        this.extraClasses = extraClasses;
+        this.alphabetSize = alphabetSize;
+        this.delta = delta;
+        this.stateKeyword = stateKeyword;
+        this.dictLink = dictLink;
+        this.keywordLength = keywordLength;
+        this.keywordLabel = keywordLabel;
+        this.keywordFlags = keywordFlags;
+        this.labels = labels;
+    }
+
+    private KeywordAutomaton(Builder builder) {
+        this.labels = builder.labels.toArray(new String[0]);
+
+        // Build the alphabet from the characters actually used by keywords
+        this.charClass = new int[128];
+        this.extraClasses = new HashMap<>();
+        int classes = 1;
+        for (String keyword : builder.keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (c < 128) {
+                    if (charClass[c] == 0) charClass[c] = classes++;
+                } else if (!extraClasses.containsKey(c)) {
+                    extraClasses.put(c, classes++);
+                }
+            }
+        }
+        this.alphabetSize = classes;
+
+        int keywordCount = builder.keywords.size();
+        int[] keywordLength = new int[keywordCount];
+        int[] keywordLabel = new int[keywordCount];
+        int[] keywordFlags = new int[keywordCount];
+
+        // Trie construction
+        int capacity = 1;
+        for (String keyword : builder.keywords) capacity += keyword.length();
+        int[] trie = new int[capacity * alphabetSize];
+        int[] ownKeyword = new int[capacity];
+        Arrays.fill(ownKeyword, -1);
+        int states = 1;
+
+        for (int k = 0; k < keywordCount; k++) {
+            String keyword = builder.keywords.get(k);
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                int slot = state * alphabetSize + classOf(keyword.charAt(i));
+                if (trie[slot] == 0) trie[slot] = states++;
+                state = trie[slot];
+            }
+            keywordLength[k] = keyword.length();
+            keywordLabel[k] = builder.keywordLabels.get(k);
+            keywordFlags[k] = (isWordChar(keyword.charAt(0)) ? WORD_START : 0)
+                | (isWordChar(keyword.charAt(keyword.length() - 1)) ? WORD_END : 0);
+            // Keep the highest-priority label if the same keyword was declared twice
+            if (ownKeyword[state] < 0 || keywordLabel[k] < keywordLabel[ownKeyword[state]]) {
+                ownKeyword[state] = k;
+            }
+        }
+
+        // Breadth-first pass turns the trie into a complete DFA with suffix links
+        int[] delta = new int[states * alphabetSize];
+        int[] stateKeyword = Arrays.copyOf(ownKeyword, states);
+        int[] dictLink = new int[states];
+        int[] fail = new int[states];
+        Arrays.fill(dictLink, -1);
+
+        int[] queue = new int[states];
+        int head = 0, tail = 0;
+        for (int c = 0; c < alphabetSize; c++) {
+            int child = trie[c];
+            delta[c] = child;
+            if (child != 0) queue[tail++] = child;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            int f = fail[state];
+            dictLink[state] = stateKeyword[f] >= 0 ? f : dictLink[f];
+            for (int c = 0; c < alphabetSize; c++) {
+                int child = trie[state * alphabetSize + c];
+                if (child != 0) {
+                    fail[child] = delta[f * alphabetSize + c];
+                    delta[state * alphabetSize + c] = child;
+                    queue[tail++] = child;
+                } else {
+                    delta[state * alphabetSize + c] = delta[f * alphabetSize + c];
+                }
+            }
+        }
+
+        this.delta = IntBuffer.wrap(delta);
+        this.stateKeyword = IntBuffer.wrap(stateKeyword);
+        this.dictLink = IntBuffer.wrap(dictLink);
+        this.keywordLength = IntBuffer.wrap(keywordLength);
+        this.keywordLabel = IntBuffer.wrap(keywordLabel);
+        this.keywordFlags = IntBuffer.wrap(keywordFlags);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Highest-priority label with a whole-word match in the text, or null
+    public String match(CharSequence text) {
+        int best = bestLabel(text);
+        return best < 0 ? null : labels[best];
+    }
+
+    // Priority index of the best matching label, or -1 if nothing matched
+    public int bestLabel(CharSequence text) {
+        if (text == null) return -1;
+
+        int best = Integer.MAX_VALUE;
+        int state = ROOT;
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            state = delta.get(state * alphabetSize + classOf(text.charAt(i)));
+
+            int s = stateKeyword.get(state) >= 0 ? state : dictLink.get(state);
+            while (s > 0) {
+                int k = stateKeyword.get(s);
+                int label = keywordLabel.get(k);
+                if (label < best && isWholeWord(text, i, k)) {
+                    best = label;
+                    if (best == 0) return 0;
+                }
+                s = dictLink.get(s);
+            }
+        }
+
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    public String label(int index) {
+        return labels[index];
+    }
+
+    public int labelCount() {
+        return labels.length;
+    }
+
+    private boolean isWholeWord(CharSequence text, int end, int keyword) {
+        int flags = keywordFlags.get(keyword);
+        int start = end - keywordLength.get(keyword) + 1;
+        if ((flags & WORD_START) != 0 && start > 0 && isWordChar(text.charAt(start - 1))) {
+            return false;
+        }
+        return (flags & WORD_END) == 0 || end + 1 >= text.length() || !isWordChar(text.charAt(end + 1));
+    }
+
+    private int classOf(char c) {
+        if (c < 128) return charClass[c];
+        Integer cls = extraClasses.get(c);
+        return cls == null ? 0 : cls;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    public static final class Builder {
+        private final List<String> labels = new ArrayList<>();
+        private final List<String> keywords = new ArrayList<>();
+        private final List<Integer> keywordLabels = new ArrayList<>();
+
+        private Builder() {}
+
+        // Labels added earlier take priority over later ones
+        public Builder add(String label, String... labelKeywords) {
+            int index = labels.indexOf(label);
+            if (index < 0) {
+                index = labels.size();
+                labels.add(label);
+            }
+            for (String keyword : labelKeywords) {
+                if (keyword == null || keyword.isEmpty()) {
+                    throw new IllegalArgumentException("Empty keyword for label: " + label);
+                }
+                keywords.add(keyword.toLowerCase());
+                keywordLabels.add(index);
+            }
+            return this;
+        }
+
+        public KeywordAutomaton build() {
+            return new KeywordAutomaton(this);
+        }
+    }
+}
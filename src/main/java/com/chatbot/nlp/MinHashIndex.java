@@ -0,0 +1,305 @@
+package com.chatbot.nlp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Approximate Jaccard search over token sets with MinHash signatures and LSH banding.
+// Each phrase gets bands * rows min-hashes of its token hashes. The rows of a band are hashed into
+// one bucket key per band, so two phrases with Jaccard similarity s share at least one bucket with
+// probability 1 - (1 - s^rows)^bands: more bands raise recall, more rows cut false candidates.
+// A query hashes once and only compares the phrases in its buckets, using a one-byte-per-hash copy
+// of their signatures to estimate the similarity.
+// Immutable once built; safe for concurrent use.
+public final class MinHashIndex {
+
+    public record Match(int id, String text, float similarity) {}
+
+    private static final long[] NO_TOKENS = new long[0];
+
+    private final String[] texts;
+    private final int bands;
+    private final int rows;
+    private final int hashes;
+    private final int maxCandidates;
+    // Multiply-shift hash family: h_i(x) = (x * multipliers[i] + addends[i]) >>> 32, for odd multipliers
+    private final long[] multipliers;
+    private final long[] addends;
+
+    // Low byte of every min-hash, hashes bytes per phrase
+    private final byte[] signatures;
+    // Per band, ids grouped by the top bucketBits of their band key:
+    // bucket b owns bucketIds[band][bucketStarts[band][b] .. bucketStarts[band][b + 1])
+    private final int bucketBits;
+    private final int[][] bucketStarts;
+    private final int[][] bucketIds;
+
+    private MinHashIndex(Builder builder) {
+        this.texts = builder.texts.toArray(new String[0]);
+        this.bands = builder.bands;
+        this.rows = builder.rows;
+        this.hashes = bands * rows;
+        this.maxCandidates = builder.maxCandidates;
+        this.multipliers = builder.multipliers;
+        this.addends = builder.addends;
+        this.signatures = Arrays.copyOf(builder.signatures, texts.length * hashes);
+
+        // About four phrases per bucket; keys that share a bucket are told apart by the signature check
+        int size = texts.length;
+        this.bucketBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(1, size / 4)));
+        int buckets = 1 << bucketBits;
+        this.bucketStarts = new int[bands][];
+        this.bucketIds = new int[bands][];
+        for (int band = 0; band < bands; band++) {
+            int[] starts = new int[buckets + 1];
+            for (int id = 0; id < size; id++) {
+                starts[bucket(builder.bandKeys[id * bands + band]) + 1]++;
+            }
+            for (int b = 0; b < buckets; b++) starts[b + 1] += starts[b];
+            int[] ids = new int[size];
+            int[] next = Arrays.copyOf(starts, buckets);
+            for (int id = 0; id < size; id++) {
+                ids[next[bucket(builder.bandKeys[id * bands + band])]++] = id;
+            }
+            bucketStarts[band] = starts;
+            bucketIds[band] = ids;
+        }
+    }
+
+    public static Builder builder(int bands, int rows) {
+        return new Builder(bands, rows);
+    }
+
+    // Up to limit phrases with an estimated similarity of at least minSimilarity, best first
+    public List<Match> query(String text, int limit, float minSimilarity) {
+        return query(text, limit, minSimilarity, 0);
+    }
+
+    // Same, but stops visiting bands once System.nanoTime() passes the deadline (0 for none)
+    public List<Match> query(String text, int limit, float minSimilarity, long deadlineNanos) {
+        if (limit <= 0 || texts.length == 0) return List.of();
+        long[] tokens = tokenHashes(text);
+        if (tokens.length == 0) return List.of();
+
+        int[] minHashes = minHashes(tokens, multipliers, addends);
+        int[] keys = bandKeys(minHashes, bands, rows);
+        byte[] signature = new byte[hashes];
+        for (int i = 0; i < hashes; i++) signature[i] = (byte) minHashes[i];
+
+        // Matching bytes needed to reach minSimilarity, so weaker candidates stop being counted early
+        int threshold = (int) Math.ceil(hashes * (minSimilarity + (1 - minSimilarity) / 256.0) - 1e-6);
+        IdSet seen = new IdSet(maxCandidates);
+        int[] bestIds = new int[limit];
+        int[] bestMatches = new int[limit];
+        int found = 0;
+        int checked = 0;
+
+        search:
+        for (int band = 0; band < bands; band++) {
+            if (deadlineNanos != 0 && band > 0 && System.nanoTime() - deadlineNanos > 0) break;
+            int b = bucket(keys[band]);
+            int[] ids = bucketIds[band];
+            for (int g = bucketStarts[band][b], end = bucketStarts[band][b + 1]; g < end; g++) {
+                int id = ids[g];
+                if (!seen.add(id)) continue;
+                if (++checked > maxCandidates) break search;
+
+                int matches = matchingBytes(signature, id, found == limit ? bestMatches[limit - 1] : threshold);
+                if (matches < threshold || (found == limit && matches <= bestMatches[limit - 1])) continue;
+                // Insertion into the sorted top list; equal counts keep the lower id first
+                int i = found < limit ? found++ : limit - 1;
+                while (i > 0 && (bestMatches[i - 1] < matches
+                        || (bestMatches[i - 1] == matches && bestIds[i - 1] > id))) {
+                    bestIds[i] = bestIds[i - 1];
+                    bestMatches[i] = bestMatches[i - 1];
+                    i--;
+                }
+                bestIds[i] = id;
+                bestMatches[i] = matches;
+            }
+        }
+
+        List<Match> results = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            results.add(new Match(bestIds[i], texts[bestIds[i]], estimate(bestMatches[i])));
+        }
+        return results;
+    }
+
+    public String text(int id) {
+        return texts[id];
+    }
+
+    public int size() {
+        return texts.length;
+    }
+
+    public int bands() {
+        return bands;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    // Rough similarity at which a pair is found half the time: (1 / bands)^(1 / rows)
+    public double threshold() {
+        return Math.pow(1.0 / bands, 1.0 / rows);
+    }
+
+    public long estimatedBytes() {
+        long bytes = signatures.length;
+        for (int band = 0; band < bands; band++) {
+            bytes += 4L * bucketStarts[band].length + 4L * bucketIds[band].length;
+        }
+        return bytes;
+    }
+
+    // Byte matches of two b-bit min-hashes happen by chance 1 in 256 times, so that share is taken out
+    private float estimate(int matches) {
+        double raw = (double) matches / hashes;
+        return (float) Math.max(0, (raw - 1 / 256.0) / (1 - 1 / 256.0));
+    }
+
+    // Stops counting once the candidate can no longer reach target matches
+    private int matchingBytes(byte[] signature, int id, int target) {
+        int offset = id * hashes;
+        int matches = 0;
+        for (int i = 0; i < hashes; i++) {
+            if (signatures[offset + i] == signature[i]) matches++;
+            else if (matches + hashes - i - 1 < target) return matches;
+        }
+        return matches;
+    }
+
+    private int bucket(int key) {
+        return key >>> (32 - bucketBits);
+    }
+
+    private static int[] minHashes(long[] tokens, long[] multipliers, long[] addends) {
+        int hashes = multipliers.length;
+        int[] minHashes = new int[hashes];
+        Arrays.fill(minHashes, -1);
+        for (long token : tokens) {
+            long x = mix(token);
+            for (int i = 0; i < hashes; i++) {
+                int h = (int) ((x * multipliers[i] + addends[i]) >>> 32);
+                if (Integer.compareUnsigned(h, minHashes[i]) < 0) minHashes[i] = h;
+            }
+        }
+        return minHashes;
+    }
+
+    private static int[] bandKeys(int[] minHashes, int bands, int rows) {
+        int[] keys = new int[bands];
+        for (int band = 0; band < bands; band++) {
+            long h = band;
+            for (int r = band * rows; r < (band + 1) * rows; r++) {
+                h = (h ^ (minHashes[r] & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+            }
+            keys[band] = (int) (mix(h) >>> 32);
+        }
+        return keys;
+    }
+
+    private static long[] tokenHashes(String text) {
+        if (text == null || text.isEmpty()) return NO_TOKENS;
+        Tokens tokens = Tokenizer.ALPHANUMERIC.tokenize(text);
+        long[] set = new long[tokens.count()];
+        return Arrays.copyOf(set, tokens.sortedUniqueHashes(set));
+    }
+
+    // murmur3 finalizer
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // Open-addressing set of candidate ids for one query
+    private static final class IdSet {
+        private final int[] slots;
+
+        IdSet(int expected) {
+            slots = new int[Integer.highestOneBit(Math.max(16, expected) * 2 - 1) * 2];
+        }
+
+        // False if already present, or if the set is full
+        boolean add(int id) {
+            int mask = slots.length - 1;
+            int slot = (id * 0x9E3779B9) >>> 7 & mask;
+            for (int probes = 0; probes < slots.length; probes++) {
+                int stored = slots[slot];
+                if (stored == id + 1) return false;
+                if (stored == 0) {
+                    slots[slot] = id + 1;
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+    }
+
+    public static final class Builder {
+        private final int bands;
+        private final int rows;
+        private final long[] multipliers;
+        private final long[] addends;
+        private final List<String> texts = new ArrayList<>();
+        private byte[] signatures = new byte[0];
+        private int[] bandKeys = new int[0];
+        private int maxCandidates = 1000;
+
+        private Builder(int bands, int rows) {
+            if (bands < 1 || rows < 1 || bands * rows > 1024) {
+                throw new IllegalArgumentException("Invalid bands x rows: " + bands + " x " + rows);
+            }
+            this.bands = bands;
+            this.rows = rows;
+            // Fixed seed, so signatures of the same text match across builds
+            SplittableRandom random = new SplittableRandom(0x5EEDL);
+            this.multipliers = new long[bands * rows];
+            this.addends = new long[bands * rows];
+            for (int i = 0; i < multipliers.length; i++) {
+                multipliers[i] = random.nextLong() | 1;
+                addends[i] = random.nextLong();
+            }
+        }
+
+        // Candidates compared per query; buckets of very common phrases are cut off here
+        public Builder maxCandidates(int maxCandidates) {
+            this.maxCandidates = Math.max(1, maxCandidates);
+            return this;
+        }
+
+        // Id of the added text, or -1 when it has no tokens
+        public int add(String text) {
+            long[] tokens = tokenHashes(text);
+            if (tokens.length == 0) return -1;
+            int id = texts.size();
+            int hashes = bands * rows;
+            long needed = (id + 1L) * hashes;
+            if (needed > Integer.MAX_VALUE - 8) throw new IllegalStateException("Too many phrases: " + id);
+            if (needed > signatures.length) {
+                int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, signatures.length * 2L));
+                capacity -= capacity % hashes;
+                signatures = Arrays.copyOf(signatures, capacity);
+                bandKeys = Arrays.copyOf(bandKeys, capacity / hashes * bands);
+            }
+            int[] minHashes = minHashes(tokens, multipliers, addends);
+            for (int i = 0; i < hashes; i++) signatures[id * hashes + i] = (byte) minHashes[i];
+            System.arraycopy(bandKeys(minHashes, bands, rows), 0, bandKeys, id * bands, bands);
+            texts.add(text);
+            return id;
+        }
+
+        public MinHashIndex build() {
+            return new MinHashIndex(this);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.chatbot.nlp;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Compiled model: term dictionary, pattern index, intent responses and keyword automaton in one
+// versioned binary file. Sections are mapped read-only and used in place, so loading does no
+// parsing or index building and the model's tables live in the page cache instead of the heap.
+//
+// Layout (big-endian, every array 8-byte aligned):
+//   header   magic, version, section count, then (id, offset, length) per section
+//   section  sequence of arrays, each a long element count followed by the elements
+public final class ModelSnapshot {
+
+    public static final int MAGIC = 0x43424D53; // "CBMS"
+    public static final int VERSION = 1;
+
+    private static final int STRINGS = 1;
+    private static final int DICTIONARY = 2;
+    private static final int PATTERNS = 3;
+    private static final int POSTINGS = 4;
+    private static final int INTENTS = 5;
+    private static final int AUTOMATON = 6;
+    private static final int[] SECTIONS = {STRINGS, DICTIONARY, PATTERNS, POSTINGS, INTENTS, AUTOMATON};
+
+    private static final int HEADER_SIZE = 16 + SECTIONS.length * 24;
+
+    private final TermDictionary dictionary;
+    private final PatternIndex patternIndex;
+    private final Map<String, List<String>> intentResponses;
+    private final KeywordAutomaton intentAutomaton;
+
+    public ModelSnapshot(TermDictionary dictionary, PatternIndex patternIndex,
+                         Map<String, List<String>> intentResponses, KeywordAutomaton intentAutomaton) {
+        this.dictionary = dictionary;
+        this.patternIndex = patternIndex;
+        this.intentResponses = intentResponses;
+        this.intentAutomaton = intentAutomaton;
+    }
+
+    public TermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public PatternIndex getPatternIndex() {
+        return patternIndex;
+    }
+
+    public Map<String, List<String>> getIntentResponses() {
+        return intentResponses;
+    }
+
+    public KeywordAutomaton getIntentAutomaton() {
+        return intentAutomaton;
+    }
+
+    // Writes to a temporary file next to the target and renames it, so readers never see a partial file
+    public void write(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path tmp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeTo(channel);
+                channel.force(true);
+            }
+            Files.move(tmp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void writeTo(FileChannel channel) throws IOException {
+        // Every string lives in one table; terms come first so the dictionary can reuse its offsets
+        List<String> strings = new ArrayList<>();
+        int terms = dictionary.size();
+        for (int id = 0; id < terms; id++) strings.add(dictionary.term(id));
+
+        // Patterns added since the index was built are folded in first
+        PatternIndex index = patternIndex.compact();
+        PatternIndex.PatternStore store = index.store;
+        int patterns = store.size();
+        int patternBase = strings.size();
+        for (int doc = 0; doc < patterns; doc++) strings.add(store.pattern(doc));
+        int[] responseStarts = new int[patterns + 1];
+        for (int doc = 0; doc < patterns; doc++) {
+            responseStarts[doc] = strings.size();
+            strings.addAll(store.responses(doc));
+        }
+        responseStarts[patterns] = strings.size();
+
+        List<String> intents = new ArrayList<>(intentResponses.keySet());
+        Collections.sort(intents);
+        int[] intentNames = new int[intents.size()];
+        int[] intentStarts = new int[intents.size() + 1];
+        for (int i = 0; i < intents.size(); i++) {
+            intentNames[i] = strings.size();
+            strings.add(intents.get(i));
+        }
+        for (int i = 0; i < intents.size(); i++) {
+            intentStarts[i] = strings.size();
+            strings.addAll(intentResponses.get(intents.get(i)));
+        }
+        intentStarts[intents.size()] = strings.size();
+
+        int[] labelIds = new int[intentAutomaton.labels.length];
+        for (int i = 0; i < labelIds.length; i++) {
+            labelIds[i] = strings.size();
+            strings.add(intentAutomaton.labels[i]);
+        }
+
+        long[] offsets = new long[SECTIONS.length];
+        long[] lengths = new long[SECTIONS.length];
+        channel.position(HEADER_SIZE);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+
+        for (int s = 0; s < SECTIONS.length; s++) {
+            out.flush();
+            offsets[s] = channel.position();
+            SectionWriter section = new SectionWriter(out);
+            switch (SECTIONS[s]) {
+                case STRINGS -> writeStrings(section, strings);
+                case DICTIONARY -> writeDictionary(section, terms);
+                case PATTERNS -> {
+                    section.ints(new int[] {patternBase});
+                    section.doubles(index.norms);
+                    section.ints(responseStarts);
+                }
+                case POSTINGS -> {
+                    section.ints(index.termStarts);
+                    section.ints(index.postingDocs);
+                    section.ints(index.postingCounts);
+                }
+                case INTENTS -> {
+                    section.ints(intentNames);
+                    section.ints(intentStarts);
+                }
+                case AUTOMATON -> writeAutomaton(section, labelIds);
+                default -> throw new IllegalStateException("Unknown section " + SECTIONS[s]);
+            }
+            out.flush();
+            lengths[s] = channel.position() - offsets[s];
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(SECTIONS.length).putInt(0);
+        for (int s = 0; s < SECTIONS.length; s++) {
+            header.putInt(SECTIONS[s]).putInt(0).putLong(offsets[s]).putLong(lengths[s]);
+        }
+        header.flip();
+        channel.write(header, 0);
+    }
+
+    private static void writeStrings(SectionWriter section, List<String> strings) throws IOException {
+        int[] starts = new int[strings.size() + 1];
+        long total = 0;
+        for (int i = 0; i < strings.size(); i++) {
+            starts[i] = (int) total;
+            total += strings.get(i).length();
+            if (total > Integer.MAX_VALUE / 2) throw new IOException("String pool exceeds 1G chars");
+        }
+        starts[strings.size()] = (int) total;
+        section.ints(starts);
+        section.chars(strings, total);
+    }
+
+    private void writeDictionary(SectionWriter section, int terms) throws IOException {
+        // Same open-addressing scheme as the heap table, at most half full
+        int capacity = Integer.highestOneBit(Math.max(terms, 8) * 4 - 1);
+        int mask = capacity - 1;
+        long[] slotHashes = new long[capacity];
+        int[] slotIds = new int[capacity];
+        for (int id = 0; id < terms; id++) {
+            long h = Tokens.hash(dictionary.term(id));
+            int slot = TermDictionary.spread(h) & mask;
+            while (slotIds[slot] != 0) slot = (slot + 1) & mask;
+            slotHashes[slot] = h;
+            slotIds[slot] = id + 1;
+        }
+        section.ints(new int[] {terms});
+        section.longs(slotHashes);
+        section.ints(slotIds);
+    }
+
+    private void writeAutomaton(SectionWriter section, int[] labelIds) throws IOException {
+        KeywordAutomaton automaton = intentAutomaton;
+        int[] extraChars = new int[automaton.extraClasses.size()];
+        int[] extraIds = new int[extraChars.length];
+        int i = 0;
+        for (Map.Entry<Character, Integer> entry : automaton.extraClasses.entrySet()) {
+            extraChars[i] = entry.getKey();
+            extraIds[i++] = entry.getValue();
+        }
+        section.ints(new int[] {automaton.alphabetSize});
+        section.ints(automaton.charClass);
+        section.ints(extraChars);
+        section.ints(extraIds);
+        section.ints(automaton.delta);
+        section.ints(automaton.stateKeyword);
+        section.ints(automaton.dictLink);
+        section.ints(automaton.keywordLength);
+        section.ints(automaton.keywordLabel);
+        section.ints(automaton.keywordFlags);
+        section.ints(labelIds);
+    }
+
+    // Cheap check of the magic number, e.g. to tell snapshots from corpus files
+    public static boolean isSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            return channel.read(magic, 0) == 4 && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    // Maps a compiled snapshot; the returned model reads straight from the mapping
+    public static ModelSnapshot map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) throw new IOException("Not a model snapshot: " + file);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+
+            if (header.getInt() != MAGIC) throw new IOException("Not a model snapshot: " + file);
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported model snapshot version " + version + " in " + file);
+            }
+            int count = header.getInt();
+            header.getInt();
+
+            // Each section gets its own mapping, so only a single section is limited to 2GB
+            Map<Integer, SectionReader> sections = new HashMap<>();
+            for (int s = 0; s < count; s++) {
+                int id = header.getInt();
+                header.getInt();
+                long offset = header.getLong();
+                long length = header.getLong();
+                if (offset + length > channel.size()) throw new IOException("Truncated model snapshot: " + file);
+                sections.put(id, new SectionReader(channel.map(FileChannel.MapMode.READ_ONLY, offset, length)));
+            }
+            for (int id : SECTIONS) {
+                if (!sections.containsKey(id)) throw new IOException("Model snapshot is missing section " + id);
+            }
+            return read(sections);
+        }
+    }
+
+    private static ModelSnapshot read(Map<Integer, SectionReader> sections) {
+        SectionReader strings = sections.get(STRINGS);
+        StringTable table = new StringTable(strings.ints(), strings.chars());
+
+        SectionReader dictionarySection = sections.get(DICTIONARY);
+        int terms = dictionarySection.ints().get(0);
+        LongBuffer slotHashes = dictionarySection.longs();
+        IntBuffer slotIds = dictionarySection.ints();
+
+        SectionReader patterns = sections.get(PATTERNS);
+        int patternBase = patterns.ints().get(0);
+        DoubleBuffer norms = patterns.doubles();
+        IntBuffer responseStarts = patterns.ints();
+
+        SectionReader postings = sections.get(POSTINGS);
+        IntBuffer termStarts = postings.ints();
+        IntBuffer postingDocs = postings.ints();
+        IntBuffer postingCounts = postings.ints();
+
+        // Terms are the first entries of the string table, see writeTo
+        TermDictionary dictionary = new TermDictionary(new TermDictionary.Base(
+            slotHashes, slotIds, table.starts.slice(0, terms + 1), table.pool));
+
+        int patternCount = norms.limit();
+        PatternIndex.PatternStore store = new PatternIndex.PatternStore() {
+            public int size() { return patternCount; }
+            public String pattern(int doc) { return table.get(patternBase + doc); }
+            public int compare(int doc, String pattern) { return table.compare(patternBase + doc, pattern); }
+            public List<String> responses(int doc) {
+                return table.range(responseStarts.get(doc), responseStarts.get(doc + 1));
+            }
+        };
+        PatternIndex index = new PatternIndex(store, norms, termStarts, postingDocs, postingCounts);
+
+        // Intent and label tables are tiny, so they are decoded once
+        SectionReader intents = sections.get(INTENTS);
+        IntBuffer intentNames = intents.ints();
+        IntBuffer intentStarts = intents.ints();
+        Map<String, List<String>> intentResponses = new HashMap<>();
+        for (int i = 0; i < intentNames.limit(); i++) {
+            intentResponses.put(table.get(intentNames.get(i)),
+                                table.range(intentStarts.get(i), intentStarts.get(i + 1)));
+        }
+
+        SectionReader automaton = sections.get(AUTOMATON);
+        int alphabetSize = automaton.ints().get(0);
+        int[] charClass = toArray(automaton.ints());
+        IntBuffer extraChars = automaton.ints();
+        IntBuffer extraIds = automaton.ints();
+        Map<Character, Integer> extraClasses = new HashMap<>();
+        for (int i = 0; i < extraChars.limit(); i++) {
+            extraClasses.put((char) extraChars.get(i), extraIds.get(i));
+        }
+        IntBuffer delta = automaton.ints();
+        IntBuffer stateKeyword = automaton.ints();
+        IntBuffer dictLink = automaton.ints();
+        IntBuffer keywordLength = automaton.ints();
+        IntBuffer keywordLabel = automaton.ints();
+        IntBuffer keywordFlags = automaton.ints();
+        IntBuffer labelIds = automaton.ints();
+        String[] labels = new String[labelIds.limit()];
+        for (int i = 0; i < labels.length; i++) labels[i] = table.get(labelIds.get(i));
+
+        KeywordAutomaton intentAutomaton = new KeywordAutomaton(charClass, extraClasses, alphabetSize,
+            delta, stateKeyword, dictLink, keywordLength, keywordLabel, keywordFlags, labels);
+
+        return new ModelSnapshot(dictionary, index, Collections.unmodifiableMap(intentResponses), intentAutomaton);
+    }
+
+    private static int[] toArray(IntBuffer buffer) {
+        int[] values = new int[buffer.limit()];
+        buffer.get(0, values);
+        return values;
+    }
+
+    private static final class StringTable {
+        final IntBuffer starts;
+        final CharBuffer pool;
+
+        StringTable(IntBuffer starts, CharBuffer pool) {
+            this.starts = starts;
+            this.pool = pool;
+        }
+
+        String get(int id) {
+            return pool.subSequence(starts.get(id), starts.get(id + 1)).toString();
+        }
+
+        // Same order as String.compareTo, read straight from the pool
+        int compare(int id, String value) {
+            int start = starts.get(id);
+            int length = starts.get(id + 1) - start;
+            int common = Math.min(length, value.length());
+            for (int i = 0; i < common; i++) {
+                char c = pool.get(start + i);
+                char other = value.charAt(i);
+                if (c != other) return c - other;
+            }
+            return length - value.length();
+        }
+
+        List<String> range(int from, int to) {
+            String[] values = new String[to - from];
+            for (int i = 0; i < values.length; i++) values[i] = get(from + i);
+            return Arrays.asList(values);
+        }
+    }
+
+    private static final class SectionWriter {
+        private final DataOutputStream out;
+        private long written;
+
+        SectionWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void ints(int[] values) throws IOException {
+            ints(IntBuffer.wrap(values));
+        }
+
+        void ints(IntBuffer values) throws IOException {
+            int n = values.limit();
+            count(n);
+            for (int i = 0; i < n; i++) out.writeInt(values.get(i));
+            pad(4L * n);
+        }
+
+        void longs(long[] values) throws IOException {
+            count(values.length);
+            for (long value : values) out.writeLong(value);
+            written += 8L * values.length;
+        }
+
+        void doubles(DoubleBuffer values) throws IOException {
+            int n = values.limit();
+            count(n);
+            for (int i = 0; i < n; i++) out.writeDouble(values.get(i));
+            written += 8L * n;
+        }
+
+        void chars(List<String> strings, long total) throws IOException {
+            count(total);
+            for (String s : strings) out.writeChars(s);
+            pad(2 * total);
+        }
+
+        private void count(long n) throws IOException {
+            out.writeLong(n);
+            written += 8;
+        }
+
+        private void pad(long bytes) throws IOException {
+            written += bytes;
+            while (written % 8 != 0) {
+                out.writeByte(0);
+                written++;
+            }
+        }
+    }
+
+    private static final class SectionReader {
+        private final ByteBuffer buffer;
+
+        SectionReader(ByteBuffer buffer) {
+            this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        }
+
+        IntBuffer ints() {
+            return slice(4).asIntBuffer();
+        }
+
+        LongBuffer longs() {
+            return slice(8).asLongBuffer();
+        }
+
+        DoubleBuffer doubles() {
+            return slice(8).asDoubleBuffer();
+        }
+
+        CharBuffer chars() {
+            return slice(2).asCharBuffer();
+        }
+
+        private ByteBuffer slice(int elementSize) {
+            long count = buffer.getLong();
+            int bytes = Math.toIntExact(count * elementSize);
+            ByteBuffer view = buffer.slice(buffer.position(), bytes);
+            buffer.position(buffer.position() + ((bytes + 7) & ~7));
+            return view;
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package com.chatbot.nlp;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.function.Function;
+
+// Inverted index over training patterns. Term counts and vector norms are computed once,
+// so a query only scores the patterns that share at least one keyword with it.
+// Patterns added later go to a small delta that is scored directly and shadows base
+// documents with the same pattern, until compact() folds it into the postings.
+public final class PatternIndex {
+
+    public record Match(String pattern, double score, List<String> responses) {}
+
+    // Pattern text and responses by document id; heap arrays or a mapped snapshot
+    interface PatternStore {
+        int size();
+        String pattern(int doc);
+        List<String> responses(int doc);
+
+        // pattern(doc).compareTo(pattern); a mapped store compares in place without decoding
+        default int compare(int doc, String pattern) {
+            return pattern(doc).compareTo(pattern);
+        }
+    }
+
+    final PatternStore store;
+    final DoubleBuffer norms;
+    // Postings in CSR layout: term t owns entries [termStarts[t], termStarts[t + 1])
+    final IntBuffer termStarts;
+    final IntBuffer postingDocs;
+    final IntBuffer postingCounts;
+    private final int terms;
+    private final Delta delta;
+
+    PatternIndex(PatternStore store, DoubleBuffer norms,
+                 IntBuffer termStarts, IntBuffer postingDocs, IntBuffer postingCounts) {
+        this(store, norms, termStarts, postingDocs, postingCounts, Delta.EMPTY);
+    }
+
+    private PatternIndex(PatternStore store, DoubleBuffer norms,
+                         IntBuffer termStarts, IntBuffer postingDocs, IntBuffer postingCounts,
+                         Delta delta) {
+        this.store = store;
+        this.norms = norms;
+        this.termStarts = termStarts;
+        this.postingDocs = postingDocs;
+        this.postingCounts = postingCounts;
+        this.terms = termStarts.limit() - 1;
+        this.delta = delta;
+    }
+
+    // Patterns added since the base was built; copied on write, so published indexes never change
+    private static final class Delta {
+        static final Delta EMPTY = new Delta(List.of(), List.of(), List.of(), new int[0], Map.of());
+
+        final List<String> patterns;
+        final List<List<String>> responses;
+        final List<TermVector> vectors;
+        // Sorted base doc ids replaced by a delta entry
+        final int[] shadowed;
+        final Map<String, Integer> byPattern;
+
+        Delta(List<String> patterns, List<List<String>> responses, List<TermVector> vectors,
+              int[] shadowed, Map<String, Integer> byPattern) {
+            this.patterns = patterns;
+            this.responses = responses;
+            this.vectors = vectors;
+            this.shadowed = shadowed;
+            this.byPattern = byPattern;
+        }
+
+        boolean isShadowed(int doc) {
+            return shadowed.length > 0 && Arrays.binarySearch(shadowed, doc) >= 0;
+        }
+    }
+
+    // The vectorizer must intern pattern terms so every indexed term has a dictionary id
+    public static PatternIndex build(Map<String, List<String>> trainingData,
+                                     Function<String, TermVector> vectorizer) {
+        int size = trainingData.size();
+        String[] patterns = new String[size];
+        List<List<String>> responses = new ArrayList<>(size);
+        double[] norms = new double[size];
+        TermVector[] vectors = new TermVector[size];
+        int terms = 0;
+
+        // Sort patterns so document ids (and tie-breaking) are stable across runs
+        List<String> keys = new ArrayList<>(trainingData.keySet());
+        Collections.sort(keys);
+
+        for (int doc = 0; doc < size; doc++) {
+            String pattern = keys.get(doc);
+            patterns[doc] = pattern;
+            responses.add(List.copyOf(trainingData.get(pattern)));
+
+            TermVector vector = vectorizer.apply(pattern);
+            vectors[doc] = vector;
+            norms[doc] = vector.norm();
+            if (vector.size() > 0) {
+                terms = Math.max(terms, vector.id(vector.size() - 1) + 1);
+            }
+        }
+
+        // Count postings per term, prefix-sum into start offsets, then fill
+        int[] termStarts = new int[terms + 1];
+        for (TermVector vector : vectors) {
+            for (int i = 0; i < vector.size(); i++) termStarts[vector.id(i) + 1]++;
+        }
+        for (int term = 0; term < terms; term++) {
+            termStarts[term + 1] += termStarts[term];
+        }
+        int[] postingDocs = new int[termStarts[terms]];
+        int[] postingCounts = new int[termStarts[terms]];
+        int[] fill = Arrays.copyOf(termStarts, terms);
+        for (int doc = 0; doc < size; doc++) {
+            TermVector vector = vectors[doc];
+            for (int i = 0; i < vector.size(); i++) {
+                int pos = fill[vector.id(i)]++;
+                postingDocs[pos] = doc;
+                postingCounts[pos] = vector.count(i);
+            }
+        }
+
+        return new PatternIndex(heapStore(patterns, responses), DoubleBuffer.wrap(norms), IntBuffer.wrap(termStarts),
+                                IntBuffer.wrap(postingDocs), IntBuffer.wrap(postingCounts));
+    }
+
+    private static PatternStore heapStore(String[] patterns, List<List<String>> responses) {
+        return new PatternStore() {
+            public int size() { return patterns.length; }
+            public String pattern(int doc) { return patterns[doc]; }
+            public List<String> responses(int doc) { return responses.get(doc); }
+        };
+    }
+
+    // Top-k patterns by cosine similarity, best first, keeping only scores above minScore
+    public List<Match> search(TermVector query, int k, double minScore) {
+        int size = store.size();
+        if (k <= 0 || size() == 0 || query.isEmpty()) return List.of();
+
+        // Candidates are bounded by the postings of the query terms, so the accumulator is sized
+        // by them rather than by the corpus
+        int postings = 0;
+        for (int t = 0; t < query.size(); t++) {
+            int term = query.id(t);
+            if (term < terms) postings += termStarts.get(term + 1) - termStarts.get(term);
+        }
+
+        Accumulator acc = new Accumulator(Math.min(postings, size));
+        for (int t = 0; t < query.size(); t++) {
+            int term = query.id(t);
+            if (term >= terms) continue;
+
+            int queryCount = query.count(t);
+            for (int p = termStarts.get(term), end = termStarts.get(term + 1); p < end; p++) {
+                acc.add(postingDocs.get(p), queryCount * postingCounts.get(p));
+            }
+        }
+
+        double queryNorm = query.norm();
+        TopK top = new TopK(k);
+
+        for (int slot = 0; slot < acc.keys.length; slot++) {
+            int doc = acc.keys[slot] - 1;
+            if (doc < 0) continue;
+            double score = acc.dots[slot] / (queryNorm * norms.get(doc));
+
+            if (score > minScore && !delta.isShadowed(doc)) top.offer(doc, score);
+        }
+
+        // Delta documents are numbered after the base ones
+        for (int i = 0; i < delta.vectors.size(); i++) {
+            double score = TermVector.cosine(query, delta.vectors.get(i));
+            if (score > minScore) top.offer(size + i, score);
+        }
+
+        List<Match> matches = new ArrayList<>(top.found);
+        for (int i = 0; i < top.found; i++) {
+            int doc = top.docs[i];
+            matches.add(new Match(pattern(doc), top.scores[i], responses(doc)));
+        }
+        return matches;
+    }
+
+    // Responses for an exact pattern, or null if it is not indexed
+    public List<String> responses(String pattern) {
+        Integer added = delta.byPattern.get(pattern);
+        if (added != null) return delta.responses.get(added);
+        int doc = find(pattern);
+        return doc >= 0 ? store.responses(doc) : null;
+    }
+
+    // New index with the pattern added or its responses replaced; this index is left unchanged.
+    // The vector must come from the same dictionary as the base.
+    public PatternIndex withPattern(String pattern, List<String> responses, TermVector vector) {
+        List<String> patterns = new ArrayList<>(delta.patterns);
+        List<List<String>> deltaResponses = new ArrayList<>(delta.responses);
+        List<TermVector> vectors = new ArrayList<>(delta.vectors);
+        Map<String, Integer> byPattern = new HashMap<>(delta.byPattern);
+        int[] shadowed = delta.shadowed;
+
+        Integer existing = byPattern.get(pattern);
+        if (existing != null) {
+            deltaResponses.set(existing, List.copyOf(responses));
+            vectors.set(existing, vector);
+        } else {
+            int doc = find(pattern);
+            if (doc >= 0) {
+                int pos = -Arrays.binarySearch(shadowed, doc) - 1;
+                int[] grown = new int[shadowed.length + 1];
+                System.arraycopy(shadowed, 0, grown, 0, pos);
+                grown[pos] = doc;
+                System.arraycopy(shadowed, pos, grown, pos + 1, shadowed.length - pos);
+                shadowed = grown;
+            }
+            byPattern.put(pattern, patterns.size());
+            patterns.add(pattern);
+            deltaResponses.add(List.copyOf(responses));
+            vectors.add(vector);
+        }
+
+        Delta next = new Delta(patterns, deltaResponses, vectors, shadowed, byPattern);
+        return new PatternIndex(store, norms, termStarts, postingDocs, postingCounts, next);
+    }
+
+    // Heap index with the delta merged into the postings; patterns stay sorted, nothing is re-tokenized
+    public PatternIndex compact() {
+        if (delta.patterns.isEmpty()) return this;
+
+        int base = store.size();
+        List<String> added = new ArrayList<>(delta.patterns);
+        Collections.sort(added);
+
+        // Merge the sorted base (minus shadowed docs) with the sorted delta patterns
+        int size = size();
+        String[] patterns = new String[size];
+        List<List<String>> responses = new ArrayList<>(size);
+        double[] newNorms = new double[size];
+        int[] baseDocs = new int[base];
+        int[] deltaDocs = new int[added.size()];
+        Arrays.fill(baseDocs, -1);
+
+        int doc = 0;
+        for (int b = 0, d = 0; b < base || d < added.size(); ) {
+            if (b < base && delta.isShadowed(b)) {
+                b++;
+                continue;
+            }
+            String basePattern = b < base ? store.pattern(b) : null;
+            if (d < added.size() && (basePattern == null || added.get(d).compareTo(basePattern) < 0)) {
+                int i = delta.byPattern.get(added.get(d++));
+                deltaDocs[i] = doc;
+                patterns[doc] = delta.patterns.get(i);
+                responses.add(delta.responses.get(i));
+                newNorms[doc++] = delta.vectors.get(i).norm();
+            } else {
+                baseDocs[b] = doc;
+                patterns[doc] = basePattern;
+                responses.add(store.responses(b));
+                newNorms[doc++] = norms.get(b);
+                b++;
+            }
+        }
+
+        int newTerms = terms;
+        for (TermVector vector : delta.vectors) {
+            if (vector.size() > 0) newTerms = Math.max(newTerms, vector.id(vector.size() - 1) + 1);
+        }
+
+        // Count, prefix-sum and fill as in build(), with base postings remapped to the new doc ids
+        int[] starts = new int[newTerms + 1];
+        for (int term = 0; term < terms; term++) {
+            for (int p = termStarts.get(term), end = termStarts.get(term + 1); p < end; p++) {
+                if (baseDocs[postingDocs.get(p)] >= 0) starts[term + 1]++;
+            }
+        }
+        for (TermVector vector : delta.vectors) {
+            for (int i = 0; i < vector.size(); i++) starts[vector.id(i) + 1]++;
+        }
+        for (int term = 0; term < newTerms; term++) {
+            starts[term + 1] += starts[term];
+        }
+        int[] docs = new int[starts[newTerms]];
+        int[] counts = new int[starts[newTerms]];
+        int[] fill = Arrays.copyOf(starts, newTerms);
+        for (int term = 0; term < terms; term++) {
+            for (int p = termStarts.get(term), end = termStarts.get(term + 1); p < end; p++) {
+                int mapped = baseDocs[postingDocs.get(p)];
+                if (mapped < 0) continue;
+                int pos = fill[term]++;
+                docs[pos] = mapped;
+                counts[pos] = postingCounts.get(p);
+            }
+        }
+        for (int i = 0; i < delta.vectors.size(); i++) {
+            TermVector vector = delta.vectors.get(i);
+            for (int j = 0; j < vector.size(); j++) {
+                int pos = fill[vector.id(j)]++;
+                docs[pos] = deltaDocs[i];
+                counts[pos] = vector.count(j);
+            }
+        }
+
+        return new PatternIndex(heapStore(patterns, responses), DoubleBuffer.wrap(newNorms), IntBuffer.wrap(starts),
+                                IntBuffer.wrap(docs), IntBuffer.wrap(counts));
+    }
+
+    // Read-only pattern -> responses view; entries are decoded on access, not copied
+    public Map<String, List<String>> asMap() {
+        return new AbstractMap<>() {
+            @Override
+            public Set<Entry<String, List<String>>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<String, List<String>>> iterator() {
+                        return new Iterator<>() {
+                            private final int end = store.size() + delta.patterns.size();
+                            private int doc = skipShadowed(0);
+
+                            public boolean hasNext() { return doc < end; }
+
+                            public Entry<String, List<String>> next() {
+                                if (!hasNext()) throw new NoSuchElementException();
+                                int current = doc;
+                                doc = skipShadowed(doc + 1);
+                                return Map.entry(pattern(current), responses(current));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return PatternIndex.this.size();
+                    }
+                };
+            }
+        };
+    }
+
+    public int size() {
+        return store.size() - delta.shadowed.length + delta.patterns.size();
+    }
+
+    // Patterns added since the base was built or last compacted
+    public int deltaSize() {
+        return delta.patterns.size();
+    }
+
+    public int termCount() {
+        return terms;
+    }
+
+    private String pattern(int doc) {
+        int base = store.size();
+        return doc < base ? store.pattern(doc) : delta.patterns.get(doc - base);
+    }
+
+    private List<String> responses(int doc) {
+        int base = store.size();
+        return doc < base ? store.responses(doc) : delta.responses.get(doc - base);
+    }
+
+    private int skipShadowed(int doc) {
+        while (doc < store.size() && delta.isShadowed(doc)) doc++;
+        return doc;
+    }
+
+    // Base doc id by binary search; build() and snapshots keep base patterns sorted
+    private int find(String pattern) {
+        int low = 0, high = store.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = store.compare(mid, pattern);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean better(double score, int doc, double otherScore, int otherDoc) {
+        return score > otherScore || (score == otherScore && doc < otherDoc);
+    }
+
+    // Small sorted top-k window, best first
+    private static final class TopK {
+        final int[] docs;
+        final double[] scores;
+        int found;
+
+        TopK(int k) {
+            docs = new int[k];
+            scores = new double[k];
+        }
+
+        void offer(int doc, double score) {
+            int k = docs.length;
+            if (found == k && !better(score, doc, scores[k - 1], docs[k - 1])) return;
+
+            int pos = found < k ? found++ : k - 1;
+            while (pos > 0 && better(score, doc, scores[pos - 1], docs[pos - 1])) {
+                scores[pos] = scores[pos - 1];
+                docs[pos] = docs[pos - 1];
+                pos--;
+            }
+            scores[pos] = score;
+            docs[pos] = doc;
+        }
+    }
+
+    // Open-addressing doc -> dot product table for one search, sized to its candidate count
+    private static final class Accumulator {
+        // doc + 1, so 0 marks a free slot
+        final int[] keys;
+        final int[] dots;
+        private final int mask;
+
+        Accumulator(int candidates) {
+            // Load factor at most 1/2
+            int capacity = Integer.highestOneBit(Math.max(4, candidates)) << 2;
+            keys = new int[capacity];
+            dots = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        void add(int doc, int value) {
+            // Multiplying by an odd constant spreads consecutive ids without collisions
+            int slot = (doc * 0x9E3779B9) & mask;
+            while (keys[slot] != 0 && keys[slot] != doc + 1) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = doc + 1;
+            dots[slot] += value;
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package com.chatbot.nlp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Symmetric-delete spelling correction (SymSpell). Every vocabulary term is indexed under each
+// string reachable by deleting up to maxDistance chars from its first prefixLength chars. A
+// misspelled token generates the same kind of deletes, so candidate terms are found by hash
+// lookups instead of comparing against the whole vocabulary; only those few are then checked
+// with a bounded Damerau-Levenshtein (optimal string alignment) distance. Only words that are
+// neither vocabulary terms nor in the English lexicon count as misspelled: a real word the bot
+// doesn't know ("feet", "hell") is left alone rather than pulled to the nearest term.
+// Immutable once built; safe for concurrent use.
+public final class SpellCorrector {
+
+    private static final String SENTENCE_ENDINGS = ".!?";
+
+    // Frequent English words, so that words a small domain vocabulary lacks ("there", "order")
+    // are recognized as correct instead of being pulled to the nearest keyword
+    private static final String[] COMMON_WORDS = {
+        "about", "above", "account", "across", "actually", "after", "again", "against", "almost",
+        "alone", "along", "already", "also", "although", "always", "among", "another", "answer",
+        "anyone", "anything", "anyway", "area", "around", "available", "away", "back", "because",
+        "become", "been", "before", "begin", "being", "believe", "below", "best", "better",
+        "between", "both", "bring", "build", "business", "call", "came", "cannot", "card", "case",
+        "change", "check", "children", "city", "close", "come", "coming", "company", "could",
+        "country", "course", "cover", "create", "current", "customer", "data", "days", "deal",
+        "delivery", "detail", "details", "different", "does", "doing", "done", "down", "during",
+        "each", "early", "easy", "either", "else", "email", "enough", "even", "ever", "every",
+        "everyone", "everything", "example", "family", "find", "fine", "first", "following",
+        "food", "form", "found", "free", "friend", "from", "full", "give", "given", "going",
+        "good", "great", "group", "half", "hand", "happen", "happy", "hard", "have", "having",
+        "head", "hear", "here", "high", "home", "hope", "hour", "hours", "house", "however",
+        "idea", "important", "information", "inside", "instead", "into", "issue", "issues",
+        "itself", "just", "keep", "kind", "know", "known", "large", "last", "later", "learn",
+        "least", "leave", "left", "less", "life", "like", "line", "list", "little", "live", "long",
+        "look", "looking", "lost", "made", "make", "making", "many", "matter", "maybe", "mean",
+        "means", "message", "might", "mind", "minute", "money", "month", "more", "morning", "most",
+        "move", "much", "must", "name", "need", "needs", "never", "next", "nice", "night", "none",
+        "nothing", "number", "offer", "often", "okay", "once", "only", "open", "order", "other",
+        "others", "over", "page", "part", "people", "person", "phone", "place", "plan", "please",
+        "point", "possible", "problem", "problems", "question", "questions", "quite", "rather",
+        "read", "ready", "real", "really", "reason", "receive", "refund", "remember", "request",
+        "return", "right", "said", "same", "save", "says", "second", "seem", "seen", "send",
+        "sent", "shipping", "should", "show", "side", "since", "small", "some", "someone",
+        "something", "sometimes", "soon", "sorry", "start", "still", "stop", "such", "sure",
+        "system", "take", "talk", "tell", "than", "that", "their", "them", "then", "there",
+        "these", "they", "thing", "things", "think", "those", "though", "thought", "through",
+        "time", "today", "together", "told", "tomorrow", "took", "total", "track", "trying",
+        "turn", "under", "understand", "until", "update", "upon", "used", "user", "using", "very",
+        "want", "wanted", "wants", "week", "well", "went", "were", "what", "when", "where",
+        "whether", "which", "while", "whole", "will", "wish", "within", "without", "work",
+        "working", "world", "would", "wrong", "year", "years", "yesterday", "your", "yours"
+    };
+
+    private final String[] terms;
+    private final int[] weights;
+    private final int maxDistance;
+    private final int prefixLength;
+    private final int minLength;
+    private final int maxCandidates;
+    private final long latencyBudgetNanos;
+    private final Lexicon lexicon;
+
+    // Exact lookup of vocabulary terms by Tokens.hash
+    private final long[] termHashes;
+    private final int[] termSlots;
+
+    // Deletes: open-addressing slots of hash -> group; group g owns ids [groupStarts[g], groupStarts[g + 1])
+    private final long[] deleteHashes;
+    private final int[] deleteGroups;
+    private final int[] groupStarts;
+    private final int[] groupIds;
+
+    private SpellCorrector(Builder builder, int maxDistance, int prefixLength, DeleteTable deletes) {
+        this.terms = builder.terms.toArray(new String[0]);
+        this.weights = builder.weights.stream().mapToInt(Integer::intValue).toArray();
+        this.maxDistance = maxDistance;
+        this.prefixLength = prefixLength;
+        this.minLength = builder.minLength;
+        this.maxCandidates = builder.maxCandidates;
+        this.latencyBudgetNanos = builder.latencyBudgetNanos;
+        this.lexicon = builder.englishLexicon ? Lexicon.ENGLISH : null;
+
+        int capacity = tableSize(terms.length);
+        this.termHashes = new long[capacity];
+        this.termSlots = new int[capacity];
+        for (int id = 0; id < terms.length; id++) {
+            long h = Tokens.hash(terms[id]);
+            int slot = TermDictionary.spread(h) & (capacity - 1);
+            while (termSlots[slot] != 0) slot = (slot + 1) & (capacity - 1);
+            termHashes[slot] = h;
+            termSlots[slot] = id + 1;
+        }
+
+        this.deleteHashes = deletes.hashes;
+        this.deleteGroups = deletes.groups;
+        this.groupStarts = deletes.starts;
+        this.groupIds = deletes.ids;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Replaces misspelled words of normalized (lower case, single-spaced) text with their closest
+    // vocabulary term. Returns the same instance when nothing changed.
+    public String correct(String text) {
+        long deadline = System.nanoTime() + latencyBudgetNanos;
+        StringBuilder corrected = null;
+        int copied = 0;
+        int length = text.length();
+        for (int start = 0; start < length; ) {
+            int end = text.indexOf(' ', start);
+            if (end < 0) end = length;
+            // Sentence punctuation kept by the tokenizer stays attached but is not part of the word
+            int wordEnd = end;
+            while (wordEnd > start && SENTENCE_ENDINGS.indexOf(text.charAt(wordEnd - 1)) >= 0) wordEnd--;
+
+            String replacement = correctWord(text, start, wordEnd);
+            if (replacement != null) {
+                if (corrected == null) corrected = new StringBuilder(length + 8);
+                corrected.append(text, copied, start).append(replacement);
+                copied = wordEnd;
+            }
+            start = end + 1;
+            if (System.nanoTime() > deadline) break;
+        }
+        if (corrected == null) return text;
+        return corrected.append(text, copied, length).toString();
+    }
+
+    // Closest term for one word, or null if it is known, a real word, not a plain word, or too far
+    // from any term. Weights only decide between terms at the same distance.
+    public String correctWord(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length < minLength) return null;
+        long h = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 'a' || c > 'z') return null;
+            h = (h ^ c) * 0x100000001b3L;
+        }
+        if (contains(h, text, start, end)) return null;
+        if (lexicon != null && lexicon.contains(h, text, start, end)) return null;
+
+        // Short words get less room: two edits turn most 4-letter words into some other word
+        int distance = Math.min(maxDistance, length < 6 ? 1 : 2);
+        String word = text.subSequence(start, end).toString();
+        String prefix = word.length() > prefixLength ? word.substring(0, prefixLength) : word;
+
+        int best = -1, bestDistance = distance + 1;
+        int checked = 0;
+        Set<Integer> seen = new HashSet<>();
+        for (String delete : deletes(prefix, distance)) {
+            int slot = find(key(delete));
+            if (slot < 0) continue;
+            int group = deleteGroups[slot] - 1;
+            for (int g = groupStarts[group]; g < groupStarts[group + 1]; g++) {
+                int id = groupIds[g];
+                if (!seen.add(id)) continue;
+                if (++checked > maxCandidates) return best < 0 ? null : terms[best];
+                int d = distance(word, terms[id], Math.min(distance, bestDistance));
+                if (d > distance) continue;
+                if (d < bestDistance || (d == bestDistance && better(id, best))) {
+                    best = id;
+                    bestDistance = d;
+                }
+            }
+        }
+        return best < 0 ? null : terms[best];
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    public int maxDistance() {
+        return maxDistance;
+    }
+
+    public int prefixLength() {
+        return prefixLength;
+    }
+
+    public long estimatedBytes() {
+        return 12L * termHashes.length + 12L * deleteHashes.length + 4L * groupStarts.length + 4L * groupIds.length;
+    }
+
+    private boolean better(int id, int current) {
+        return current < 0 || weights[id] > weights[current] || (weights[id] == weights[current] && id < current);
+    }
+
+    private boolean contains(long h, CharSequence text, int start, int end) {
+        int mask = termSlots.length - 1;
+        int slot = TermDictionary.spread(h) & mask;
+        int id;
+        while ((id = termSlots[slot] - 1) >= 0) {
+            if (termHashes[slot] == h && equals(terms[id], text, start, end)) return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    private static boolean equals(String term, CharSequence text, int start, int end) {
+        if (term.length() != end - start) return false;
+        for (int i = 0; i < term.length(); i++) {
+            if (term.charAt(i) != text.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    // Deletes are keyed by the top 40 bits of their hash, leaving 24 bits for the term id when
+    // sorting; a rare collision only adds a candidate that fails the distance check
+    private static long key(String delete) {
+        return Tokens.hash(delete) >>> 24;
+    }
+
+    private int find(long h) {
+        int mask = deleteHashes.length - 1;
+        int slot = TermDictionary.spread(h) & mask;
+        while (deleteGroups[slot] != 0) {
+            if (deleteHashes[slot] == h) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // The word itself plus every string reachable by deleting up to distance chars
+    private static Set<String> deletes(String word, int distance) {
+        Set<String> deletes = new LinkedHashSet<>();
+        deletes.add(word);
+        List<String> frontier = List.of(word);
+        for (int d = 0; d < distance; d++) {
+            List<String> next = new ArrayList<>();
+            for (String s : frontier) {
+                if (s.length() <= 1) continue;
+                for (int i = 0; i < s.length(); i++) {
+                    String delete = s.substring(0, i) + s.substring(i + 1);
+                    if (deletes.add(delete)) next.add(delete);
+                }
+            }
+            frontier = next;
+        }
+        return deletes;
+    }
+
+    // Optimal string alignment distance, or limit + 1 once it is certain to exceed limit
+    static int distance(String a, String b, int limit) {
+        if (Math.abs(a.length() - b.length()) > limit) return limit + 1;
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) return limit + 1;
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], limit + 1);
+    }
+
+    private static int tableSize(int entries) {
+        return Integer.highestOneBit(Math.max(2, entries * 2) - 1) << 1;
+    }
+
+    // Words accepted as correctly spelled but never offered as corrections, looked up by hash
+    // without copying the word out of the text
+    private static final class Lexicon {
+        static final Lexicon ENGLISH = load("english-words.txt");
+
+        private final long[] hashes;
+        private final String[] words;
+
+        private Lexicon(List<String> words) {
+            int capacity = tableSize(words.size());
+            this.hashes = new long[capacity];
+            this.words = new String[capacity];
+            for (String word : words) {
+                long h = Tokens.hash(word);
+                int slot = TermDictionary.spread(h) & (capacity - 1);
+                while (this.words[slot] != null) slot = (slot + 1) & (capacity - 1);
+                hashes[slot] = h;
+                this.words[slot] = word;
+            }
+        }
+
+        boolean contains(long h, CharSequence text, int start, int end) {
+            int mask = words.length - 1;
+            int slot = TermDictionary.spread(h) & mask;
+            String word;
+            while ((word = words[slot]) != null) {
+                if (hashes[slot] == h && SpellCorrector.equals(word, text, start, end)) return true;
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        // One lower-case word per line; lines starting with # are comments
+        private static Lexicon load(String resource) {
+            List<String> words = new ArrayList<>();
+            try (InputStream in = SpellCorrector.class.getResourceAsStream(resource)) {
+                if (in == null) throw new IllegalStateException("Missing lexicon resource " + resource);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty() && line.charAt(0) != '#') words.add(line.trim());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read lexicon " + resource, e);
+            }
+            return new Lexicon(words);
+        }
+    }
+
+    // Delete index before it is handed to the corrector
+    private static final class DeleteTable {
+        long[] hashes;
+        int[] groups;
+        int[] starts;
+        int[] ids;
+    }
+
+    public static final class Builder {
+        private final List<String> terms = new ArrayList<>();
+        private final List<Integer> weights = new ArrayList<>();
+        private final Map<String, Integer> byTerm = new HashMap<>();
+        private int maxDistance = 2;
+        private int prefixLength = 7;
+        private int minLength = 4;
+        private int maxCandidates = 100;
+        private long maxBytes = 64L << 20;
+        private long latencyBudgetNanos = 500_000;
+        private boolean englishLexicon;
+
+        private Builder() {}
+
+        // Only plain lower-case words are indexed; on ties the higher weight wins
+        public Builder add(String term, int weight) {
+            if (term == null || term.isEmpty()) return this;
+            for (int i = 0; i < term.length(); i++) {
+                char c = term.charAt(i);
+                if (c < 'a' || c > 'z') return this;
+            }
+            Integer id = byTerm.get(term);
+            if (id != null) {
+                weights.set(id, Math.max(weights.get(id), weight));
+            } else {
+                byTerm.put(term, terms.size());
+                terms.add(term);
+                weights.add(weight);
+            }
+            return this;
+        }
+
+        public Builder addCommonWords(int weight) {
+            for (String word : COMMON_WORDS) add(word, weight);
+            return this;
+        }
+
+        // Leaves words of the bundled English lexicon (about 33,000 frequent words) uncorrected.
+        // They are not added as terms, so they never replace another word.
+        public Builder englishLexicon(boolean enabled) {
+            this.englishLexicon = enabled;
+            return this;
+        }
+
+        public Builder maxDistance(int maxDistance) {
+            this.maxDistance = Math.max(1, Math.min(2, maxDistance));
+            return this;
+        }
+
+        // Only this many leading chars are indexed; longer words are checked in full afterwards
+        public Builder prefixLength(int prefixLength) {
+            this.prefixLength = Math.max(4, prefixLength);
+            return this;
+        }
+
+        // Shorter words are never corrected
+        public Builder minLength(int minLength) {
+            this.minLength = Math.max(2, minLength);
+            return this;
+        }
+
+        // Most candidate terms compared per word
+        public Builder maxCandidates(int maxCandidates) {
+            this.maxCandidates = Math.max(1, maxCandidates);
+            return this;
+        }
+
+        // Index size limit; the distance, then the prefix length, are lowered until it fits
+        public Builder maxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        // Words left when a text runs over this are passed through uncorrected
+        public Builder latencyBudgetMicros(long micros) {
+            this.latencyBudgetNanos = micros * 1000;
+            return this;
+        }
+
+        public SpellCorrector build() {
+            if (terms.size() > 1 << 24) throw new IllegalStateException("Too many terms: " + terms.size());
+            int distance = maxDistance;
+            int prefix = prefixLength;
+            while (true) {
+                long entries = countDeletes(distance, prefix);
+                // Per delete: an id, a group start and about two 12-byte slots per group
+                long bytes = 32L * entries + 24L * terms.size();
+                if (bytes <= maxBytes || (distance == 1 && prefix == 4)) {
+                    return new SpellCorrector(this, distance, prefix, index(distance, prefix));
+                }
+                if (distance > 1) distance--;
+                else prefix--;
+            }
+        }
+
+        private long countDeletes(int distance, int prefix) {
+            long entries = 0;
+            for (String term : terms) {
+                entries += deletes(term.length() > prefix ? term.substring(0, prefix) : term, distance).size();
+            }
+            return entries;
+        }
+
+        // (key, id) pairs packed into longs and sorted, grouped into CSR form, then hashed into slots
+        private DeleteTable index(int distance, int prefix) {
+            long[] pairs = new long[16];
+            int count = 0;
+            for (int id = 0; id < terms.size(); id++) {
+                String term = terms.get(id);
+                for (String delete : deletes(term.length() > prefix ? term.substring(0, prefix) : term, distance)) {
+                    if (count == pairs.length) pairs = Arrays.copyOf(pairs, count * 2);
+                    pairs[count++] = (key(delete) << 24) | id;
+                }
+            }
+            Arrays.sort(pairs, 0, count);
+
+            DeleteTable table = new DeleteTable();
+            table.ids = new int[count];
+            int[] starts = new int[count + 1];
+            long[] groupHashes = new long[count];
+            int groups = 0;
+            for (int i = 0; i < count; i++) {
+                long h = pairs[i] >>> 24;
+                if (groups == 0 || groupHashes[groups - 1] != h) {
+                    groupHashes[groups] = h;
+                    starts[groups++] = i;
+                }
+                table.ids[i] = (int) (pairs[i] & 0xFFFFFF);
+            }
+            starts[groups] = count;
+            table.starts = Arrays.copyOf(starts, groups + 1);
+
+            int capacity = tableSize(groups);
+            table.hashes = new long[capacity];
+            table.groups = new int[capacity];
+            for (int g = 0; g < groups; g++) {
+                int slot = TermDictionary.spread(groupHashes[g]) & (capacity - 1);
+                while (table.groups[slot] != 0) slot = (slot + 1) & (capacity - 1);
+                table.hashes[slot] = groupHashes[g];
+                table.groups[slot] = g + 1;
+            }
+            return table;
+        }
+    }
+}
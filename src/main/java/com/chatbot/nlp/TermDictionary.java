@@ -0,0 +1,201 @@
+package com.chatbot.nlp;
+
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+// Maps terms to dense int ids. Lookups take token spans and never allocate or lock;
+// interning is synchronized and only happens when training data is indexed.
+public final class TermDictionary {
+
+    // Read-only terms from a mapped model snapshot. They own ids [0, size); terms interned
+    // afterwards go to the heap table and are numbered after them.
+    static final class Base {
+        final int size;
+        final int mask;
+        // Open-addressing slots: term hash and id + 1 (0 marks an empty slot)
+        final LongBuffer slotHashes;
+        final IntBuffer slotIds;
+        // Term id owns pool chars [termStarts[id], termStarts[id + 1])
+        final IntBuffer termStarts;
+        final CharBuffer pool;
+
+        Base(LongBuffer slotHashes, IntBuffer slotIds, IntBuffer termStarts, CharBuffer pool) {
+            this.size = termStarts.limit() - 1;
+            this.mask = slotIds.limit() - 1;
+            this.slotHashes = slotHashes;
+            this.slotIds = slotIds;
+            this.termStarts = termStarts;
+            this.pool = pool;
+        }
+
+        int lookup(Tokens tokens, int i) {
+            long h = tokens.hash(i);
+            int slot = spread(h) & mask;
+            int id;
+            while ((id = slotIds.get(slot) - 1) >= 0) {
+                if (slotHashes.get(slot) == h) {
+                    int start = termStarts.get(id);
+                    if (tokens.tokenEquals(i, pool, start, termStarts.get(id + 1) - start)) return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        int lookup(String term) {
+            long h = Tokens.hash(term);
+            int slot = spread(h) & mask;
+            int id;
+            while ((id = slotIds.get(slot) - 1) >= 0) {
+                if (slotHashes.get(slot) == h && termEquals(id, term)) return id;
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        String term(int id) {
+            int start = termStarts.get(id);
+            return pool.subSequence(start, termStarts.get(id + 1)).toString();
+        }
+
+        private boolean termEquals(int id, String term) {
+            int start = termStarts.get(id);
+            if (termStarts.get(id + 1) - start != term.length()) return false;
+            for (int j = 0; j < term.length(); j++) {
+                if (pool.get(start + j) != term.charAt(j)) return false;
+            }
+            return true;
+        }
+    }
+
+    // Slot arrays are only mutated under the lock; ids are stored +1 so a reader racing
+    // with an insert sees either a complete entry or a miss
+    private static final class Table {
+        final String[] terms;
+        final long[] hashes;
+        final int[] ids;
+        final int mask;
+
+        Table(int capacity) {
+            terms = new String[capacity];
+            hashes = new long[capacity];
+            ids = new int[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private final Base base;
+    private final int baseSize;
+    private volatile Table table = new Table(1024);
+    // Heap terms only, indexed by id - baseSize
+    private volatile String[] byId = new String[512];
+    private volatile int size;
+
+    public TermDictionary() {
+        this(null);
+    }
+
+    TermDictionary(Base base) {
+        this.base = base;
+        this.baseSize = base == null ? 0 : base.size;
+        this.size = baseSize;
+    }
+
+    public int lookup(Tokens tokens, int i) {
+        if (base != null) {
+            int id = base.lookup(tokens, i);
+            if (id >= 0) return id;
+        }
+        Table t = table;
+        long h = tokens.hash(i);
+        int slot = spread(h) & t.mask;
+        String term;
+        while ((term = t.terms[slot]) != null) {
+            if (t.hashes[slot] == h && tokens.tokenEquals(i, term)) {
+                return t.ids[slot] - 1;
+            }
+            slot = (slot + 1) & t.mask;
+        }
+        return -1;
+    }
+
+    public int lookup(String term) {
+        if (base != null) {
+            int id = base.lookup(term);
+            if (id >= 0) return id;
+        }
+        Table t = table;
+        long h = Tokens.hash(term);
+        int slot = spread(h) & t.mask;
+        String existing;
+        while ((existing = t.terms[slot]) != null) {
+            if (t.hashes[slot] == h && existing.equals(term)) {
+                return t.ids[slot] - 1;
+            }
+            slot = (slot + 1) & t.mask;
+        }
+        return -1;
+    }
+
+    public int intern(Tokens tokens, int i) {
+        int id = lookup(tokens, i);
+        return id >= 0 ? id : intern(tokens.token(i));
+    }
+
+    public synchronized int intern(String term) {
+        int id = lookup(term);
+        if (id >= 0) return id;
+
+        id = size;
+        int heapId = id - baseSize;
+        if ((heapId + 1) * 2 > table.terms.length) {
+            table = rehash(table, table.terms.length * 2);
+        }
+        if (heapId == byId.length) {
+            byId = Arrays.copyOf(byId, heapId * 2);
+        }
+        byId[heapId] = term;
+
+        Table t = table;
+        long h = Tokens.hash(term);
+        int slot = spread(h) & t.mask;
+        while (t.terms[slot] != null) {
+            slot = (slot + 1) & t.mask;
+        }
+        t.ids[slot] = id + 1;
+        t.hashes[slot] = h;
+        t.terms[slot] = term;
+        size = id + 1;
+        return id;
+    }
+
+    public String term(int id) {
+        if (id < 0 || id >= size) return null;
+        return id < baseSize ? base.term(id) : byId[id - baseSize];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static Table rehash(Table old, int capacity) {
+        Table grown = new Table(capacity);
+        for (int i = 0; i < old.terms.length; i++) {
+            if (old.terms[i] == null) continue;
+            int slot = spread(old.hashes[i]) & grown.mask;
+            while (grown.terms[slot] != null) {
+                slot = (slot + 1) & grown.mask;
+            }
+            grown.terms[slot] = old.terms[i];
+            grown.hashes[slot] = old.hashes[i];
+            grown.ids[slot] = old.ids[i];
+        }
+        return grown;
+    }
+
+    static int spread(long h) {
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,157 @@
+package com.chatbot.nlp;
+
+import java.util.Arrays;
+
+// Sparse term-frequency vector: dictionary ids sorted ascending with parallel counts.
+// Terms missing from the dictionary are kept by hash so they still count towards
+// the norm and can match each other when two free-text vectors are compared.
+public final class TermVector {
+
+    private int[] ids;
+    private int[] counts;
+    private int size;
+
+    private long[] unknownHashes;
+    private int[] unknownCounts;
+    private int unknownSize;
+
+    private long squaredNorm;
+
+    public TermVector() {
+        this(16);
+    }
+
+    private TermVector(int capacity) {
+        ids = new int[capacity];
+        counts = new int[capacity];
+        unknownHashes = new long[capacity];
+        unknownCounts = new int[capacity];
+    }
+
+    // Fills this vector from the non-stop-word tokens; unknown terms are interned when requested
+    public TermVector fill(Tokens tokens, TokenSet stopWords, TermDictionary dictionary, boolean intern) {
+        int n = tokens.count();
+        if (ids.length < n) {
+            int capacity = Math.max(n, ids.length * 2);
+            ids = new int[capacity];
+            counts = new int[capacity];
+            unknownHashes = new long[capacity];
+            unknownCounts = new int[capacity];
+        }
+
+        size = 0;
+        unknownSize = 0;
+        for (int i = 0; i < n; i++) {
+            if (stopWords != null && stopWords.contains(tokens, i)) continue;
+            int id = intern ? dictionary.intern(tokens, i) : dictionary.lookup(tokens, i);
+            if (id >= 0) {
+                ids[size++] = id;
+            } else {
+                unknownHashes[unknownSize++] = tokens.hash(i);
+            }
+        }
+
+        // Sort, then collapse runs of equal ids into counts
+        Arrays.sort(ids, 0, size);
+        size = collapse(ids, size);
+        Arrays.sort(unknownHashes, 0, unknownSize);
+        unknownSize = collapse(unknownHashes, unknownSize);
+
+        squaredNorm = 0;
+        for (int i = 0; i < size; i++) squaredNorm += (long) counts[i] * counts[i];
+        for (int i = 0; i < unknownSize; i++) squaredNorm += (long) unknownCounts[i] * unknownCounts[i];
+        return this;
+    }
+
+    // Right-sized copy for long-lived storage
+    public TermVector compact() {
+        TermVector copy = new TermVector(0);
+        copy.ids = Arrays.copyOf(ids, size);
+        copy.counts = Arrays.copyOf(counts, size);
+        copy.size = size;
+        copy.unknownHashes = Arrays.copyOf(unknownHashes, unknownSize);
+        copy.unknownCounts = Arrays.copyOf(unknownCounts, unknownSize);
+        copy.unknownSize = unknownSize;
+        copy.squaredNorm = squaredNorm;
+        return copy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int id(int i) {
+        return ids[i];
+    }
+
+    public int count(int i) {
+        return counts[i];
+    }
+
+    public boolean isEmpty() {
+        return size == 0 && unknownSize == 0;
+    }
+
+    public int uniqueTerms() {
+        return size + unknownSize;
+    }
+
+    public double norm() {
+        return Math.sqrt(squaredNorm);
+    }
+
+    // Cosine similarity as a merge-join over the sorted ids and unknown-term hashes
+    public static double cosine(TermVector a, TermVector b) {
+        if (a.squaredNorm == 0 || b.squaredNorm == 0) return 0.0;
+
+        long dot = 0;
+        for (int i = 0, j = 0; i < a.size && j < b.size; ) {
+            int x = a.ids[i], y = b.ids[j];
+            if (x == y) {
+                dot += (long) a.counts[i++] * b.counts[j++];
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        for (int i = 0, j = 0; i < a.unknownSize && j < b.unknownSize; ) {
+            long x = a.unknownHashes[i], y = b.unknownHashes[j];
+            if (x == y) {
+                dot += (long) a.unknownCounts[i++] * b.unknownCounts[j++];
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+
+        return dot / (Math.sqrt(a.squaredNorm) * Math.sqrt(b.squaredNorm));
+    }
+
+    private int collapse(int[] values, int n) {
+        int out = 0;
+        for (int i = 0; i < n; i++) {
+            if (out > 0 && values[out - 1] == values[i]) {
+                counts[out - 1]++;
+            } else {
+                values[out] = values[i];
+                counts[out++] = 1;
+            }
+        }
+        return out;
+    }
+
+    private int collapse(long[] values, int n) {
+        int out = 0;
+        for (int i = 0; i < n; i++) {
+            if (out > 0 && values[out - 1] == values[i]) {
+                unknownCounts[out - 1]++;
+            } else {
+                values[out] = values[i];
+                unknownCounts[out++] = 1;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,71 @@
+package com.chatbot.nlp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Immutable open-addressing string set that can test token spans without creating strings.
+public final class TokenSet {
+
+    private final String[] slots;
+    private final long[] slotHashes;
+    private final int mask;
+    private final int size;
+
+    private TokenSet(String... values) {
+        int capacity = Integer.highestOneBit(Math.max(4, values.length * 2) - 1) << 1;
+        this.slots = new String[capacity];
+        this.slotHashes = new long[capacity];
+        this.mask = capacity - 1;
+
+        int added = 0;
+        for (String value : values) {
+            long h = Tokens.hash(value);
+            int slot = (int) (h ^ (h >>> 32)) & mask;
+            while (slots[slot] != null && !slots[slot].equals(value)) {
+                slot = (slot + 1) & mask;
+            }
+            if (slots[slot] == null) {
+                slots[slot] = value;
+                slotHashes[slot] = h;
+                added++;
+            }
+        }
+        this.size = added;
+    }
+
+    public static TokenSet of(String... values) {
+        return new TokenSet(values);
+    }
+
+    public boolean contains(Tokens tokens, int i) {
+        long h = tokens.hash(i);
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (slots[slot] != null) {
+            if (slotHashes[slot] == h && tokens.tokenEquals(i, slots[slot])) return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean contains(String value) {
+        long h = Tokens.hash(value);
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (slots[slot] != null) {
+            if (slotHashes[slot] == h && slots[slot].equals(value)) return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<String> values() {
+        List<String> values = new ArrayList<>(size);
+        for (String slot : slots) {
+            if (slot != null) values.add(slot);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,63 @@
+package com.chatbot.nlp;
+
+import com.chatbot.concurrent.Scratch;
+
+// Single-pass normalizer and tokenizer: lowercases, drops punctuation, collapses whitespace
+// and records token spans over one reusable per-thread char buffer (a fresh one on virtual threads).
+public final class Tokenizer {
+
+    // Keeps sentence endings, matching NLPService's original "[^a-zA-Z0-9\\s.!?]" filter
+    public static final Tokenizer SENTENCE = new Tokenizer(".!?");
+    // Letters and digits only, matching FastNLPService's original "[^a-z0-9\\s]" filter
+    public static final Tokenizer ALPHANUMERIC = new Tokenizer("");
+
+    private static final byte SKIP = 0;
+    private static final byte KEEP = 1;
+    private static final byte SPACE = 2;
+
+    private final byte[] table = new byte[128];
+    private final Scratch<Tokens> buffers = new Scratch<>(Tokens::new);
+
+    private Tokenizer(String keptPunctuation) {
+        for (char c = 'a'; c <= 'z'; c++) table[c] = KEEP;
+        for (char c = '0'; c <= '9'; c++) table[c] = KEEP;
+        for (char c : keptPunctuation.toCharArray()) table[c] = KEEP;
+        // Same whitespace set as the regex \s
+        for (char c : new char[]{' ', '\t', '\n', '\u000B', '\f', '\r'}) table[c] = SPACE;
+    }
+
+    // Returns this thread's buffer; it is only valid until the next call on the same thread
+    public Tokens tokenize(CharSequence text) {
+        Tokens tokens = buffers.get();
+        tokens.reset(text == null ? 0 : text.length());
+        if (text == null) return tokens;
+
+        boolean pendingSpace = false;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c >= 128) {
+                c = Character.toLowerCase(c);
+                if (c >= 128) continue;
+            } else if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+
+            byte kind = table[c];
+            if (kind == SPACE) {
+                pendingSpace = true;
+            } else if (kind == KEEP) {
+                if (pendingSpace && tokens.length > 0) {
+                    tokens.endToken();
+                }
+                pendingSpace = false;
+                tokens.append(c);
+            }
+        }
+        tokens.endToken();
+        return tokens;
+    }
+
+    public String normalize(CharSequence text) {
+        return tokenize(text).text();
+    }
+}
@@ -0,0 +1,142 @@
+package com.chatbot.nlp;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+// Normalized text plus token spans, filled by Tokenizer and reused between calls.
+// Tokens are separated by exactly one space in the buffer.
+public final class Tokens {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    char[] chars = new char[256];
+    int length;
+
+    private int[] starts = new int[32];
+    private int[] ends = new int[32];
+    private long[] hashes = new long[32];
+    private int count;
+
+    private int tokenStart = -1;
+    private long tokenHash;
+
+    void reset(int capacity) {
+        if (chars.length < capacity) {
+            chars = new char[Math.max(capacity, chars.length * 2)];
+        }
+        length = 0;
+        count = 0;
+        tokenStart = -1;
+    }
+
+    void append(char c) {
+        if (tokenStart < 0) {
+            if (length > 0) chars[length++] = ' ';
+            tokenStart = length;
+            tokenHash = FNV_OFFSET;
+        }
+        chars[length++] = c;
+        tokenHash = (tokenHash ^ c) * FNV_PRIME;
+    }
+
+    void endToken() {
+        if (tokenStart < 0) return;
+        if (count == starts.length) {
+            int grown = count * 2;
+            starts = Arrays.copyOf(starts, grown);
+            ends = Arrays.copyOf(ends, grown);
+            hashes = Arrays.copyOf(hashes, grown);
+        }
+        starts[count] = tokenStart;
+        ends[count] = length;
+        hashes[count] = tokenHash;
+        count++;
+        tokenStart = -1;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int start(int i) {
+        return starts[i];
+    }
+
+    public int end(int i) {
+        return ends[i];
+    }
+
+    public int length(int i) {
+        return ends[i] - starts[i];
+    }
+
+    public long hash(int i) {
+        return hashes[i];
+    }
+
+    public char charAt(int i, int offset) {
+        return chars[starts[i] + offset];
+    }
+
+    public String token(int i) {
+        return new String(chars, starts[i], ends[i] - starts[i]);
+    }
+
+    public boolean tokenEquals(int i, String value) {
+        int len = ends[i] - starts[i];
+        if (value.length() != len) return false;
+        for (int j = 0; j < len; j++) {
+            if (chars[starts[i] + j] != value.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    // Compares against chars [offset, offset + len) of a buffer, e.g. a mapped string pool
+    public boolean tokenEquals(int i, CharBuffer pool, int offset, int len) {
+        if (ends[i] - starts[i] != len) return false;
+        for (int j = 0; j < len; j++) {
+            if (chars[starts[i] + j] != pool.get(offset + j)) return false;
+        }
+        return true;
+    }
+
+    public boolean tokenStartsWith(int i, String prefix) {
+        int len = ends[i] - starts[i];
+        if (prefix.length() > len) return false;
+        for (int j = 0; j < prefix.length(); j++) {
+            if (chars[starts[i] + j] != prefix.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    // Copies the token hashes into out (sized for count() values), sorted and de-duplicated
+    public int sortedUniqueHashes(long[] out) {
+        if (count == 0) return 0;
+        System.arraycopy(hashes, 0, out, 0, count);
+        Arrays.sort(out, 0, count);
+        int unique = 1;
+        for (int i = 1; i < count; i++) {
+            if (out[i] != out[unique - 1]) out[unique++] = out[i];
+        }
+        return unique;
+    }
+
+    // Normalized text: lowercase, filtered and whitespace-collapsed
+    public String text() {
+        return new String(chars, 0, length);
+    }
+
+    // Same hash Tokenizer computes for a token, for building lookup tables from strings
+    public static long hash(CharSequence value) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
+}
@@ -1,81 +1,393 @@
 package com.chatbot.service;
 
+import com.chatbot.classify.ClassifierCascade;
+import com.chatbot.classify.IntentClassifier.Classification;
+import com.chatbot.classify.LinearIntentClassifier;
 import com.chatbot.model.ChatMessage;
 import com.chatbot.model.Intent;
+import com.chatbot.nlp.EntityScanner;
+import com.chatbot.nlp.ModelSnapshot;
+import com.chatbot.nlp.PatternIndex;
+import com.chatbot.concurrent.ForkJoinBatch;
+import com.chatbot.concurrent.SingleFlight;
+import com.chatbot.metrics.LatencyHistogram;
+import com.chatbot.metrics.PipelineMetrics;
+import com.chatbot.session.SessionStore;
+import com.chatbot.suggest.Typeahead;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
+// Eager despite spring.main.lazy-initialization: training the intent classifier must not happen
+// inside the first request, least of all on a reactive event loop
 @Service
+@Lazy(false)
 public class ChatbotService {
     
+    private static final Logger log = LoggerFactory.getLogger(ChatbotService.class);
+    
     @Autowired
     private NLPService nlpService;
     
     @Autowired
     private TrainingDataService trainingDataService;
     
+    @Autowired
+    @Qualifier("batchPool")
+    private ForkJoinPool batchPool;
+    
+    @Autowired
+    private SessionStore sessionStore;
+    
+    @Value("${chat.suggest.limit:5}")
+    private int suggestionLimit;
+    
+    @Value("${chat.suggest.max-phrases:1000000}")
+    private int maxSuggestionPhrases;
+    
+    // Off: only training patterns and starter questions are suggested, ranked by use. On: other
+    // messages without entities (emails, phone numbers, ...) join once sent min-count times.
+    @Value("${chat.suggest.learn-new-phrases:false}")
+    private boolean learnNewSuggestions;
+    
+    @Value("${chat.suggest.min-count:50}")
+    private int suggestionMinCount;
+    
+    @Value("${chat.suggest.rebuild-interval-seconds:60}")
+    private long suggestionRebuildSeconds;
+    
+    @Value("${chat.suggest.query-log:}")
+    private String suggestionQueryLog;
+    
+    // Cascade tiers: a tier's answer at or above min-confidence skips the tiers after it
+    @Value("${chat.classifier.exact.min-confidence:0.9}")
+    private float exactMinConfidence;
+    
+    @Value("${chat.classifier.exact.budget-micros:50}")
+    private long exactBudgetMicros;
+    
+    // Trained on the training patterns, labelled by their intent keywords, and the keywords themselves.
+    // Takes the keyword tier's place; below min-confidence it leaves the message to the next tiers.
+    @Value("${chat.classifier.linear.enabled:true}")
+    private boolean linearEnabled;
+    
+    @Value("${chat.classifier.linear.min-confidence:0.75}")
+    private float linearMinConfidence;
+    
+    @Value("${chat.classifier.linear.budget-micros:20}")
+    private long linearBudgetMicros;
+    
+    @Value("${chat.classifier.linear.feature-bits:16}")
+    private int linearFeatureBits;
+    
+    @Value("${chat.classifier.linear.epochs:30}")
+    private int linearEpochs;
+    
+    @Value("${chat.classifier.linear.simd:true}")
+    private boolean linearSimd;
+    
+    @Value("${chat.classifier.keyword.min-confidence:0.5}")
+    private float keywordMinConfidence;
+    
+    @Value("${chat.classifier.keyword.budget-micros:100}")
+    private long keywordBudgetMicros;
+    
+    @Value("${chat.classifier.similarity.min-confidence:0.3}")
+    private float similarityMinConfidence;
+    
+    @Value("${chat.classifier.similarity.budget-micros:2000}")
+    private long similarityBudgetMicros;
+    
+    @Value("${chat.classifier.coalesce:true}")
+    private boolean coalesce;
+    
+    private static final double SIMILARITY_THRESHOLD = 0.3;
+    private static final float EXACT_CONFIDENCE = 0.95f;
+    
+    // Starter questions, ranked with the training patterns until real queries outweigh them
+    private static final List<String> SUGGESTION_SEEDS = List.of(
+        "Hello, how can I help you?",
+        "What are your services?",
+        "How much does it cost?",
+        "I need help with my account",
+        "Can you help me understand your services?",
+        "I need technical support",
+        "What are your pricing plans?",
+        "How much does the premium service cost?",
+        "Do you offer discounts?",
+        "Tell me more about your products",
+        "What services do you offer?",
+        "How can I get started?"
+    );
+    
+    private Typeahead typeahead;
+    
+    private ClassifierCascade classifier;
+    
+    private LinearIntentClassifier linearClassifier;
+    
     private final Random random = new Random();
     
+    // Spell-corrected text and its classification
+    private record Classified(String text, ClassifierCascade.Result result) {}
+    
+    // Shared by identical messages that arrive while the first of them is being classified
+    private final SingleFlight<String, Classified> classifications = new SingleFlight<>();
+    
+    // Nanosecond latency per stage, served from /api/chat/metrics. Messages that waited for an
+    // identical one to be classified are timed under "coalesced" instead of "spelling" and "intent".
+    private final PipelineMetrics metrics =
+        new PipelineMetrics("chat", "preprocess", "spelling", "intent", "coalesced", "entities", "similarity", "response");
+    private final LatencyHistogram preprocessLatency = metrics.stage("preprocess");
+    private final LatencyHistogram spellingLatency = metrics.stage("spelling");
+    private final LatencyHistogram intentLatency = metrics.stage("intent");
+    private final LatencyHistogram coalescedLatency = metrics.stage("coalesced");
+    private final LatencyHistogram entitiesLatency = metrics.stage("entities");
+    private final LatencyHistogram similarityLatency = metrics.stage("similarity");
+    private final LatencyHistogram responseLatency = metrics.stage("response");
+    
+    @PostConstruct
+    void initializeSuggestions() {
+        Path queryLog = suggestionQueryLog.isEmpty() ? null : Path.of(suggestionQueryLog);
+        typeahead = new Typeahead(maxSuggestionPhrases, suggestionMinCount,
+            TimeUnit.SECONDS.toMillis(suggestionRebuildSeconds), queryLog, () -> {
+                List<String> seeds = new ArrayList<>(trainingDataService.getTrainingData().keySet());
+                seeds.addAll(SUGGESTION_SEEDS);
+                return seeds;
+            }, trainingDataService::getModel, learnNewSuggestions ? text -> nlpService.extractEntities(text).isEmpty() : null);
+    }
+    
+    @PostConstruct
+    void prepareSpelling() {
+        nlpService.prepareSpelling(trainingDataService.getModel());
+    }
+    
+    @PostConstruct
+    void initializeClassifier() {
+        // Cheapest first: exact training pattern, trained classifier (or intent keywords), pattern similarity
+        ClassifierCascade.Builder builder = ClassifierCascade.builder()
+            .tier("exact", this::exactTier, exactMinConfidence, exactBudgetMicros);
+        if (linearEnabled) {
+            trainLinearClassifier();
+            builder.tier("linear", this::linearTier, linearMinConfidence, linearBudgetMicros);
+        } else {
+            builder.tier("keyword", this::keywordTier, keywordMinConfidence, keywordBudgetMicros);
+        }
+        classifier = builder
+            .tier("similarity", this::similarityTier, similarityMinConfidence, similarityBudgetMicros)
+            .fallback("general", 0.3f)
+            .build();
+    }
+    
+    @PreDestroy
+    void shutdownSuggestions() {
+        typeahead.close();
+    }
+    
     public ChatMessage processMessage(String userMessage) {
+        return processMessage(userMessage, null);
+    }
+    
+    // With a session id the turn is also appended to that session's recent history
+    public ChatMessage processMessage(String userMessage, String sessionId) {
+        long start = System.nanoTime();
+        
         // Preprocess the message
         String processedMessage = nlpService.preprocessText(userMessage);
+        long preprocessed = System.nanoTime();
         
-        // Extract intent
-        String intent = nlpService.extractIntent(processedMessage);
+        // A burst of the same text is classified once; responses are still picked per caller
+        Classified classified;
+        if (coalesce) {
+            String text = processedMessage;
+            SingleFlight.Result<Classified> flight = classifications.run(text, () -> classify(text));
+            classified = flight.value();
+            if (flight.shared()) coalescedLatency.record(System.nanoTime() - preprocessed);
+        } else {
+            classified = classify(processedMessage);
+        }
+        processedMessage = classified.text();
+        ClassifierCascade.Result classification = classified.result();
+        String intent = classification.intent();
+        double confidence = Math.round(classification.confidence() * 1000) / 1000.0;
+        long detected = System.nanoTime();
         
-        // Find best matching response
-        String response = generateResponse(processedMessage, intent);
+        // Typed entities (emails, dates, amounts, ...) from the raw text
+        List<EntityScanner.Entity> entities = nlpService.extractEntities(userMessage);
+        long extracted = System.nanoTime();
         
-        // Calculate confidence
-        double confidence = calculateConfidence(processedMessage, intent);
+        // Find best matching response (recorded as "response" or "similarity")
+        String response = generateResponse(processedMessage, classification);
+        long end = System.nanoTime();
         
         // Create response message
         ChatMessage botMessage = new ChatMessage(response, "bot");
         botMessage.setIntent(intent);
         botMessage.setConfidence(confidence);
+        if (!entities.isEmpty()) botMessage.setEntities(entities);
+        
+        long ref = sessionStore.nextMessageRef();
+        botMessage.setId(SessionStore.messageId(ref));
+        if (sessionId != null) {
+            sessionStore.record(sessionId, intent, (float) confidence, System.currentTimeMillis(), ref);
+            botMessage.setSessionId(sessionId);
+        }
+        
+        preprocessLatency.record(preprocessed - start);
+        entitiesLatency.record(extracted - detected);
+        metrics.total().record(end - start);
+        metrics.recordIntent(intent);
+        typeahead.record(userMessage);
         
         return botMessage;
     }
     
-    private String generateResponse(String message, String intent) {
-        // Get trained responses for the intent
-        List<String> responses = trainingDataService.getResponsesForIntent(intent);
+    private Classified classify(String processedMessage) {
+        long start = System.nanoTime();
+        // Fix typos against the vocabulary before intent and similarity see the words
+        String corrected = nlpService.correctSpelling(processedMessage, trainingDataService.getModel());
+        long spelled = System.nanoTime();
+        // Intent and confidence from the first classifier tier that is sure enough
+        ClassifierCascade.Result classification = classifier.classify(corrected);
+        spellingLatency.record(spelled - start);
+        intentLatency.record(System.nanoTime() - spelled);
+        return new Classified(corrected, classification);
+    }
+    
+    public List<ChatMessage> processBatch(List<String> userMessages) {
+        // Split across the batch pool; results come back in request order
+        return ForkJoinBatch.map(batchPool, userMessages, this::processMessage);
+    }
+    
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public SessionStore getSessionStore() {
+        return sessionStore;
+    }
+    
+    public ClassifierCascade getClassifier() {
+        return classifier;
+    }
+    
+    // Cascade counters plus, when enabled, how the trained classifier was fitted
+    public Map<String, Object> classifierStats() {
+        Map<String, Object> stats = classifier.stats();
+        if (linearClassifier != null) stats.put("linear", linearClassifier.stats());
+        return stats;
+    }
+    
+    private String generateResponse(String message, ClassifierCascade.Result classification) {
+        long start = System.nanoTime();
+        
+        // One model per message, so a concurrent reload never mixes old and new data
+        ModelSnapshot model = trainingDataService.getModel();
+        
+        // The training pattern the classifier matched answers with its own responses, so patterns
+        // added at runtime are served even when their intent has a generic pool
+        List<String> responses = null;
+        if (classification.match() != null) {
+            responses = model.getPatternIndex().responses(classification.match());
+        }
+        
+        // Else the trained responses for the intent
+        if (responses == null || responses.isEmpty()) {
+            responses = model.getIntentResponses().getOrDefault(classification.intent(), List.of());
+        }
         
         if (!responses.isEmpty()) {
             // Use rule-based selection with some randomness
-            return responses.get(random.nextInt(responses.size()));
+            String response = responses.get(random.nextInt(responses.size()));
+            responseLatency.record(System.nanoTime() - start);
+            return response;
         }
         
         // Fallback to pattern matching
-        return findBestMatchingResponse(message);
-    }
-    
-    private String findBestMatchingResponse(String message) {
-        Map<String, List<String>> trainingData = trainingDataService.getTrainingData();
-        double bestSimilarity = 0.0;
-        String bestResponse = "I'm sorry, I don't understand. Could you please rephrase your question?";
-        
-        for (Map.Entry<String, List<String>> entry : trainingData.entrySet()) {
-            String pattern = entry.getKey();
-            double similarity = nlpService.calculateSimilarity(message, pattern);
-            
-            if (similarity > bestSimilarity && similarity > 0.3) { // Threshold for similarity
-                bestSimilarity = similarity;
-                List<String> responses = entry.getValue();
-                bestResponse = responses.get(random.nextInt(responses.size()));
-            }
+        String response = findBestMatchingResponse(model, message);
+        similarityLatency.record(System.nanoTime() - start);
+        return response;
+    }
+    
+    private String findBestMatchingResponse(ModelSnapshot model, String message) {
+        // Only patterns sharing a keyword with the message are scored
+        List<PatternIndex.Match> matches = model.getPatternIndex()
+            .search(nlpService.queryVector(message, model.getDictionary()), 1, SIMILARITY_THRESHOLD);
+        
+        if (matches.isEmpty()) {
+            return "I'm sorry, I don't understand. Could you please rephrase your question?";
         }
         
-        return bestResponse;
+        List<String> responses = matches.get(0).responses();
+        return responses.get(random.nextInt(responses.size()));
+    }
+    
+    // Message is a training pattern: its own intent keywords, or "general"
+    private Classification exactTier(String text, long deadlineNanos) {
+        ModelSnapshot model = trainingDataService.getModel();
+        if (model.getPatternIndex().responses(text) == null) return null;
+        String intent = nlpService.matchIntent(text, model);
+        return new Classification(intent != null ? intent : "general", EXACT_CONFIDENCE, text);
+    }
+    
+    // Calibrated probability of the most likely intent; abstains below the cut-off instead of
+    // competing with the later tiers' scores, which are on a different scale. A message that looks
+    // off-topic is left to the similarity tier, which may still know it as a trained pattern.
+    private Classification linearTier(String text, long deadlineNanos) {
+        Classification answer = linearClassifier.classify(text, deadlineNanos);
+        if (answer.intent().equals("general")) return null;
+        return answer.confidence() >= linearMinConfidence ? answer : null;
+    }
+    
+    // Trained on labelled examples only: the intent keywords, example messages per intent and
+    // off-topic messages as "general". Training patterns carry responses but no intent.
+    private void trainLinearClassifier() {
+        LinearIntentClassifier.Builder builder = LinearIntentClassifier.builder()
+            .featureBits(linearFeatureBits)
+            .epochs(linearEpochs)
+            .simd(linearSimd);
+        nlpService.intentKeywords().forEach((intent, keywords) -> {
+            for (String keyword : keywords) builder.add(keyword, intent);
+        });
+        nlpService.intentExamples().forEach((intent, examples) -> {
+            for (String example : examples) builder.add(example, intent);
+        });
+        builder.addOffTopic("general");
+        linearClassifier = builder.build();
+        log.info("Trained intent classifier on {} examples: {}", builder.size(), linearClassifier.stats());
+    }
+    
+    private Classification keywordTier(String text, long deadlineNanos) {
+        String intent = nlpService.matchIntent(text, trainingDataService.getModel());
+        return intent == null ? null : new Classification(intent, (float) calculateConfidence(text, intent));
+    }
+    
+    // Closest training pattern by keyword vectors; the score is the confidence
+    private Classification similarityTier(String text, long deadlineNanos) {
+        ModelSnapshot model = trainingDataService.getModel();
+        List<PatternIndex.Match> matches = model.getPatternIndex()
+            .search(nlpService.queryVector(text, model.getDictionary()), 1, SIMILARITY_THRESHOLD);
+        if (matches.isEmpty()) return null;
+        PatternIndex.Match best = matches.get(0);
+        String intent = nlpService.matchIntent(best.pattern(), model);
+        return new Classification(intent != null ? intent : "general",
+                                  (float) Math.min(EXACT_CONFIDENCE, best.score()), best.pattern());
     }
     
     private double calculateConfidence(String message, String intent) {
         // Simple confidence calculation based on intent matching and keyword presence
-        Map<String, Integer> keywords = nlpService.extractKeywords(message);
-        
-        if (keywords.isEmpty()) return 0.3;
+        if (!nlpService.hasKeywords(message)) return 0.3;
         
         // Base confidence on intent recognition
         double baseConfidence = switch (intent) {
@@ -86,56 +398,18 @@ public class ChatbotService {
         };
         
         // Adjust based on message length and keyword density
-        int messageLength = message.split("\\s+").length;
+        int messageLength = Math.max(1, nlpService.countTokens(message));
         double lengthFactor = Math.min(1.0, messageLength / 10.0);
         
         return Math.min(0.95, baseConfidence * (0.7 + 0.3 * lengthFactor));
     }
     
+    // Most popular known phrases starting with what has been typed so far
     public List<String> getSuggestions(String partialMessage) {
-        List<String> suggestions = new ArrayList<>();
-        
-        if (partialMessage.length() < 2) {
-            return Arrays.asList(
-                "Hello, how can I help you?",
-                "What are your services?",
-                "How much does it cost?",
-                "Can you help me with..."
-            );
-        }
-        
-        // Generate contextual suggestions based on partial input
-        String intent = nlpService.extractIntent(partialMessage);
-        
-        switch (intent) {
-            case "greeting":
-                suggestions.addAll(Arrays.asList(
-                    "Hello! How can I assist you today?",
-                    "Hi there! What can I help you with?"
-                ));
-                break;
-            case "help":
-                suggestions.addAll(Arrays.asList(
-                    "I need help with my account",
-                    "Can you help me understand your services?",
-                    "I need technical support"
-                ));
-                break;
-            case "pricing":
-                suggestions.addAll(Arrays.asList(
-                    "What are your pricing plans?",
-                    "How much does the premium service cost?",
-                    "Do you offer discounts?"
-                ));
-                break;
-            default:
-                suggestions.addAll(Arrays.asList(
-                    "Tell me more about your products",
-                    "What services do you offer?",
-                    "How can I get started?"
-                ));
-        }
-        
-        return suggestions;
+        return typeahead.complete(partialMessage, suggestionLimit);
+    }
+    
+    public Typeahead getTypeahead() {
+        return typeahead;
     }
 }
@@ -1,13 +1,34 @@
 package com.chatbot.service;
 
+import com.chatbot.concurrent.Scratch;
+import com.chatbot.nlp.EntityRecognizer;
+import com.chatbot.nlp.EntityScanner;
+import com.chatbot.nlp.KeywordAutomaton;
+import com.chatbot.nlp.ModelSnapshot;
+import com.chatbot.nlp.SpellCorrector;
+import com.chatbot.nlp.TermDictionary;
+import com.chatbot.nlp.TermVector;
+import com.chatbot.nlp.TokenSet;
+import com.chatbot.nlp.Tokenizer;
+import com.chatbot.nlp.Tokens;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class NLPService {
     
-    private final Set<String> stopWords = new HashSet<>(Arrays.asList(
+    private static final Logger log = LoggerFactory.getLogger(NLPService.class);
+    
+    private final TokenSet stopWords = TokenSet.of(
         "a", "an", "and", "are", "as", "at", "be", "by", "for", "from",
         "has", "he", "in", "is", "it", "its", "of", "on", "that", "the",
         "to", "was", "will", "with", "the", "this", "but", "they", "have",
@@ -16,26 +37,130 @@ public class NLPService {
         "would", "make", "like", "into", "him", "time", "two", "more", "go", "no",
         "way", "could", "my", "than", "first", "been", "call", "who", "oil", "sit",
         "now", "find", "down", "day", "did", "get", "come", "made", "may", "part"
-    ));
+    );
+    
+    // Intent keywords in priority order: label first, then its keywords
+    private static final String[][] INTENT_KEYWORDS = {
+        {"greeting", "hello", "hi", "hey", "good morning", "good afternoon"},
+        {"goodbye", "bye", "goodbye", "see you", "farewell"},
+        {"help", "help", "assist", "support"},
+        {"question", "what", "how", "when", "where", "why", "?"},
+        {"gratitude", "thank", "thanks", "appreciate"},
+        {"pricing", "price", "prices", "cost", "costs", "fee", "fees", "payment", "payments", "pricing"},
+        {"product_inquiry", "product", "products", "service", "services", "feature", "features"}
+    };
+    
+    // Labelled example messages per intent for the trained classifier, preprocessed
+    private static final String[][] INTENT_EXAMPLES = {
+        {"greeting", "hello there", "hi", "hey there", "hiya", "good morning", "good afternoon",
+            "good evening", "hi how are you", "hello is anyone there", "hey nice to meet you",
+            "hi there i have just arrived", "morning", "greetings", "hello again", "hey how is it going",
+            "yo"},
+        {"goodbye", "bye", "goodbye", "bye bye", "see you later", "see you soon", "see ya", "farewell",
+            "talk to you later", "catch you later", "that is all for now bye", "have a nice day goodbye",
+            "i have to go now", "good night", "take care", "i am off now"},
+        {"help", "i need help", "can you help me", "please assist me", "i need support", "i am stuck",
+            "something is not working", "i have a problem with my account", "can someone support me",
+            "can you give me a hand", "i need a hand", "my order has not arrived", "i cannot log in",
+            "the app keeps crashing", "i was charged twice", "it does not work", "nothing works"},
+        {"question", "how does the chatbot work", "what can you do", "where are you located",
+            "when are you open", "why is the page not loading", "how do i reset my password",
+            "what is your phone number", "where can i find my invoice", "what time is it there",
+            "who are you", "are you a robot", "how long does delivery take", "when will my order ship",
+            "which languages do you speak", "can i change my email address", "is the office open on sunday"},
+        {"gratitude", "thank you", "thanks", "thanks a lot", "many thanks", "i appreciate it",
+            "thank you so much", "thanks for your time", "really appreciate your assistance", "thank u",
+            "thx", "ty", "cheers", "ta very much", "much appreciated", "great job thanks", "that was useful"},
+        {"pricing", "how much does it cost", "pricing", "what are your prices", "is there a monthly fee",
+            "what does the premium plan cost", "do you take card payments", "are there any hidden fees",
+            "what are the costs for a small team", "how much do you charge", "how much is it",
+            "is there a free trial", "is there a free plan", "do you offer discounts", "can i get a quote",
+            "how much per month", "what is the annual rate", "what is the price of the pro plan",
+            "what does it cost for a whole team", "how expensive is the service", "is it affordable"},
+        {"product_inquiry", "what services do you offer", "tell me about your products",
+            "which features does the chatbot have", "do you offer consulting services",
+            "what products do you sell", "can your service integrate with slack",
+            "does the product have an api", "tell me more about your features", "what does your company sell",
+            "what do you offer", "do you build websites", "what integrations do you have",
+            "do you make mobile apps", "what can your assistant do", "is there a demo of the chatbot",
+            "do you do web development"}
+    };
+    
+    // Intent keywords compiled once
+    private static final KeywordAutomaton INTENT_AUTOMATON = intentAutomaton(INTENT_KEYWORDS);
+    
+    // Spelling weights only break ties between terms at the same edit distance: a stop word
+    // beats any other term, otherwise the term added first (keywords before training terms) wins
+    private static final int STOP_WORD_WEIGHT = 2;
+    
+    @Value("${chat.spelling.enabled:true}")
+    private boolean spellingEnabled;
+    
+    @Value("${chat.spelling.max-distance:2}")
+    private int spellingMaxDistance;
+    
+    @Value("${chat.spelling.prefix-length:7}")
+    private int spellingPrefixLength;
+    
+    @Value("${chat.spelling.max-memory-mb:64}")
+    private long spellingMaxMemoryMb;
+    
+    @Value("${chat.spelling.max-candidates:100}")
+    private int spellingMaxCandidates;
+    
+    @Value("${chat.spelling.latency-budget-micros:500}")
+    private long spellingLatencyBudgetMicros;
+    
+    // Built from the dictionary it was last refreshed for; rebuilt in the background as it grows.
+    // Term ids and intent keywords themselves are only read from the model passed in by the caller.
+    private volatile SpellCorrector spellCorrector;
+    private volatile TermDictionary spellDictionary;
+    private volatile int spellDictionarySize;
+    private final AtomicBoolean spellRebuildQueued = new AtomicBoolean();
+    private final ExecutorService spellBuilder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "spelling-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // Extra entity types (order ids, SKUs, ...) can be added as EntityRecognizer beans
+    @Autowired(required = false)
+    private List<EntityRecognizer> entityRecognizers = List.of();
+    private EntityScanner entityScanner = EntityScanner.defaults();
+    
+    // Per-thread scratch vectors for query-side scoring
+    private final Scratch<TermVector[]> scratchVectors =
+        new Scratch<>(() -> new TermVector[]{new TermVector(), new TermVector()});
+
+    @PostConstruct
+    void buildEntityScanner() {
+        if (entityRecognizers.isEmpty()) return;
+        EntityScanner.Builder builder = EntityScanner.builder().addDefaults();
+        entityRecognizers.forEach(builder::add);
+        entityScanner = builder.build();
+    }
 
+    @PreDestroy
+    void shutdown() {
+        spellBuilder.shutdownNow();
+    }
+    
     public String preprocessText(String text) {
         if (text == null) return "";
         
-        // Convert to lowercase
-        text = text.toLowerCase();
-        
-        // Remove punctuation except for sentence endings
-        text = text.replaceAll("[^a-zA-Z0-9\\s.!?]", "");
-        
-        // Remove extra whitespace
-        text = text.replaceAll("\\s+", " ").trim();
-        
-        return text;
+        // Lowercase, drop punctuation except sentence endings and collapse whitespace in one pass
+        return Tokenizer.SENTENCE.normalize(text);
     }
 
     public List<String> tokenize(String text) {
-        String processed = preprocessText(text);
-        return Arrays.asList(processed.split("\\s+"));
+        Tokens tokens = Tokenizer.SENTENCE.tokenize(text);
+        if (tokens.isEmpty()) return List.of("");
+        
+        String[] result = new String[tokens.count()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = tokens.token(i);
+        }
+        return Arrays.asList(result);
     }
 
     public List<String> removeStopWords(List<String> tokens) {
@@ -49,96 +174,160 @@ public class NLPService {
     }
 
     public Map<String, Integer> extractKeywords(String text) {
-        List<String> tokens = tokenize(text);
-        List<String> filtered = removeStopWords(tokens);
+        Tokens tokens = Tokenizer.SENTENCE.tokenize(text);
         
+        // Stop words are checked on the token spans, so only keywords become strings
         Map<String, Integer> keywords = new HashMap<>();
-        for (String word : filtered) {
-            keywords.put(word, keywords.getOrDefault(word, 0) + 1);
+        for (int i = 0; i < tokens.count(); i++) {
+            if (!stopWords.contains(tokens, i)) {
+                keywords.merge(tokens.token(i), 1, Integer::sum);
+            }
         }
         
         return keywords;
     }
-
-    public double calculateSimilarity(String text1, String text2) {
-        Map<String, Integer> keywords1 = extractKeywords(text1);
-        Map<String, Integer> keywords2 = extractKeywords(text2);
-        
-        Set<String> allWords = new HashSet<>();
-        allWords.addAll(keywords1.keySet());
-        allWords.addAll(keywords2.keySet());
-        
-        if (allWords.isEmpty()) return 0.0;
-        
-        double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
-        
-        for (String word : allWords) {
-            int freq1 = keywords1.getOrDefault(word, 0);
-            int freq2 = keywords2.getOrDefault(word, 0);
-            
-            dotProduct += freq1 * freq2;
-            norm1 += freq1 * freq1;
-            norm2 += freq2 * freq2;
+    
+    public boolean hasKeywords(String text) {
+        Tokens tokens = Tokenizer.SENTENCE.tokenize(text);
+        for (int i = 0; i < tokens.count(); i++) {
+            if (!stopWords.contains(tokens, i)) return true;
         }
-        
-        if (norm1 == 0.0 || norm2 == 0.0) return 0.0;
-        
-        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
+        return false;
+    }
+    
+    public int countTokens(String text) {
+        return Tokenizer.SENTENCE.tokenize(text).count();
+    }
+    
+    // Long-lived keyword vector for a training pattern; its terms are added to the dictionary
+    public TermVector termVector(String text, TermDictionary dictionary) {
+        Tokens tokens = Tokenizer.SENTENCE.tokenize(text);
+        return new TermVector().fill(tokens, stopWords, dictionary, true).compact();
+    }
+    
+    // Keyword vector for a message against the dictionary of a model, so ids match its pattern
+    // index; valid until the next call on this thread
+    public TermVector queryVector(String text, TermDictionary dictionary) {
+        Tokens tokens = Tokenizer.SENTENCE.tokenize(text);
+        return scratchVectors.get()[0].fill(tokens, stopWords, dictionary, false);
     }
 
-    public String extractIntent(String text) {
-        String processed = preprocessText(text);
+    public double calculateSimilarity(String text1, String text2, ModelSnapshot model) {
+        TermDictionary dictionary = model.getDictionary();
+        TermVector[] vectors = scratchVectors.get();
+        TermVector vector1 = vectors[0].fill(Tokenizer.SENTENCE.tokenize(text1), stopWords, dictionary, false);
+        TermVector vector2 = vectors[1].fill(Tokenizer.SENTENCE.tokenize(text2), stopWords, dictionary, false);
         
-        // Simple intent classification based on keywords and patterns
-        if (containsPattern(processed, Arrays.asList("hello", "hi", "hey", "good morning", "good afternoon"))) {
-            return "greeting";
-        } else if (containsPattern(processed, Arrays.asList("bye", "goodbye", "see you", "farewell"))) {
-            return "goodbye";
-        } else if (containsPattern(processed, Arrays.asList("help", "assist", "support"))) {
-            return "help";
-        } else if (containsPattern(processed, Arrays.asList("what", "how", "when", "where", "why", "?"))) {
-            return "question";
-        } else if (containsPattern(processed, Arrays.asList("thank", "thanks", "appreciate"))) {
-            return "gratitude";
-        } else if (containsPattern(processed, Arrays.asList("price", "cost", "fee", "payment"))) {
-            return "pricing";
-        } else if (containsPattern(processed, Arrays.asList("product", "service", "feature"))) {
-            return "product_inquiry";
-        } else {
-            return "general";
-        }
+        return TermVector.cosine(vector1, vector2);
+    }
+    
+    // Intent keywords of a model built from the built-in corpus
+    public KeywordAutomaton defaultIntentAutomaton() {
+        return INTENT_AUTOMATON;
     }
 
-    private boolean containsPattern(String text, List<String> patterns) {
-        for (String pattern : patterns) {
-            if (text.contains(pattern)) {
-                return true;
-            }
+    // Replaces words of preprocessed text that are neither in the vocabulary (training terms,
+    // intent keywords, stop words) nor common English words with the closest term within
+    // edit distance 1-2. Text passes through unchanged until the first index is built.
+    public String correctSpelling(String text, ModelSnapshot model) {
+        if (!spellingEnabled || text == null || text.isEmpty()) return text;
+        SpellCorrector corrector = spellCorrector(model);
+        return corrector != null ? corrector.correct(text) : text;
+    }
+    
+    // Starts building the index for a model on the spelling-index thread, e.g. at startup
+    public void prepareSpelling(ModelSnapshot model) {
+        if (spellingEnabled) spellCorrector(model);
+    }
+    
+    // Null until the first index is built; requests never build it themselves
+    public SpellCorrector spellCorrector(ModelSnapshot model) {
+        TermDictionary dictionary = model.getDictionary();
+        SpellCorrector corrector = spellCorrector;
+        // No index yet, new training terms or a new model: keep serving the current one while it is rebuilt
+        if ((corrector == null || spellDictionary != dictionary || spellDictionarySize != dictionary.size())
+                && spellRebuildQueued.compareAndSet(false, true)) {
+            spellBuilder.execute(() -> {
+                try {
+                    refreshSpelling(dictionary);
+                } catch (RuntimeException e) {
+                    log.error("Spelling index rebuild failed", e);
+                } finally {
+                    spellRebuildQueued.set(false);
+                }
+            });
         }
-        return false;
+        return corrector;
     }
-
-    public List<String> extractEntities(String text) {
-        List<String> entities = new ArrayList<>();
-        String processed = preprocessText(text);
-        
-        // Simple entity extraction (can be enhanced with more sophisticated NER)
-        Pattern emailPattern = Pattern.compile("\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Z|a-z]{2,}\\b");
-        Pattern phonePattern = Pattern.compile("\\b\\d{3}-\\d{3}-\\d{4}\\b|\\b\$$\\d{3}\$$\\s*\\d{3}-\\d{4}\\b");
-        Pattern numberPattern = Pattern.compile("\\b\\d+\\b");
+    
+    private void refreshSpelling(TermDictionary dictionary) {
+        int size = dictionary.size();
+        SpellCorrector.Builder builder = SpellCorrector.builder()
+            .maxDistance(spellingMaxDistance)
+            .prefixLength(spellingPrefixLength)
+            .maxBytes(spellingMaxMemoryMb << 20)
+            .maxCandidates(spellingMaxCandidates)
+            .latencyBudgetMicros(spellingLatencyBudgetMicros)
+            .addCommonWords(1)
+            .englishLexicon(true);
+        for (String[] row : INTENT_KEYWORDS) {
+            for (int i = 1; i < row.length; i++) {
+                for (String word : row[i].split(" ")) builder.add(word, 1);
+            }
+        }
+        for (String stopWord : stopWords.values()) builder.add(stopWord, STOP_WORD_WEIGHT);
+        for (int id = 0; id < size; id++) builder.add(dictionary.term(id), 1);
         
-        if (emailPattern.matcher(text).find()) {
-            entities.add("EMAIL");
+        SpellCorrector corrector = builder.build();
+        if (corrector.maxDistance() < spellingMaxDistance || corrector.prefixLength() < spellingPrefixLength) {
+            log.warn("Spelling index over {} MB: using distance {} and prefix length {}",
+                     spellingMaxMemoryMb, corrector.maxDistance(), corrector.prefixLength());
         }
-        if (phonePattern.matcher(text).find()) {
-            entities.add("PHONE");
+        spellDictionary = dictionary;
+        spellDictionarySize = size;
+        spellCorrector = corrector;
+    }
+    
+    private static KeywordAutomaton intentAutomaton(String[][] table) {
+        KeywordAutomaton.Builder builder = KeywordAutomaton.builder();
+        for (String[] row : table) {
+            builder.add(row[0], Arrays.copyOfRange(row, 1, row.length));
         }
-        if (numberPattern.matcher(text).find()) {
-            entities.add("NUMBER");
+        return builder.build();
+    }
+
+    // Built-in intent keywords by intent, e.g. as labelled examples for a trained classifier
+    public Map<String, List<String>> intentKeywords() {
+        return byIntent(INTENT_KEYWORDS);
+    }
+    
+    // Built-in example messages by intent
+    public Map<String, List<String>> intentExamples() {
+        return byIntent(INTENT_EXAMPLES);
+    }
+    
+    private static Map<String, List<String>> byIntent(String[][] table) {
+        Map<String, List<String>> byIntent = new LinkedHashMap<>();
+        for (String[] row : table) {
+            byIntent.put(row[0], List.of(Arrays.copyOfRange(row, 1, row.length)));
         }
-        
-        return entities;
+        return byIntent;
+    }
+
+    public String extractIntent(String text, ModelSnapshot model) {
+        String intent = matchIntent(preprocessText(text), model);
+        return intent != null ? intent : "general";
+    }
+    
+    // Intent keyword match on already preprocessed text, or null
+    public String matchIntent(String processed, ModelSnapshot model) {
+        // Single pass over the text; the first intent declared in the automaton wins
+        return model.getIntentAutomaton().match(processed);
+    }
+
+    // Typed spans over the raw text (offsets into it), found in one pass
+    public List<EntityScanner.Entity> extractEntities(String text) {
+        if (text == null) return List.of();
+        return entityScanner.scan(text);
     }
 }
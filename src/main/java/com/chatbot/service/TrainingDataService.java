@@ -1,19 +1,290 @@
 package com.chatbot.service;
 
+import com.chatbot.model.TrainingCorpus;
+import com.chatbot.nlp.KeywordAutomaton;
+import com.chatbot.nlp.ModelSnapshot;
+import com.chatbot.nlp.PatternIndex;
+import com.chatbot.nlp.TermDictionary;
+import com.chatbot.storage.TrainingLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import javax.annotation.PostConstruct;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class TrainingDataService {
     
+    private static final Logger log = LoggerFactory.getLogger(TrainingDataService.class);
+    
+    @Autowired
+    private NLPService nlpService;
+    
+    // Compiled model (see ModelCompiler); empty or missing means build from the built-in corpus
+    @Value("${chat.model.snapshot:}")
+    private String modelSnapshot;
+    
+    // Durable runtime additions (see TrainingLog); empty keeps them in memory only
+    @Value("${chat.training.log.dir:}")
+    private String trainingLogDir;
+    
+    // Patterns added since the last base that trigger a background compaction
+    @Value("${chat.training.log.compact-threshold:1000}")
+    private int compactThreshold;
+    
+    // Compacts anything logged since the last base at least this often
+    @Value("${chat.training.log.compact-interval-seconds:600}")
+    private long compactIntervalSeconds;
+    
+    // Writer-side state, only touched under the lock. trainingData holds patterns for a full
+    // build and is dropped once the index is published.
     private Map<String, List<String>> trainingData;
     private Map<String, List<String>> intentResponses;
     
+    // Published model: immutable, replaced by a single volatile write and read without locks.
+    // It is the only copy; NLPService works on whichever model its caller read.
+    private volatile ModelSnapshot model;
+    
+    private TrainingLog trainingLog;
+    private ScheduledExecutorService compactor;
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+    // Held for a whole compaction, outside the monitor of this. A reload takes it too, so it
+    // never lands between a compaction capturing the model and publishing its base.
+    private final Object compactionLock = new Object();
+    // Entries applied after the log was rolled for a running compaction, re-applied on its result
+    private List<TrainingLog.Entry> sinceRoll;
+    private boolean dirty;
+    
     @PostConstruct
-    public void initializeTrainingData() {
+    public synchronized void initializeTrainingData() {
+        if (trainingLogDir.isBlank()) {
+            loadInitialModel();
+            return;
+        }
+        
+        try {
+            trainingLog = TrainingLog.open(Path.of(trainingLogDir));
+            Optional<Path> base = trainingLog.latestBase();
+            if (base.isPresent()) {
+                loadSnapshot(base.get());
+            } else {
+                loadInitialModel();
+            }
+            int replayed = trainingLog.replay(this::apply);
+            trainingLog.start();
+            log.info("Training log {}: replayed {} entries", trainingLogDir, replayed);
+            dirty = replayed > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open training log " + trainingLogDir, e);
+        }
+        
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "training-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            if (isDirty()) compact();
+        }, compactIntervalSeconds, compactIntervalSeconds, TimeUnit.SECONDS);
+        maybeCompact();
+    }
+    
+    @PreDestroy
+    public void shutdown() throws IOException, InterruptedException {
+        // Let a running compaction finish; it needs the log to roll and commit its base
+        if (compactor != null) {
+            compactor.shutdown();
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        if (trainingLog != null) trainingLog.close();
+    }
+    
+    private void loadInitialModel() {
+        if (!modelSnapshot.isBlank()) {
+            Path file = Path.of(modelSnapshot);
+            try {
+                if (Files.isRegularFile(file)) {
+                    loadSnapshot(file);
+                    return;
+                }
+                log.warn("Model snapshot {} not found, building the model from the built-in corpus", file);
+            } catch (IOException e) {
+                log.warn("Could not load model snapshot {}, building the model from the built-in corpus", file, e);
+            }
+        }
         loadTrainingData();
         loadIntentResponses();
+        publish(new TermDictionary(), nlpService.defaultIntentAutomaton());
+    }
+    
+    // Replaces the whole model with a compiled snapshot or a JSON corpus file. The new model is
+    // built off to the side and swapped in at once; requests keep using the old one until then.
+    // With a training log the result is compacted into a new base before returning; a compaction
+    // already running is waited for, or it would publish its older model over this one.
+    public ModelSnapshot reload(Path file) throws IOException {
+        synchronized (compactionLock) {
+            synchronized (this) {
+                if (ModelSnapshot.isSnapshot(file)) {
+                    loadSnapshot(file);
+                } else {
+                    TrainingCorpus corpus = new ObjectMapper().readValue(file.toFile(), TrainingCorpus.class);
+                    trainingData = new HashMap<>();
+                    corpus.getPatterns().forEach((pattern, responses) ->
+                        trainingData.merge(pattern.toLowerCase(), List.copyOf(responses), TrainingDataService::concat));
+                    if (!corpus.getIntents().isEmpty()) {
+                        intentResponses = new HashMap<>(corpus.getIntents());
+                    }
+                
+                    // Fresh dictionary, so terms only used by the old corpus are dropped with it
+                    publish(new TermDictionary(), model.getIntentAutomaton());
+                    log.info("Reloaded corpus {}: {} patterns, {} terms", file, model.getPatternIndex().size(), model.getDictionary().size());
+                }
+                dirty = true;
+            }
+        }
+        if (trainingLog != null) compact().join();
+        return model;
+    }
+    
+    private void loadSnapshot(Path file) throws IOException {
+        ModelSnapshot snapshot = ModelSnapshot.map(file);
+        intentResponses = new HashMap<>(snapshot.getIntentResponses());
+        publish(new ModelSnapshot(snapshot.getDictionary(), snapshot.getPatternIndex(),
+                                  freeze(intentResponses), snapshot.getIntentAutomaton()));
+        log.info("Mapped model snapshot {}: {} patterns, {} terms", file,
+                 snapshot.getPatternIndex().size(), snapshot.getDictionary().size());
+    }
+    
+    // Builds a new pattern index from trainingData and publishes it
+    private void publish(TermDictionary dictionary, KeywordAutomaton automaton) {
+        PatternIndex index = PatternIndex.build(trainingData, text -> nlpService.termVector(text, dictionary));
+        trainingData = null;
+        publish(new ModelSnapshot(dictionary, index, freeze(intentResponses), automaton));
+    }
+    
+    private void publish(ModelSnapshot next) {
+        model = next;
+    }
+    
+    private static Map<String, List<String>> freeze(Map<String, List<String>> responses) {
+        Map<String, List<String>> frozen = new HashMap<>();
+        responses.forEach((key, values) -> frozen.put(key, List.copyOf(values)));
+        return Map.copyOf(frozen);
+    }
+    
+    // Applies one addition to the published model without rebuilding the index
+    private void apply(TrainingLog.Entry entry) {
+        publish(applyTo(model, entry));
+    }
+    
+    private ModelSnapshot applyTo(ModelSnapshot current, TrainingLog.Entry entry) {
+        if (entry.type() == TrainingLog.Type.INTENT) {
+            intentResponses.merge(entry.key(), List.of(entry.response()), TrainingDataService::concat);
+            return new ModelSnapshot(current.getDictionary(), current.getPatternIndex(),
+                                     freeze(intentResponses), current.getIntentAutomaton());
+        }
+        
+        PatternIndex index = current.getPatternIndex();
+        List<String> existing = index.responses(entry.key());
+        List<String> responses = existing == null ? List.of(entry.response()) : concat(existing, List.of(entry.response()));
+        // New terms are appended to the live dictionary; ids already in use never change
+        PatternIndex next = index.withPattern(entry.key(), responses,
+                                              nlpService.termVector(entry.key(), current.getDictionary()));
+        return new ModelSnapshot(current.getDictionary(), next, current.getIntentResponses(), current.getIntentAutomaton());
+    }
+    
+    // Applies and logs an addition; the future completes once it is durable (at once without a log)
+    public CompletableFuture<Void> ingest(TrainingLog.Entry entry) {
+        CompletableFuture<Void> durable;
+        synchronized (this) {
+            apply(entry);
+            durable = log(entry);
+        }
+        maybeCompact();
+        return durable;
+    }
+    
+    private CompletableFuture<Void> log(TrainingLog.Entry entry) {
+        if (trainingLog == null) return CompletableFuture.completedFuture(null);
+        dirty = true;
+        if (sinceRoll != null) sinceRoll.add(entry);
+        return trainingLog.append(entry);
+    }
+    
+    private synchronized boolean isDirty() {
+        return dirty;
+    }
+    
+    private void maybeCompact() {
+        if (trainingLog != null && model.getPatternIndex().deltaSize() >= compactThreshold) compact();
+    }
+    
+    // Folds the delta and everything logged so far into a new mapped base snapshot in the
+    // background. Requests and ingestion continue meanwhile; without a log this is a no-op.
+    public CompletableFuture<Void> compact() {
+        if (trainingLog == null) return CompletableFuture.completedFuture(null);
+        if (!compactionQueued.compareAndSet(false, true)) {
+            // Already queued; a compaction run after it picks up anything added since
+            return CompletableFuture.runAsync(() -> {}, compactor);
+        }
+        return CompletableFuture.runAsync(this::runCompaction, compactor);
+    }
+    
+    private void runCompaction() {
+        synchronized (compactionLock) {
+            compactOnce();
+        }
+    }
+    
+    private void compactOnce() {
+        compactionQueued.set(false);
+        ModelSnapshot captured;
+        CompletableFuture<Long> rolled;
+        synchronized (this) {
+            captured = model;
+            rolled = trainingLog.roll();
+            sinceRoll = new ArrayList<>();
+            dirty = false;
+        }
+        
+        try {
+            long start = System.nanoTime();
+            long sealed = rolled.join();
+            trainingLog.commitBase(captured, sealed);
+            ModelSnapshot base = ModelSnapshot.map(trainingLog.basePath(sealed));
+            
+            synchronized (this) {
+                // Rebase whatever was added while the base was being written, then publish once
+                intentResponses = new HashMap<>(base.getIntentResponses());
+                ModelSnapshot next = new ModelSnapshot(base.getDictionary(), base.getPatternIndex(),
+                                                       freeze(intentResponses), base.getIntentAutomaton());
+                for (TrainingLog.Entry entry : sinceRoll) next = applyTo(next, entry);
+                publish(next);
+                sinceRoll = null;
+            }
+            log.info("Compacted training log into {}: {} patterns in {} ms", trainingLog.basePath(sealed),
+                     base.getPatternIndex().size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException | IOException e) {
+            // Nothing is lost: the segments stay until a later compaction succeeds
+            log.error("Training log compaction failed", e);
+            synchronized (this) {
+                sinceRoll = null;
+                dirty = true;
+            }
+        }
     }
     
     private void loadTrainingData() {
@@ -172,18 +443,58 @@ public class TrainingDataService {
     }
     
     public Map<String, List<String>> getTrainingData() {
-        return trainingData;
+        return model.getPatternIndex().asMap();
+    }
+    
+    // The published model; read it once per request so every lookup sees the same data
+    public ModelSnapshot getModel() {
+        return model;
+    }
+    
+    public PatternIndex getPatternIndex() {
+        return model.getPatternIndex();
     }
     
     public List<String> getResponsesForIntent(String intent) {
-        return intentResponses.getOrDefault(intent, new ArrayList<>());
+        return model.getIntentResponses().getOrDefault(intent, List.of());
+    }
+    
+    // Current model in the form written by ModelSnapshot
+    public ModelSnapshot toSnapshot() {
+        return model;
     }
     
     public void addTrainingData(String pattern, String response) {
-        trainingData.computeIfAbsent(pattern.toLowerCase(), k -> new ArrayList<>()).add(response);
+        ingest(new TrainingLog.Entry(TrainingLog.Type.PATTERN, pattern.toLowerCase(), response)).join();
+    }
+    
+    public void addTrainingData(Map<String, List<String>> patterns) {
+        // Bulk load: the pattern index is rebuilt once instead of updated per pattern
+        List<CompletableFuture<Void>> durable = new ArrayList<>();
+        synchronized (this) {
+            ModelSnapshot current = model;
+            trainingData = new HashMap<>(current.getPatternIndex().asMap());
+            for (Map.Entry<String, List<String>> entry : patterns.entrySet()) {
+                String pattern = entry.getKey().toLowerCase();
+                trainingData.merge(pattern, entry.getValue(), TrainingDataService::concat);
+                for (String response : entry.getValue()) {
+                    durable.add(log(new TrainingLog.Entry(TrainingLog.Type.PATTERN, pattern, response)));
+                }
+            }
+            publish(current.getDictionary(), current.getIntentAutomaton());
+        }
+        CompletableFuture.allOf(durable.toArray(new CompletableFuture[0])).join();
     }
     
     public void addIntentResponse(String intent, String response) {
-        intentResponses.computeIfAbsent(intent, k -> new ArrayList<>()).add(response);
+        ingest(new TrainingLog.Entry(TrainingLog.Type.INTENT, intent, response)).join();
+    }
+    
+    // Built-in response lists are fixed-size, so additions go into a fresh list
+    private static List<String> concat(List<String> existing, List<String> added) {
+        List<String> merged = new ArrayList<>(existing.size() + added.size());
+        merged.addAll(existing);
+        merged.addAll(added);
+        return merged;
     }
 }
@@ -0,0 +1,277 @@
+package com.chatbot.session;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Last N turns per conversation, keyed by a client-chosen session id. Each session is one fixed-size
+// ring of packed longs, so its heap cost is known up front and the store can hold a memory budget.
+// Sessions are spread over lock stripes, each an access-ordered map; idle sessions are swept from
+// the cold end and, when over budget, the coldest session of the next stripe is evicted.
+public final class SessionStore implements Closeable {
+
+    // One turn as returned to callers, oldest first in history()
+    public record Turn(String intent, float confidence, long timestamp, String messageId) {}
+
+    // Packed turn: intent code (8 bits) | confidence * 4095 (12 bits) | millis since epoch (44 bits)
+    private static final int CONFIDENCE_SHIFT = 44;
+    private static final int INTENT_SHIFT = 56;
+    private static final long TIME_MASK = (1L << CONFIDENCE_SHIFT) - 1;
+    private static final int CONFIDENCE_SCALE = 4095;
+    private static final int MAX_INTENTS = 255;
+    // Ids are capped so that every session costs about the same
+    private static final int MAX_ID_LENGTH = 128;
+
+    // Rough per-session overhead: Session object, ring array header, map entry and table slot
+    private static final int SESSION_OVERHEAD = 40 + 16 + 40 + 16;
+
+    private final int turnsPerSession;
+    private final long maxBytes;
+    private final long idleTimeoutMillis;
+    private final long epochMillis = System.currentTimeMillis();
+
+    private final Stripe[] stripes;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicInteger evictCursor = new AtomicInteger();
+    private final LongAdder idleEvictions = new LongAdder();
+    private final LongAdder budgetEvictions = new LongAdder();
+
+    // Intent names are stored as a byte code; code 0 is "unknown" once the table is full
+    private final Map<String, Integer> intentCodes = new ConcurrentHashMap<>();
+    private final String[] intentNames = new String[MAX_INTENTS + 1];
+    private final AtomicInteger intentCount = new AtomicInteger(1);
+
+    // Message references are unique per node and roughly time-ordered across restarts
+    private final AtomicLong messageRefs = new AtomicLong(System.currentTimeMillis() << 16);
+
+    private final ScheduledExecutorService sweeper;
+
+    private static final class Session {
+        final String id;
+        final long[] ring;
+        int head;
+        int count;
+        long lastAccess;
+
+        Session(String id, int turns) {
+            this.id = id;
+            this.ring = new long[turns * 2];
+        }
+    }
+
+    private static final class Stripe {
+        final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public SessionStore(int turnsPerSession, long maxBytes, long idleTimeoutMillis, int stripeCount) {
+        if (turnsPerSession <= 0) throw new IllegalArgumentException("turnsPerSession must be positive");
+        this.turnsPerSession = turnsPerSession;
+        this.maxBytes = maxBytes;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+
+        int count = Integer.highestOneBit(Math.max(1, stripeCount) * 2 - 1);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) stripes[i] = new Stripe();
+        intentNames[0] = "unknown";
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 4);
+        sweeper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public static boolean isValidId(String sessionId) {
+        return !sessionId.isBlank() && sessionId.length() <= MAX_ID_LENGTH;
+    }
+
+    // Reference for a new message, also used as its id when there is no session
+    public long nextMessageRef() {
+        return messageRefs.incrementAndGet();
+    }
+
+    // Public form of a message reference, as set on ChatMessage/FastMessage ids
+    public static String messageId(long ref) {
+        return Long.toString(ref, 36);
+    }
+
+    // Appends a turn, creating the session if needed and dropping its oldest turn when full
+    public void record(String sessionId, String intent, float confidence, long timestampMillis, long ref) {
+        long packed = ((long) intentCode(intent) << INTENT_SHIFT)
+            | ((long) Math.round(Math.max(0f, Math.min(1f, confidence)) * CONFIDENCE_SCALE) << CONFIDENCE_SHIFT)
+            | (Math.max(0, timestampMillis - epochMillis) & TIME_MASK);
+
+        Stripe stripe = stripeFor(sessionId);
+        boolean created = false;
+        synchronized (stripe) {
+            Session session = stripe.sessions.get(sessionId);
+            if (session == null) {
+                session = new Session(sessionId, turnsPerSession);
+                stripe.sessions.put(sessionId, session);
+                created = true;
+            }
+            int slot = (session.head + session.count) % turnsPerSession;
+            if (session.count < turnsPerSession) {
+                session.count++;
+            } else {
+                session.head = (session.head + 1) % turnsPerSession;
+            }
+            session.ring[slot * 2] = packed;
+            session.ring[slot * 2 + 1] = ref;
+            session.lastAccess = System.currentTimeMillis();
+        }
+
+        if (created && usedBytes.addAndGet(sessionBytes(sessionId)) > maxBytes) {
+            evictOverBudget(sessionId);
+        }
+    }
+
+    // Turns of the session, oldest first; empty if unknown or evicted
+    public List<Turn> history(String sessionId) {
+        Stripe stripe = stripeFor(sessionId);
+        long[] copy;
+        int head, count;
+        synchronized (stripe) {
+            Session session = stripe.sessions.get(sessionId);
+            if (session == null) return List.of();
+            session.lastAccess = System.currentTimeMillis();
+            copy = session.ring.clone();
+            head = session.head;
+            count = session.count;
+        }
+
+        List<Turn> turns = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int slot = (head + i) % turnsPerSession;
+            turns.add(unpack(copy[slot * 2], copy[slot * 2 + 1]));
+        }
+        return turns;
+    }
+
+    // Most recent turn, or null
+    public Turn lastTurn(String sessionId) {
+        Stripe stripe = stripeFor(sessionId);
+        synchronized (stripe) {
+            Session session = stripe.sessions.get(sessionId);
+            if (session == null || session.count == 0) return null;
+            int slot = (session.head + session.count - 1) % turnsPerSession;
+            return unpack(session.ring[slot * 2], session.ring[slot * 2 + 1]);
+        }
+    }
+
+    public boolean remove(String sessionId) {
+        Stripe stripe = stripeFor(sessionId);
+        synchronized (stripe) {
+            if (stripe.sessions.remove(sessionId) == null) return false;
+        }
+        usedBytes.addAndGet(-sessionBytes(sessionId));
+        return true;
+    }
+
+    // Drops sessions idle for longer than the timeout; also runs periodically on the sweeper thread
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        for (Stripe stripe : stripes) {
+            long freed = 0;
+            synchronized (stripe) {
+                // Access order: the first entries are the least recently used
+                Iterator<Session> it = stripe.sessions.values().iterator();
+                while (it.hasNext()) {
+                    Session session = it.next();
+                    if (session.lastAccess >= cutoff) break;
+                    it.remove();
+                    freed += sessionBytes(session.id);
+                    idleEvictions.increment();
+                }
+            }
+            if (freed > 0) usedBytes.addAndGet(-freed);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int sessions = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                sessions += stripe.sessions.size();
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessions);
+        stats.put("turnsPerSession", turnsPerSession);
+        stats.put("estimatedBytes", usedBytes.get());
+        stats.put("maxBytes", maxBytes);
+        stats.put("idleEvictions", idleEvictions.sum());
+        stats.put("budgetEvictions", budgetEvictions.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    // Fixed cost of one session: ring of 2 longs per turn plus key and bookkeeping
+    private long sessionBytes(String sessionId) {
+        return SESSION_OVERHEAD + 16L * turnsPerSession + 40 + sessionId.length();
+    }
+
+    private void evictOverBudget(String keep) {
+        // Coldest session of each stripe in turn, an approximation of global LRU without a global lock
+        for (int attempts = 0; usedBytes.get() > maxBytes && attempts < stripes.length * 2; attempts++) {
+            Stripe stripe = stripes[evictCursor.getAndIncrement() & (stripes.length - 1)];
+            Session evicted = null;
+            synchronized (stripe) {
+                Iterator<Session> it = stripe.sessions.values().iterator();
+                if (it.hasNext()) {
+                    Session eldest = it.next();
+                    if (!eldest.id.equals(keep)) {
+                        it.remove();
+                        evicted = eldest;
+                    }
+                }
+            }
+            if (evicted != null) {
+                usedBytes.addAndGet(-sessionBytes(evicted.id));
+                budgetEvictions.increment();
+            }
+        }
+    }
+
+    private Stripe stripeFor(String sessionId) {
+        int h = sessionId.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private int intentCode(String intent) {
+        if (intent == null) return 0;
+        Integer code = intentCodes.get(intent);
+        if (code != null) return code;
+
+        synchronized (intentCodes) {
+            code = intentCodes.get(intent);
+            if (code != null) return code;
+            int next = intentCount.get();
+            if (next > MAX_INTENTS) return 0;
+            intentNames[next] = intent;
+            intentCount.set(next + 1);
+            intentCodes.put(intent, next);
+            return next;
+        }
+    }
+
+    private Turn unpack(long packed, long ref) {
+        int code = (int) (packed >>> INTENT_SHIFT);
+        // Three decimals is all the 12-bit quantization holds
+        float confidence = Math.round(((packed >>> CONFIDENCE_SHIFT) & 0xFFF) * 1000f / CONFIDENCE_SCALE) / 1000f;
+        long timestamp = epochMillis + (packed & TIME_MASK);
+        return new Turn(intentNames[code], confidence, timestamp, messageId(ref));
+    }
+}
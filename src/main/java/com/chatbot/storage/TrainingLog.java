@@ -0,0 +1,283 @@
+package com.chatbot.storage;
+
+import com.chatbot.nlp.ModelSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+// Append-only log of training additions, kept next to the base snapshot it applies to:
+//   base-<n>.snap       compacted model containing every segment up to n
+//   training-<n>.log    records appended after that, one segment per roll
+// A single writer thread drains pending appends and fsyncs once per batch (group commit);
+// each append completes only after the fsync that covers it.
+public final class TrainingLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TrainingLog.class);
+
+    private static final Pattern SEGMENT = Pattern.compile("training-(\\d+)\\.log");
+    private static final Pattern BASE = Pattern.compile("base-(\\d+)\\.snap");
+    // Record header: payload length and CRC32C of the payload
+    private static final int HEADER = 8;
+    private static final int MAX_BATCH = 4096;
+
+    public enum Type { PATTERN, INTENT }
+
+    // A response added to a training pattern or an intent
+    public record Entry(Type type, String key, String response) {}
+
+    // A null entry marks a segment roll
+    private record Op(Entry entry, CompletableFuture<Void> done) {}
+
+    private final Path dir;
+    private final LinkedBlockingQueue<Op> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Segment new appends go to, advanced by roll(). The writer thread follows it through the
+    // roll markers in the queue, so channelSegment is only touched by that thread.
+    private long activeSegment;
+    private long channelSegment;
+    private FileChannel channel;
+
+    private TrainingLog(Path dir, long activeSegment) {
+        this.dir = dir;
+        this.activeSegment = activeSegment;
+        this.channelSegment = activeSegment;
+        this.writer = new Thread(this::writeLoop, "training-log");
+        this.writer.setDaemon(true);
+    }
+
+    // Opens the directory; call replay() and then start() before appending
+    public static TrainingLog open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        long last = Math.max(latest(dir, SEGMENT), latest(dir, BASE));
+        return new TrainingLog(dir, last + 1);
+    }
+
+    // Newest compacted model, if any
+    public Optional<Path> latestBase() {
+        long base = latest(dir, BASE);
+        return base < 0 ? Optional.empty() : Optional.of(basePath(base));
+    }
+
+    // Applies every record written after the newest base, in order. A torn record at the end of a
+    // segment (crash mid-write) is truncated away.
+    public int replay(Consumer<Entry> consumer) throws IOException {
+        long base = latest(dir, BASE);
+        int replayed = 0;
+        for (long segment : list(dir, SEGMENT)) {
+            if (segment <= base) continue;
+            replayed += replaySegment(segmentPath(segment), consumer);
+        }
+        return replayed;
+    }
+
+    public void start() {
+        writer.start();
+    }
+
+    public CompletableFuture<Void> append(Entry entry) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (!running) {
+            done.completeExceptionally(new IllegalStateException("Training log is closed"));
+            return done;
+        }
+        queue.add(new Op(entry, done));
+        return done;
+    }
+
+    // Seals the active segment; later appends go to a new one. The future completes with the sealed
+    // segment's number once it is synced and closed. Callers must not append concurrently with a
+    // roll, so that they know which side of it each record is on.
+    public synchronized CompletableFuture<Long> roll() {
+        if (!running) return CompletableFuture.failedFuture(new IllegalStateException("Training log is closed"));
+        long sealed = activeSegment++;
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new Op(null, done));
+        return done.thenApply(ignored -> sealed);
+    }
+
+    // Stores a model covering every segment up to and including the given one, then drops
+    // those segments and older bases. The base is renamed into place before anything is deleted.
+    public void commitBase(ModelSnapshot model, long throughSegment) throws IOException {
+        Path base = basePath(throughSegment);
+        model.write(base);
+        for (long segment : list(dir, SEGMENT)) {
+            if (segment <= throughSegment) Files.deleteIfExists(segmentPath(segment));
+        }
+        for (long older : list(dir, BASE)) {
+            if (older < throughSegment) Files.deleteIfExists(basePath(older));
+        }
+    }
+
+    public Path basePath(long segment) {
+        return dir.resolve(String.format("base-%016d.snap", segment));
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // No interrupt: it would close the channel in the middle of a write
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (channel != null) channel.close();
+    }
+
+    private void writeLoop() {
+        List<Op> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Op first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+            } catch (InterruptedException e) {
+                if (queue.isEmpty()) break;
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+
+            try {
+                writeBatch(batch);
+                for (Op op : batch) {
+                    op.done().complete(null);
+                }
+            } catch (IOException e) {
+                log.error("Training log write failed", e);
+                for (Op op : batch) {
+                    op.done().completeExceptionally(new UncheckedIOException(e));
+                }
+            }
+            batch.clear();
+        }
+        for (Op op : queue) {
+            op.done().completeExceptionally(new IllegalStateException("Training log is closed"));
+        }
+    }
+
+    private void writeBatch(List<Op> batch) throws IOException {
+        for (Op op : batch) {
+            if (op.entry() == null) {
+                // Roll marker: finish the sealed segment, the next record opens a new one
+                if (channel != null) {
+                    channel.force(false);
+                    channel.close();
+                    channel = null;
+                }
+                channelSegment++;
+                continue;
+            }
+            ensureChannel();
+            ByteBuffer record = encode(op.entry());
+            while (record.hasRemaining()) channel.write(record);
+        }
+        if (channel != null) channel.force(false);
+    }
+
+    private void ensureChannel() throws IOException {
+        if (channel != null) return;
+        channel = FileChannel.open(segmentPath(channelSegment),
+                                   StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static ByteBuffer encode(Entry entry) {
+        byte[] key = entry.key().getBytes(StandardCharsets.UTF_8);
+        byte[] response = entry.response().getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 4 + key.length + 4 + response.length;
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + length);
+        buffer.putInt(length).putInt(0);
+        buffer.put((byte) entry.type().ordinal());
+        buffer.putInt(key.length).put(key);
+        buffer.putInt(response.length).put(response);
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), HEADER, length);
+        buffer.putInt(4, (int) crc.getValue());
+        return buffer.flip();
+    }
+
+    private static int replaySegment(Path file, Consumer<Entry> consumer) throws IOException {
+        int replayed = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (position + HEADER <= size) {
+                header.clear();
+                in.read(header, position);
+                int length = header.getInt(0);
+                int checksum = header.getInt(4);
+                if (length <= 0 || position + HEADER + length > size) break;
+
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                in.read(payload, position + HEADER);
+                CRC32C crc = new CRC32C();
+                crc.update(payload.array(), 0, length);
+                if ((int) crc.getValue() != checksum) break;
+
+                consumer.accept(decode(payload.flip()));
+                replayed++;
+                position += HEADER + length;
+            }
+            if (position < size) {
+                log.warn("Truncating {} bytes of incomplete records from {}", size - position, file);
+                in.truncate(position);
+            }
+        }
+        return replayed;
+    }
+
+    private static Entry decode(ByteBuffer payload) {
+        Type type = Type.values()[payload.get()];
+        byte[] key = new byte[payload.getInt()];
+        payload.get(key);
+        byte[] response = new byte[payload.getInt()];
+        payload.get(response);
+        return new Entry(type, new String(key, StandardCharsets.UTF_8), new String(response, StandardCharsets.UTF_8));
+    }
+
+    private Path segmentPath(long segment) {
+        return dir.resolve(String.format("training-%016d.log", segment));
+    }
+
+    private static long latest(Path dir, Pattern pattern) {
+        List<Long> numbers = list(dir, pattern);
+        return numbers.isEmpty() ? -1 : numbers.get(numbers.size() - 1);
+    }
+
+    private static List<Long> list(Path dir, Pattern pattern) {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Matcher m = pattern.matcher(file.getFileName().toString());
+                if (m.matches()) numbers.add(Long.parseLong(m.group(1)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+}
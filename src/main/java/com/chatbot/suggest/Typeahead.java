@@ -0,0 +1,253 @@
+package com.chatbot.suggest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Typeahead over seed phrases (training patterns, starter questions), ranked by how often users
+// send them. Request threads only read the current index and drop queries into a bounded queue;
+// one updater thread bumps the counts of known phrases in place and periodically rebuilds the
+// index, then swaps it in. Suggestions are shown to every user, so queries that are not already
+// known phrases are ignored unless a newPhrases filter is given: then those it accepts are
+// collected and join on a rebuild once seen at least minCount times.
+// With a query log file, phrase counts are loaded from it at startup and written back on rebuild.
+public final class Typeahead implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(Typeahead.class);
+
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final int MAX_BATCH = 4096;
+    // New phrases tracked between rebuilds
+    private static final int MAX_PENDING = 100_000;
+
+    private final int maxPhrases;
+    private final int minCount;
+    private final long rebuildIntervalMillis;
+    private final Path queryLog;
+    private final Supplier<? extends Collection<String>> seeds;
+    private final Supplier<?> seedVersion;
+    private final Predicate<String> newPhrases;
+
+    private volatile TypeaheadIndex index;
+
+    private final ArrayBlockingQueue<String> queries = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder dropped = new LongAdder();
+    private final Thread updater;
+    private volatile boolean running = true;
+
+    // Updater thread only
+    private final Map<String, Integer> pending = new HashMap<>();
+    private boolean dirty;
+    private Object builtSeedVersion;
+    private long lastRebuild = System.currentTimeMillis();
+    private volatile long rebuilds;
+
+    // queryLog may be null. seedVersion returns a new object whenever the seeds change (e.g. the
+    // current model), which triggers a rebuild so new training patterns show up; null if they never
+    // do. newPhrases null keeps the typeahead to the seeds.
+    public Typeahead(int maxPhrases, int minCount, long rebuildIntervalMillis, Path queryLog,
+                     Supplier<? extends Collection<String>> seeds, Supplier<?> seedVersion,
+                     Predicate<String> newPhrases) {
+        this.maxPhrases = maxPhrases;
+        this.minCount = Math.max(1, minCount);
+        this.rebuildIntervalMillis = rebuildIntervalMillis;
+        this.queryLog = queryLog;
+        this.seeds = seeds;
+        this.seedVersion = seedVersion;
+        this.newPhrases = newPhrases;
+
+        Map<String, Integer> counts = new HashMap<>();
+        if (queryLog != null && Files.exists(queryLog)) {
+            try {
+                readQueryLog(queryLog, counts);
+            } catch (IOException e) {
+                log.warn("Could not read query log {}", queryLog, e);
+            }
+        }
+        this.index = TypeaheadIndex.build(withSeeds(counts), maxPhrases);
+
+        this.updater = new Thread(this::updateLoop, "typeahead-updater");
+        this.updater.setDaemon(true);
+        this.updater.start();
+    }
+
+    // Up to k completions of the prefix, most popular first; an empty prefix gives the top phrases
+    public List<String> complete(String prefix, int k) {
+        return index.complete(normalize(prefix == null ? "" : prefix, false), k);
+    }
+
+    // Counts a sent query towards popularity. Never blocks: when the updater falls behind, drops it.
+    public void record(String query) {
+        if (query != null && !queries.offer(query)) dropped.increment();
+    }
+
+    public Map<String, Object> stats() {
+        TypeaheadIndex current = index;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("phrases", current.size());
+        stats.put("estimatedBytes", current.estimatedBytes());
+        stats.put("queued", queries.size());
+        stats.put("dropped", dropped.sum());
+        stats.put("rebuilds", rebuilds);
+        return stats;
+    }
+
+    // Stops the updater after a last rebuild, so the query log keeps the latest counts
+    @Override
+    public void close() {
+        // No interrupt: it would close the query log channel in the middle of a write
+        running = false;
+        try {
+            updater.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Lower case, punctuation at the end of words dropped ("cost?" and "cost" are one phrase, "it's"
+    // is kept) and whitespace runs collapsed to one space. Leading space is dropped; trailing space
+    // is kept for prefixes, where "how " and "how" complete differently.
+    static String normalize(String text, boolean trimEnd) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(text.charAt(i))) i++;
+            int start = i;
+            // Just past the last letter or digit of the word; a word without any is dropped
+            int end = i;
+            while (i < length && !Character.isWhitespace(text.charAt(i))) {
+                if (Character.isLetterOrDigit(text.charAt(i))) end = i + 1;
+                i++;
+            }
+            if (end == start) continue;
+            if (normalized.length() > 0) normalized.append(' ');
+            for (int j = start; j < end; j++) normalized.append(Character.toLowerCase(text.charAt(j)));
+        }
+        if (!trimEnd && normalized.length() > 0 && Character.isWhitespace(text.charAt(length - 1))) {
+            normalized.append(' ');
+        }
+        return normalized.toString();
+    }
+
+    private void updateLoop() {
+        List<String> batch = new ArrayList<>();
+        while (running) {
+            try {
+                String first = queries.poll(200, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queries.drainTo(batch, MAX_BATCH - 1);
+                    apply(batch);
+                    batch.clear();
+                }
+                boolean changed = !pending.isEmpty() || (dirty && queryLog != null)
+                    || (seedVersion != null && seedVersion.get() != builtSeedVersion);
+                if (changed && System.currentTimeMillis() - lastRebuild >= rebuildIntervalMillis) {
+                    rebuild();
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                log.error("Typeahead update failed", e);
+            }
+        }
+        if (dirty && queryLog != null) rebuild();
+    }
+
+    private void apply(List<String> batch) {
+        TypeaheadIndex current = index;
+        for (String query : batch) {
+            String phrase = normalize(query, true);
+            if (phrase.isEmpty() || phrase.length() > TypeaheadIndex.MAX_PHRASE_BYTES) continue;
+            int id = current.find(phrase);
+            if (id >= 0) {
+                current.increment(id, 1);
+            } else if (newPhrases != null && (pending.size() < MAX_PENDING || pending.containsKey(phrase))
+                       && newPhrases.test(query)) {
+                pending.merge(phrase, 1, Integer::sum);
+            }
+        }
+        current.publish();
+        dirty = true;
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<String, Integer> counts = index.toMap();
+        for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+            if (entry.getValue() >= minCount) counts.merge(entry.getKey(), entry.getValue(), Integer::sum);
+        }
+        pending.clear();
+        dirty = false;
+
+        index = TypeaheadIndex.build(withSeeds(counts), maxPhrases);
+        rebuilds++;
+        lastRebuild = System.currentTimeMillis();
+        log.info("Typeahead rebuilt with {} phrases in {} ms", index.size(), lastRebuild - start);
+
+        if (queryLog != null) {
+            try {
+                writeQueryLog(queryLog, index.toMap());
+            } catch (IOException e) {
+                log.warn("Could not write query log {}", queryLog, e);
+            }
+        }
+    }
+
+    // Adds the current seeds to the counts; without new phrases, also drops everything else (e.g.
+    // phrases of an older query log, or training patterns since removed by a reload)
+    private Map<String, Integer> withSeeds(Map<String, Integer> counts) {
+        Map<String, Integer> phrases = newPhrases != null ? counts : new HashMap<>();
+        // Taken before the seeds are read, so a change while reading them leads to another rebuild
+        builtSeedVersion = seedVersion != null ? seedVersion.get() : null;
+        for (String seed : seeds.get()) {
+            String phrase = normalize(seed, true);
+            if (!phrase.isEmpty()) phrases.putIfAbsent(phrase, counts.getOrDefault(phrase, 1));
+        }
+        return phrases;
+    }
+
+    // One phrase per line, optionally prefixed by "<count>\t"; repeated lines add up
+    private static void readQueryLog(Path file, Map<String, Integer> counts) throws IOException {
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int tab = line.indexOf('\t');
+            int count = 1;
+            String phrase = line;
+            if (tab > 0) {
+                try {
+                    count = Integer.parseInt(line.substring(0, tab));
+                    phrase = line.substring(tab + 1);
+                } catch (NumberFormatException e) {
+                    // Not a count, so the tab belongs to the phrase
+                }
+            }
+            phrase = normalize(phrase, true);
+            if (!phrase.isEmpty() && count > 0) counts.merge(phrase, count, Integer::sum);
+        }
+    }
+
+    private static void writeQueryLog(Path file, Map<String, Integer> counts) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                out.write(entry.getValue() + "\t" + entry.getKey());
+                out.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,295 @@
+package com.chatbot.suggest;
+
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Sorted phrase set with popularity counts, built once and queried by prefix.
+// Phrases are UTF-8, front-coded in blocks: the first phrase of a block is stored whole and the
+// others as (length shared with the previous phrase, rest). A prefix maps to a contiguous range
+// of phrase ids, found by binary search over block heads plus a scan of one block per bound;
+// the top k of that range come from a max segment tree over the counts.
+// Counts are changed by a single updater thread; readers see them after the next publish().
+final class TypeaheadIndex {
+
+    static final int MAX_PHRASE_BYTES = 255;
+    private static final int BLOCK = 16;
+
+    private final int size;
+    private final byte[] data;
+    private final int[] blockOffsets;
+
+    private final int leaves;
+    private final int[] counts;
+    // tree[leaves + i] = i; inner nodes hold the id with the highest count below them
+    private final int[] tree;
+
+    private TypeaheadIndex(List<byte[]> phrases, int[] counts) {
+        this.size = phrases.size();
+        this.counts = counts;
+
+        int capacity = 0;
+        for (byte[] phrase : phrases) capacity += phrase.length + 4;
+        byte[] out = new byte[capacity];
+        int[] offsets = new int[(size + BLOCK - 1) / BLOCK];
+        int position = 0;
+        byte[] previous = null;
+        for (int i = 0; i < size; i++) {
+            byte[] phrase = phrases.get(i);
+            int shared = 0;
+            if (i % BLOCK == 0) {
+                offsets[i / BLOCK] = position;
+            } else {
+                shared = Arrays.mismatch(previous, phrase);
+                if (shared < 0) shared = phrase.length;
+                out[position++] = (byte) shared;
+            }
+            out[position++] = (byte) (phrase.length - shared);
+            System.arraycopy(phrase, shared, out, position, phrase.length - shared);
+            position += phrase.length - shared;
+            previous = phrase;
+        }
+        this.data = Arrays.copyOf(out, position);
+        this.blockOffsets = offsets;
+
+        this.leaves = Integer.highestOneBit(Math.max(1, size) * 2 - 1);
+        this.tree = new int[leaves * 2];
+        Arrays.fill(tree, -1);
+        for (int i = 0; i < size; i++) tree[leaves + i] = i;
+        for (int node = leaves - 1; node >= 1; node--) {
+            tree[node] = better(tree[node * 2], tree[node * 2 + 1]);
+        }
+    }
+
+    // Phrases must already be normalized; over maxPhrases, the most popular are kept
+    static TypeaheadIndex build(Map<String, Integer> phraseCounts, int maxPhrases) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(phraseCounts.entrySet());
+        if (entries.size() > maxPhrases) {
+            entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+            entries = entries.subList(0, maxPhrases);
+        }
+
+        record Phrase(byte[] bytes, int count) {}
+        List<Phrase> phrases = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Integer> entry : entries) {
+            byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0 && bytes.length <= MAX_PHRASE_BYTES) {
+                phrases.add(new Phrase(bytes, entry.getValue()));
+            }
+        }
+        // Unsigned byte order is code point order, the same order prefix queries compare in
+        phrases.sort((a, b) -> Arrays.compareUnsigned(a.bytes(), b.bytes()));
+
+        List<byte[]> sorted = new ArrayList<>(phrases.size());
+        int[] counts = new int[phrases.size()];
+        for (int i = 0; i < phrases.size(); i++) {
+            sorted.add(phrases.get(i).bytes());
+            counts[i] = phrases.get(i).count();
+        }
+        return new TypeaheadIndex(sorted, counts);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Up to k phrases starting with the (normalized) prefix, most popular first
+    List<String> complete(String prefix, int k) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_PHRASE_BYTES || k <= 0) return List.of();
+        int from = rank(key, false);
+        int to = rank(key, true);
+        if (from >= to) return List.of();
+
+        // Pairs with the release fence in publish(); a concurrent update can at worst reorder results
+        VarHandle.acquireFence();
+        NodeHeap heap = new NodeHeap();
+        for (int l = from + leaves, r = to + leaves; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) heap.push(l++);
+            if ((r & 1) == 1) heap.push(--r);
+        }
+
+        List<String> results = new ArrayList<>(Math.min(k, to - from));
+        byte[] scratch = new byte[MAX_PHRASE_BYTES];
+        while (results.size() < k && !heap.isEmpty()) {
+            int node = heap.pop();
+            if (node >= leaves) {
+                int id = node - leaves;
+                results.add(new String(scratch, 0, decode(id, scratch), StandardCharsets.UTF_8));
+            } else {
+                heap.push(node * 2);
+                heap.push(node * 2 + 1);
+            }
+        }
+        return results;
+    }
+
+    // Id of the phrase, or -1
+    int find(String phrase) {
+        byte[] key = phrase.getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_PHRASE_BYTES) return -1;
+        int id = rank(key, false);
+        if (id >= size) return -1;
+        byte[] scratch = new byte[MAX_PHRASE_BYTES];
+        int length = decode(id, scratch);
+        return Arrays.equals(scratch, 0, length, key, 0, key.length) ? id : -1;
+    }
+
+    String phrase(int id) {
+        byte[] scratch = new byte[MAX_PHRASE_BYTES];
+        return new String(scratch, 0, decode(id, scratch), StandardCharsets.UTF_8);
+    }
+
+    int count(int id) {
+        return counts[id];
+    }
+
+    // Updater thread only
+    void increment(int id, int delta) {
+        long count = (long) counts[id] + delta;
+        counts[id] = (int) Math.min(Integer.MAX_VALUE, count);
+        for (int node = (id + leaves) >> 1; node >= 1; node >>= 1) {
+            tree[node] = better(tree[node * 2], tree[node * 2 + 1]);
+        }
+    }
+
+    // Updater thread only: makes increments since the last publish visible to readers
+    void publish() {
+        VarHandle.releaseFence();
+    }
+
+    // Every phrase with its current count, decoded in one sequential pass
+    Map<String, Integer> toMap() {
+        Map<String, Integer> phrases = new HashMap<>(size * 2);
+        byte[] scratch = new byte[MAX_PHRASE_BYTES];
+        int position = 0;
+        for (int id = 0; id < size; id++) {
+            int shared = id % BLOCK == 0 ? 0 : data[position++] & 0xFF;
+            int rest = data[position++] & 0xFF;
+            System.arraycopy(data, position, scratch, shared, rest);
+            position += rest;
+            phrases.put(new String(scratch, 0, shared + rest, StandardCharsets.UTF_8), counts[id]);
+        }
+        return phrases;
+    }
+
+    long estimatedBytes() {
+        return data.length + 4L * blockOffsets.length + 4L * counts.length + 4L * tree.length;
+    }
+
+    // Higher count wins; ties go to the lower id, so equal counts list alphabetically
+    private int better(int a, int b) {
+        if (a < 0) return b;
+        if (b < 0) return a;
+        int ca = counts[a], cb = counts[b];
+        return ca > cb || (ca == cb && a < b) ? a : b;
+    }
+
+    // Number of phrases ordered before the key. With afterPrefix, phrases starting with the key
+    // also count as before it, which gives the end of the key's prefix range.
+    private int rank(byte[] key, boolean afterPrefix) {
+        // Last block whose head is before the key
+        int lo = 0, hi = blockOffsets.length - 1, block = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int offset = blockOffsets[mid];
+            if (before(data, offset + 1, data[offset] & 0xFF, key, afterPrefix)) {
+                block = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (block < 0) return 0;
+
+        byte[] scratch = new byte[MAX_PHRASE_BYTES];
+        int id = block * BLOCK;
+        int end = Math.min(size, id + BLOCK);
+        int position = blockOffsets[block];
+        int length = 0;
+        for (; id < end; id++) {
+            int shared = id == block * BLOCK ? 0 : data[position++] & 0xFF;
+            int rest = data[position++] & 0xFF;
+            System.arraycopy(data, position, scratch, shared, rest);
+            position += rest;
+            length = shared + rest;
+            if (!before(scratch, 0, length, key, afterPrefix)) break;
+        }
+        return id;
+    }
+
+    private static boolean before(byte[] bytes, int offset, int length, byte[] key, boolean afterPrefix) {
+        int compared = Arrays.compareUnsigned(bytes, offset, offset + Math.min(length, key.length),
+                                              key, 0, Math.min(length, key.length));
+        if (compared != 0) return compared < 0;
+        // Equal over the shorter length: a shorter phrase sorts first; a phrase with the key as
+        // its prefix is before the key only when looking for the end of the range
+        return length < key.length || afterPrefix;
+    }
+
+    // Decodes phrase id into scratch and returns its length
+    private int decode(int id, byte[] scratch) {
+        int block = id / BLOCK;
+        int position = blockOffsets[block];
+        int length = 0;
+        for (int i = block * BLOCK; i <= id; i++) {
+            int shared = i == block * BLOCK ? 0 : data[position++] & 0xFF;
+            int rest = data[position++] & 0xFF;
+            System.arraycopy(data, position, scratch, shared, rest);
+            position += rest;
+            length = shared + rest;
+        }
+        return length;
+    }
+
+    // Max-heap of tree nodes by the count of their best phrase. Each node's rank is read once on
+    // push and packed as count << 32 | (MAX - id), so sifting compares plain longs.
+    private final class NodeHeap {
+        private long[] keys = new long[64];
+        private int[] nodes = new int[64];
+        private int count;
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        void push(int node) {
+            int id = tree[node];
+            if (id < 0) return;
+            long key = ((long) counts[id] << 32) | (Integer.MAX_VALUE - id);
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                nodes = Arrays.copyOf(nodes, count * 2);
+            }
+            int i = count++;
+            while (i > 0) {
+                int parent = (i - 1) >> 1;
+                if (keys[parent] >= key) break;
+                keys[i] = keys[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            long key = keys[--count];
+            int node = nodes[count];
+            int i = 0;
+            while (true) {
+                int child = i * 2 + 1;
+                if (child >= count) break;
+                if (child + 1 < count && keys[child + 1] > keys[child]) child++;
+                if (key >= keys[child]) break;
+                keys[i] = keys[child];
+                nodes[i] = nodes[child];
+                i = child;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+            return top;
+        }
+    }
+}
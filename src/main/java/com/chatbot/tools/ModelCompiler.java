@@ -0,0 +1,45 @@
+package com.chatbot.tools;
+
+import com.chatbot.model.TrainingCorpus;
+import com.chatbot.nlp.ModelSnapshot;
+import com.chatbot.service.NLPService;
+import com.chatbot.service.TrainingDataService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.file.Path;
+
+// Offline step that compiles the training corpus into a model snapshot for chat.model.snapshot.
+// Usage: ModelCompiler <output.snap> [corpus.json]; the corpus is added to the built-in data.
+public final class ModelCompiler {
+
+    private ModelCompiler() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: ModelCompiler <output.snap> [corpus.json]");
+            System.exit(2);
+        }
+        Path output = Path.of(args[0]);
+
+        // Same services the application runs, without the web layer
+        try (AnnotationConfigApplicationContext context =
+                 new AnnotationConfigApplicationContext(NLPService.class, TrainingDataService.class)) {
+            TrainingDataService trainingDataService = context.getBean(TrainingDataService.class);
+
+            if (args.length == 2) {
+                TrainingCorpus corpus = new ObjectMapper().readValue(Path.of(args[1]).toFile(), TrainingCorpus.class);
+                trainingDataService.addTrainingData(corpus.getPatterns());
+                corpus.getIntents().forEach((intent, responses) ->
+                    responses.forEach(response -> trainingDataService.addIntentResponse(intent, response)));
+            }
+
+            long start = System.nanoTime();
+            ModelSnapshot snapshot = trainingDataService.toSnapshot();
+            snapshot.write(output);
+            System.out.printf("Wrote %s: %d patterns, %d terms in %d ms%n", output,
+                snapshot.getPatternIndex().size(), snapshot.getDictionary().size(),
+                (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.fastchatbot.config;
+
+import com.chatbot.classify.ClassifierCascade;
+import com.fastchatbot.model.FastMessage;
+
+// Rough retained-size estimates used to bound caches by memory rather than entry count
+final class CacheWeights {
+
+    // Caffeine node plus map slot overhead per entry
+    static final int ENTRY_OVERHEAD = 64;
+
+    private CacheWeights() {}
+
+    static int weigh(Object key, Object value) {
+        long bytes = ENTRY_OVERHEAD + estimate(key) + estimate(value);
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    static long estimate(Object value) {
+        if (value instanceof String s) {
+            // Object header, fields and backing array (UTF-16 worst case)
+            return 40 + 2L * s.length();
+        }
+        if (value instanceof String[] array) {
+            long bytes = 16 + 4L * array.length;
+            for (String s : array) bytes += estimate(s);
+            return bytes;
+        }
+        if (value instanceof FastMessage message) {
+            return 48 + estimate(message.getMessage()) + estimate(message.getIntent());
+        }
+        if (value instanceof ClassifierCascade.Result result) {
+            // Intent and tier names are shared constants; only a matched pattern is per entry
+            return 32 + (result.match() != null ? estimate(result.match()) : 0);
+        }
+        return 32;
+    }
+}
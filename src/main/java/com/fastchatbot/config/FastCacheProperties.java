@@ -0,0 +1,40 @@
+package com.fastchatbot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Per-cache limits, e.g. fast.cache.specs.intents.max-memory=4MB
+@ConfigurationProperties(prefix = "fast.cache")
+public class FastCacheProperties {
+
+    // Applied to any cache without its own entry
+    private Spec defaults = new Spec();
+    private Map<String, Spec> specs = new LinkedHashMap<>();
+
+    public Spec specFor(String cacheName) {
+        Spec spec = specs.get(cacheName);
+        return spec != null ? spec : defaults;
+    }
+
+    public Spec getDefaults() { return defaults; }
+    public void setDefaults(Spec defaults) { this.defaults = defaults; }
+
+    public Map<String, Spec> getSpecs() { return specs; }
+    public void setSpecs(Map<String, Spec> specs) { this.specs = specs; }
+
+    public static class Spec {
+        // Budget for the estimated size of keys plus values
+        private DataSize maxMemory = DataSize.ofMegabytes(4);
+        private Duration ttl = Duration.ofMinutes(10);
+
+        public DataSize getMaxMemory() { return maxMemory; }
+        public void setMaxMemory(DataSize maxMemory) { this.maxMemory = maxMemory; }
+
+        public Duration getTtl() { return ttl; }
+        public void setTtl(Duration ttl) { this.ttl = ttl; }
+    }
+}
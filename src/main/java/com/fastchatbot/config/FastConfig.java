@@ -1,19 +1,36 @@
 package com.fastchatbot.config;
 
+import com.chatbot.concurrent.LimiterProperties;
+import com.chatbot.concurrent.LoadShedder;
+import com.chatbot.controller.LoadSheddingFilter;
+import com.chatbot.session.SessionStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
+@EnableConfigurationProperties(FastCacheProperties.class)
 public class FastConfig implements WebMvcConfigurer {
     
     @Bean(name = "taskExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
     public Executor taskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(4);
@@ -24,16 +41,77 @@ public class FastConfig implements WebMvcConfigurer {
         return executor;
     }
     
+    // spring.threads.virtual.enabled=true: one virtual thread per @Async task, no queue to overflow.
+    // Boot moves Tomcat request handling onto virtual threads under the same switch.
+    @Bean(name = "taskExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Executor virtualTaskExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("FastChat-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+    
+    // Pool for /chat-batch; 0 means one worker per core
+    @Bean(name = "batchPool", destroyMethod = "shutdown")
+    public ForkJoinPool batchPool(@Value("${fast.batch.parallelism:0}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+    
+    // Recent turns per conversation, bounded by memory and idle time
+    @Bean(destroyMethod = "close")
+    public SessionStore sessionStore(@Value("${fast.session.turns:8}") int turns,
+                                     @Value("${fast.session.max-memory-mb:256}") long maxMemoryMb,
+                                     @Value("${fast.session.idle-timeout-seconds:1800}") long idleTimeoutSeconds,
+                                     @Value("${fast.session.stripes:64}") int stripes) {
+        return new SessionStore(turns, maxMemoryMb << 20, TimeUnit.SECONDS.toMillis(idleTimeoutSeconds), stripes);
+    }
+    
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("processedText", "intents", "responses");
+    @ConfigurationProperties(prefix = "fast.limiter")
+    public LimiterProperties limiterProperties() {
+        return new LimiterProperties();
+    }
+    
+    // Adaptive concurrency limit over /api/fast, shedding low-priority paths first.
+    // The reactive stack applies it through a WebFilter in ReactiveConfig.
+    @Bean
+    public LoadShedder loadShedder(LimiterProperties properties) {
+        return new LoadShedder(properties);
+    }
+    
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<LoadSheddingFilter> loadSheddingFilter(LoadShedder shedder, LimiterProperties properties) {
+        FilterRegistrationBean<LoadSheddingFilter> registration = new FilterRegistrationBean<>(new LoadSheddingFilter(shedder));
+        registration.addUrlPatterns("/api/fast/*");
+        registration.setEnabled(properties.isEnabled());
+        return registration;
+    }
+    
+    @Bean
+    public CacheManager cacheManager(FastCacheProperties properties) {
+        // Bounded by estimated memory with W-TinyLFU eviction, so unique user text can't pile up
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(cacheBuilder(properties.getDefaults()));
+        for (String name : new String[]{"processedText", "spelling", "intents", "responses"}) {
+            cacheManager.registerCustomCache(name, cacheBuilder(properties.specFor(name)).build());
+        }
+        return cacheManager;
+    }
+    
+    private static Caffeine<Object, Object> cacheBuilder(FastCacheProperties.Spec spec) {
+        return Caffeine.newBuilder()
+                .maximumWeight(spec.getMaxMemory().toBytes())
+                .weigher(CacheWeights::weigh)
+                .expireAfterWrite(spec.getTtl())
+                .recordStats();
     }
     
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**")
                 .allowedOrigins("*")
-                .allowedMethods("GET", "POST", "OPTIONS")
+                .allowedMethods("GET", "POST", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
                 .maxAge(3600);
     }
@@ -1,10 +1,25 @@
 package com.fastchatbot.controller;
 
+import com.chatbot.concurrent.LoadShedder;
+import com.chatbot.session.SessionStore;
 import com.fastchatbot.model.FastMessage;
+import com.fastchatbot.service.CacheStatsService;
 import com.fastchatbot.service.FastChatService;
+import com.fastchatbot.service.FastJsonCodec;
+import com.fastchatbot.service.FastNLPService;
+import com.fastchatbot.service.NdjsonStreamService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -16,35 +31,105 @@ public class FastChatController {
     @Autowired
     private FastChatService chatService;
     
-    @PostMapping("/chat")
-    public ResponseEntity<FastMessage> fastChat(@RequestBody Map<String, String> request) {
-        String message = request.get("message");
-        if (message == null || message.trim().isEmpty()) {
-            return ResponseEntity.badRequest().build();
+    @Autowired
+    private FastNLPService nlpService;
+    
+    @Autowired
+    private CacheStatsService cacheStatsService;
+    
+    @Autowired
+    private NdjsonStreamService streamService;
+    
+    @Autowired
+    private FastJsonCodec jsonCodec;
+    
+    @Autowired
+    private LoadShedder loadShedder;
+    
+    @Value("${fast.batch.max-size:1000}")
+    private int maxBatchSize;
+    
+    // Ultra-fast synchronous response: no data binding on the way in, pre-encoded bytes on the way out
+    @PostMapping(value = "/chat", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void fastChat(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        FastJsonCodec.ChatRequest chat = jsonCodec.read(request.getInputStream());
+        if (chat == null || chat.message() == null || chat.message().trim().isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        if (chat.sessionId() != null && !SessionStore.isValidId(chat.sessionId())) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
         }
         
-        // Ultra-fast synchronous response
-        FastMessage response = chatService.processMessage(message);
-        return ResponseEntity.ok(response);
+        FastChatService.Reply reply = chatService.reply(chat.message(), chat.sessionId());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        jsonCodec.write(reply, chat.sessionId(), response.getOutputStream());
     }
     
     @PostMapping("/chat-async")
     public CompletableFuture<ResponseEntity<FastMessage>> fastChatAsync(@RequestBody Map<String, String> request) {
         String message = request.get("message");
+        String sessionId = request.get("sessionId");
         if (message == null || message.trim().isEmpty()) {
             return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
+        if (sessionId != null && !SessionStore.isValidId(sessionId)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
         
-        return chatService.processMessageAsync(message)
+        return chatService.processMessageAsync(message, sessionId)
                          .thenApply(ResponseEntity::ok);
     }
     
+    @PostMapping("/chat-batch")
+    public ResponseEntity<List<FastMessage>> fastChatBatch(@RequestBody List<String> messages) {
+        if (messages == null || messages.isEmpty() || messages.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().build();
+        }
+        for (String message : messages) {
+            if (message == null || message.trim().isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        
+        // One request, every core: messages are classified in parallel, order preserved
+        return ResponseEntity.ok(chatService.processBatch(messages));
+    }
+    
+    @PostMapping(value = "/chat-stream", consumes = "application/x-ndjson")
+    public void fastChatStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Results are written while the body is still being read
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        streamService.process(request.getInputStream(), response.getOutputStream());
+    }
+    
     @GetMapping("/suggestions")
     public ResponseEntity<String[]> fastSuggestions(@RequestParam(required = false) String q) {
         String[] suggestions = chatService.getFastSuggestions(q);
         return ResponseEntity.ok(suggestions);
     }
     
+    @GetMapping("/similar")
+    public ResponseEntity<List<FastNLPService.SimilarPattern>> similarPatterns(@RequestParam String q,
+                                                                               @RequestParam(defaultValue = "5") int limit) {
+        if (q.isBlank() || limit < 1 || limit > 100) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(nlpService.fastSimilarPatterns(q, limit));
+    }
+    
+    @GetMapping("/similar/stats")
+    public ResponseEntity<Map<String, Object>> similarityStats() {
+        return ResponseEntity.ok(nlpService.similarityStats());
+    }
+    
+    @GetMapping("/classifier/stats")
+    public ResponseEntity<Map<String, Object>> classifierStats() {
+        return ResponseEntity.ok(nlpService.classifierStats());
+    }
+    
     @GetMapping("/ping")
     public ResponseEntity<Map<String, Object>> ping() {
         long timestamp = System.currentTimeMillis();
@@ -54,4 +139,50 @@ public class FastChatController {
             "response_time", "< 1ms"
         ));
     }
+    
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> cacheStats() {
+        return ResponseEntity.ok(cacheStatsService.getCacheStats());
+    }
+    
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> metrics() {
+        return ResponseEntity.ok(chatService.getMetrics().snapshot());
+    }
+    
+    @GetMapping("/suggestions/stats")
+    public ResponseEntity<Map<String, Object>> suggestionStats() {
+        return ResponseEntity.ok(chatService.getTypeahead().stats());
+    }
+    
+    @GetMapping("/limiter/stats")
+    public ResponseEntity<Map<String, Object>> limiterStats() {
+        return ResponseEntity.ok(loadShedder.stats());
+    }
+    
+    // A full taskExecutor queue is overload too: shed the request like the limiter would
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Void> taskRejected() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                             .header(HttpHeaders.RETRY_AFTER, Integer.toString(loadShedder.getRetryAfterSeconds()))
+                             .build();
+    }
+    
+    @GetMapping("/session/{sessionId}")
+    public ResponseEntity<List<SessionStore.Turn>> sessionHistory(@PathVariable String sessionId) {
+        List<SessionStore.Turn> turns = chatService.getSessionStore().history(sessionId);
+        return turns.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(turns);
+    }
+    
+    @DeleteMapping("/session/{sessionId}")
+    public ResponseEntity<Void> endSession(@PathVariable String sessionId) {
+        return chatService.getSessionStore().remove(sessionId)
+            ? ResponseEntity.noContent().build()
+            : ResponseEntity.notFound().build();
+    }
+    
+    @GetMapping("/sessions")
+    public ResponseEntity<Map<String, Object>> sessionStats() {
+        return ResponseEntity.ok(chatService.getSessionStore().stats());
+    }
 }
@@ -1,6 +1,8 @@
 package com.fastchatbot.model;
 
 public class FastMessage {
+    private String id;
+    private String sessionId;
     private String message;
     private String sender;
     private long timestamp;
@@ -28,4 +30,9 @@ public class FastMessage {
     public void setConfidence(float confidence) { this.confidence = confidence; }
     public String getIntent() { return intent; }
     public void setIntent(String intent) { this.intent = intent; }
+    // Only set for messages that belong to a session
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
 }
@@ -0,0 +1,45 @@
+package com.fastchatbot.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Service;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Service
+public class CacheStatsService {
+    
+    @Autowired
+    private CacheManager cacheManager;
+
+    public Map<String, Map<String, Object>> getCacheStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        
+        for (String name : cacheManager.getCacheNames()) {
+            if (!(cacheManager.getCache(name) instanceof CaffeineCache caffeineCache)) continue;
+            
+            Cache<Object, Object> cache = caffeineCache.getNativeCache();
+            CacheStats stats = cache.stats();
+            
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("hits", stats.hitCount());
+            entry.put("misses", stats.missCount());
+            entry.put("hitRate", stats.hitRate());
+            entry.put("evictions", stats.evictionCount());
+            entry.put("entries", cache.estimatedSize());
+            
+            // Weights are estimated bytes, see CacheWeights
+            cache.policy().eviction().ifPresent(eviction -> {
+                entry.put("estimatedBytes", eviction.weightedSize().orElse(0L));
+                entry.put("maxBytes", eviction.getMaximum());
+            });
+            
+            result.put(name, entry);
+        }
+        
+        return result;
+    }
+}
@@ -1,13 +1,26 @@
 package com.fastchatbot.service;
 
 import com.fastchatbot.model.FastMessage;
+import com.chatbot.classify.ClassifierCascade;
+import com.chatbot.concurrent.ForkJoinBatch;
+import com.chatbot.concurrent.SingleFlight;
+import com.chatbot.metrics.LatencyHistogram;
+import com.chatbot.metrics.PipelineMetrics;
+import com.chatbot.session.SessionStore;
+import com.chatbot.nlp.EntityScanner;
+import com.chatbot.suggest.Typeahead;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.scheduling.annotation.Async;
-import org.springframework.cache.annotation.Cacheable;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class FastChatService {
@@ -15,99 +28,206 @@ public class FastChatService {
     @Autowired
     private FastNLPService nlpService;
     
-    // Ultra-fast response cache
-    private static final Map<String, String[]> FAST_RESPONSES = new ConcurrentHashMap<>();
+    @Autowired
+    private ResponseCatalog responseCatalog;
+    
+    @Autowired
+    @Qualifier("batchPool")
+    private ForkJoinPool batchPool;
+    
+    @Autowired
+    private SessionStore sessionStore;
+    
+    @Value("${fast.suggest.limit:5}")
+    private int suggestionLimit;
+    
+    @Value("${fast.suggest.max-phrases:1000000}")
+    private int maxSuggestionPhrases;
+    
+    // Off: only the starter questions are suggested, ranked by use. On: other messages without
+    // entities (emails, phone numbers, ...) join once sent min-count times.
+    @Value("${fast.suggest.learn-new-phrases:false}")
+    private boolean learnNewSuggestions;
+    
+    @Value("${fast.suggest.min-count:50}")
+    private int suggestionMinCount;
+    
+    @Value("${fast.suggest.rebuild-interval-seconds:60}")
+    private long suggestionRebuildSeconds;
+    
+    @Value("${fast.suggest.query-log:}")
+    private String suggestionQueryLog;
+    
+    @Value("${fast.classifier.coalesce:true}")
+    private boolean coalesce;
+    
     private static final Random RANDOM = new Random();
     
-    static {
-        // Pre-loaded responses for instant access
-        FAST_RESPONSES.put("greeting", new String[]{
-            "Hi! How can I help?", "Hello! What do you need?", "Hey there! How can I assist?"
-        });
-        FAST_RESPONSES.put("help", new String[]{
-            "I'm here to help! What do you need?", "What can I assist with?", "How can I help you?"
-        });
-        FAST_RESPONSES.put("pricing", new String[]{
-            "Our pricing is flexible. What are you looking for?", "Costs vary by needs. Tell me more?", "Let's discuss your requirements!"
-        });
-        FAST_RESPONSES.put("product", new String[]{
-            "We offer AI chatbots and web solutions. Interested?", "Our products include AI assistants. Want details?", "We build smart chatbots. Need one?"
-        });
-        FAST_RESPONSES.put("gratitude", new String[]{
-            "You're welcome!", "Happy to help!", "Anytime!", "Glad I could assist!"
-        });
-        FAST_RESPONSES.put("goodbye", new String[]{
-            "Goodbye! Come back anytime!", "See you later!", "Bye! Have a great day!", "Take care!"
-        });
-        FAST_RESPONSES.put("question", new String[]{
-            "Great question! Let me help.", "I'd be happy to answer that.", "Here's what I know.", "Good question! Let me explain."
-        });
-        FAST_RESPONSES.put("general", new String[]{
-            "I understand. How can I help?", "Tell me more about that.", "Interesting! What would you like to know?", "I'm here to assist!"
-        });
+    // Starter questions, ranked until real queries outweigh them
+    private static final List<String> SUGGESTION_SEEDS = List.of(
+        "Hello!", "What services do you offer?", "How much does it cost?", "Can you help me?",
+        "Hello! How can you help?", "Hi there! What do you do?", "I need help with...",
+        "Can you assist me with...", "What are your prices?", "How much do you charge?",
+        "Tell me more", "What can you do?", "How does this work?"
+    );
+    
+    private Typeahead typeahead;
+    private final EntityScanner entityScanner = EntityScanner.defaults();
+    
+    // Spelling and classification of one preprocessed text, shared by identical concurrent messages
+    private final SingleFlight<String, ClassifierCascade.Result> classifications = new SingleFlight<>();
+    
+    // Nanosecond latency per stage, served from /api/fast/metrics. Messages that waited for an
+    // identical one to be classified are timed under "coalesced" instead of "spelling" and "intent".
+    private final PipelineMetrics metrics =
+        new PipelineMetrics("fast", "preprocess", "spelling", "intent", "coalesced", "response");
+    private final LatencyHistogram preprocessLatency = metrics.stage("preprocess");
+    private final LatencyHistogram spellingLatency = metrics.stage("spelling");
+    private final LatencyHistogram intentLatency = metrics.stage("intent");
+    private final LatencyHistogram coalescedLatency = metrics.stage("coalesced");
+    private final LatencyHistogram responseLatency = metrics.stage("response");
+
+    @PostConstruct
+    void initializeSuggestions() {
+        Path queryLog = suggestionQueryLog.isEmpty() ? null : Path.of(suggestionQueryLog);
+        typeahead = new Typeahead(maxSuggestionPhrases, suggestionMinCount,
+            TimeUnit.SECONDS.toMillis(suggestionRebuildSeconds), queryLog, () -> SUGGESTION_SEEDS, null,
+            learnNewSuggestions ? text -> entityScanner.scan(text).isEmpty() : null);
+    }
+
+    @PreDestroy
+    void shutdownSuggestions() {
+        typeahead.close();
     }
 
     @Async
-    public CompletableFuture<FastMessage> processMessageAsync(String userMessage) {
-        return CompletableFuture.completedFuture(processMessage(userMessage));
+    public CompletableFuture<FastMessage> processMessageAsync(String userMessage, String sessionId) {
+        return CompletableFuture.completedFuture(processMessage(userMessage, sessionId));
+    }
+
+    public List<FastMessage> processBatch(List<String> userMessages) {
+        // Split across the batch pool; results come back in request order
+        return ForkJoinBatch.map(batchPool, userMessages, this::processMessage);
     }
 
     public FastMessage processMessage(String userMessage) {
-        long startTime = System.nanoTime();
-        
-        // Lightning-fast processing
-        String intent = nlpService.fastIntentDetection(userMessage);
-        String response = getInstantResponse(intent);
-        float confidence = calculateFastConfidence(userMessage, intent);
+        return processMessage(userMessage, null);
+    }
+
+    // With a session id the turn is also appended to that session's recent history
+    public FastMessage processMessage(String userMessage, String sessionId) {
+        return toMessage(reply(userMessage, sessionId), sessionId);
+    }
+    
+    public FastMessage toMessage(Reply reply, String sessionId) {
+        FastMessage result = new FastMessage(reply.message(), "bot");
+        result.setTimestamp(reply.timestamp());
+        result.setIntent(reply.intent());
+        result.setConfidence(reply.confidence());
+        if (reply.messageId() != null) {
+            result.setId(reply.messageId());
+            result.setSessionId(sessionId);
+        }
+        return result;
+    }
+    
+    // One processed message before it becomes a FastMessage or pre-encoded JSON. response is the
+    // index of message in ResponseCatalog.responsesFor(intent); messageId is set for session turns.
+    public record Reply(String intent, String message, int response, float confidence, long timestamp, String messageId) {}
+    
+    public Reply reply(String userMessage, String sessionId) {
+        long start = System.nanoTime();
         
-        FastMessage result = new FastMessage(response, "bot");
-        result.setIntent(intent);
-        result.setConfidence(confidence);
+        // Lightning-fast processing, timed per stage
+        String processed = nlpService.fastPreprocess(userMessage);
+        long preprocessed = System.nanoTime();
         
-        // Log processing time (typically < 1ms)
-        long processingTime = (System.nanoTime() - startTime) / 1_000_000;
-        System.out.println("Processed in: " + processingTime + "ms");
+        // A burst of the same text is classified once, before the caches have it; each caller
+        // still picks its own random response below
+        ClassifierCascade.Result classification;
+        if (coalesce) {
+            String text = processed;
+            SingleFlight.Result<ClassifierCascade.Result> flight = classifications.run(text, () -> classify(text));
+            classification = flight.value();
+            if (flight.shared()) coalescedLatency.record(System.nanoTime() - preprocessed);
+        } else {
+            classification = classify(processed);
+        }
+        return reply(userMessage, sessionId, classification, start, preprocessed);
+    }
+    
+    // As reply, but never waits: a message already being classified by another caller completes
+    // the future when that classification does. For callers on an event loop.
+    public CompletableFuture<Reply> replyAsync(String userMessage, String sessionId) {
+        long start = System.nanoTime();
+        String processed = nlpService.fastPreprocess(userMessage);
+        long preprocessed = System.nanoTime();
         
-        return result;
+        if (!coalesce) {
+            return CompletableFuture.completedFuture(
+                reply(userMessage, sessionId, classify(processed), start, preprocessed));
+        }
+        return classifications.runAsync(processed, () -> classify(processed)).thenApply(flight -> {
+            if (flight.shared()) coalescedLatency.record(System.nanoTime() - preprocessed);
+            return reply(userMessage, sessionId, flight.value(), start, preprocessed);
+        });
     }
-
-    @Cacheable("responses")
-    private String getInstantResponse(String intent) {
-        String[] responses = FAST_RESPONSES.get(intent);
-        if (responses == null) {
-            responses = FAST_RESPONSES.get("general");
+    
+    // Response pick, session turn and metrics for a classified message
+    private Reply reply(String userMessage, String sessionId, ClassifierCascade.Result classification,
+                        long start, long preprocessed) {
+        String intent = classification.intent();
+        float confidence = classification.confidence();
+        long detected = System.nanoTime();
+        
+        // Goes through the catalog bean so the "responses" cache actually applies
+        String[] responses = responseCatalog.responsesFor(intent);
+        int response = RANDOM.nextInt(responses.length);
+        long end = System.nanoTime();
+        
+        long timestamp = System.currentTimeMillis();
+        String messageId = null;
+        if (sessionId != null) {
+            long ref = sessionStore.nextMessageRef();
+            sessionStore.record(sessionId, intent, confidence, timestamp, ref);
+            messageId = SessionStore.messageId(ref);
         }
-        return responses[RANDOM.nextInt(responses.length)];
+        
+        preprocessLatency.record(preprocessed - start);
+        responseLatency.record(end - detected);
+        metrics.total().record(end - start);
+        metrics.recordIntent(intent);
+        typeahead.record(userMessage);
+        
+        return new Reply(intent, responses[response], response, confidence, timestamp, messageId);
+    }
+    
+    // Spelling correction, then tiered classification: exact pattern, keywords, pattern similarity,
+    // question words
+    private ClassifierCascade.Result classify(String processed) {
+        long start = System.nanoTime();
+        String corrected = nlpService.fastCorrectSpelling(processed);
+        long spelled = System.nanoTime();
+        ClassifierCascade.Result classification = nlpService.fastClassify(corrected);
+        spellingLatency.record(spelled - start);
+        intentLatency.record(System.nanoTime() - spelled);
+        return classification;
+    }
+    
+    public PipelineMetrics getMetrics() {
+        return metrics;
     }
 
-    private float calculateFastConfidence(String message, String intent) {
-        // Ultra-fast confidence calculation
-        int messageLength = message.length();
-        float baseConfidence = switch (intent) {
-            case "greeting", "goodbye", "gratitude" -> 0.95f;
-            case "help", "question" -> 0.85f;
-            case "pricing", "product" -> 0.80f;
-            default -> 0.70f;
-        };
-        
-        // Adjust for message length (longer = more confident)
-        float lengthBonus = Math.min(0.1f, messageLength / 200.0f);
-        return Math.min(0.99f, baseConfidence + lengthBonus);
+    public SessionStore getSessionStore() {
+        return sessionStore;
     }
 
+    // Most popular known phrases starting with what has been typed so far
     public String[] getFastSuggestions(String partial) {
-        if (partial == null || partial.length() < 2) {
-            return new String[]{
-                "Hello!", "What services do you offer?", "How much does it cost?", "Can you help me?"
-            };
-        }
-        
-        String intent = nlpService.fastIntentDetection(partial);
-        return switch (intent) {
-            case "greeting" -> new String[]{"Hello! How can you help?", "Hi there! What do you do?"};
-            case "help" -> new String[]{"I need help with...", "Can you assist me with..."};
-            case "pricing" -> new String[]{"What are your prices?", "How much do you charge?"};
-            default -> new String[]{"Tell me more", "What can you do?", "How does this work?"};
-        };
+        return typeahead.complete(partial, suggestionLimit).toArray(new String[0]);
+    }
+
+    public Typeahead getTypeahead() {
+        return typeahead;
     }
 }
@@ -0,0 +1,191 @@
+package com.fastchatbot.service;
+
+import com.chatbot.concurrent.Scratch;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Chat JSON without data binding. Requests are read token by token for just "message" and
+// "sessionId"; replies are copied from the catalog's pre-encoded UTF-8 prefixes, with only the
+// timestamp, confidence and session fields written per call. The output matches what Jackson
+// writes for the equivalent FastMessage.
+@Service
+public class FastJsonCodec {
+
+    public record ChatRequest(String message, String sessionId) {}
+
+    private static final byte[] CONFIDENCE = bytes(",\"confidence\":");
+    private static final byte[] ID = bytes("\"id\":\"");
+    private static final byte[] SESSION_ID = bytes("\",\"sessionId\":\"");
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    // Grown on demand and reused by the thread's next reply
+    private static final Scratch<byte[]> BUFFERS = new Scratch<>(() -> new byte[512]);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ResponseCatalog responseCatalog;
+
+    // ,"intent":"<intent>"} per intent, built on first use
+    private final Map<String, byte[]> intentSuffixes = new ConcurrentHashMap<>();
+
+    // Null when the input is not a JSON object; fields other than the two strings are skipped
+    public ChatRequest read(InputStream input) throws IOException {
+        return read(factory().createParser(input));
+    }
+
+    public ChatRequest read(String json) throws IOException {
+        return read(factory().createParser(json));
+    }
+
+    // sessionId is only written when the reply has a message id
+    public void write(FastChatService.Reply reply, String sessionId, OutputStream output) throws IOException {
+        Encoded encoded = encodeShared(reply, sessionId);
+        output.write(encoded.buffer(), 0, encoded.length());
+    }
+
+    public byte[] encode(FastChatService.Reply reply, String sessionId) {
+        Encoded encoded = encodeShared(reply, sessionId);
+        return Arrays.copyOf(encoded.buffer(), encoded.length());
+    }
+
+    private JsonFactory factory() {
+        return objectMapper.getFactory();
+    }
+
+    private record Encoded(byte[] buffer, int length) {}
+
+    // Encodes into this thread's buffer, growing it when the reply does not fit
+    private Encoded encodeShared(FastChatService.Reply reply, String sessionId) {
+        byte[] buffer = BUFFERS.get();
+        int length = encode(reply, sessionId, buffer);
+        if (length > buffer.length) {
+            buffer = new byte[length];
+            BUFFERS.set(buffer);
+            length = encode(reply, sessionId, buffer);
+        }
+        return new Encoded(buffer, length);
+    }
+
+    private ChatRequest read(JsonParser parser) throws IOException {
+        try (parser) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return null;
+            String message = null;
+            String sessionId = null;
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                if (parser.nextToken() == JsonToken.VALUE_STRING && "message".equals(name)) {
+                    message = parser.getText();
+                } else if (parser.currentToken() == JsonToken.VALUE_STRING && "sessionId".equals(name)) {
+                    sessionId = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return token == JsonToken.END_OBJECT ? new ChatRequest(message, sessionId) : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    // Writes into the buffer and returns the reply length. When the reply might not fit, nothing
+    // is written and an upper bound over buffer.length is returned instead.
+    private int encode(FastChatService.Reply reply, String sessionId, byte[] buffer) {
+        byte[] prefix = responseCatalog.encodedFor(reply.intent())[reply.response()];
+        byte[] suffix = intentSuffixes.computeIfAbsent(reply.intent(), FastJsonCodec::intentSuffix);
+        byte[] id = null;
+        byte[] session = null;
+        int length = 1 + prefix.length + 20 + CONFIDENCE.length + 16 + suffix.length;
+        if (reply.messageId() != null) {
+            id = quote(reply.messageId());
+            session = quote(sessionId);
+            length += ID.length + id.length + SESSION_ID.length + session.length + 2;
+        }
+        if (length > buffer.length) return length;
+
+        int position = 0;
+        buffer[position++] = '{';
+        if (id != null) {
+            position = put(buffer, position, ID);
+            position = put(buffer, position, id);
+            position = put(buffer, position, SESSION_ID);
+            position = put(buffer, position, session);
+            buffer[position++] = '"';
+            buffer[position++] = ',';
+        }
+        position = put(buffer, position, prefix);
+        position = putLong(buffer, position, reply.timestamp());
+        position = put(buffer, position, CONFIDENCE);
+        // Float.toString is what Jackson writes for a float, and it is plain ASCII
+        String confidence = Float.toString(reply.confidence());
+        for (int i = 0; i < confidence.length(); i++) {
+            buffer[position++] = (byte) confidence.charAt(i);
+        }
+        return put(buffer, position, suffix);
+    }
+
+    private static int put(byte[] buffer, int position, byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    // Timestamps are never negative
+    private static int putLong(byte[] buffer, int position, long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) digits++;
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + digits;
+    }
+
+    private static byte[] intentSuffix(String intent) {
+        return (",\"intent\":\"" + quoted(intent) + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] quote(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isSurrogate(value.charAt(i))) return quoted(value).getBytes(StandardCharsets.UTF_8);
+        }
+        return JsonStringEncoder.getInstance().quoteAsUTF8(value);
+    }
+
+    // JSON string contents as Jackson's UTF-8 generator writes them: escaped as usual, and chars
+    // outside the BMP as two escaped UTF-16 surrogates rather than 4 UTF-8 bytes
+    static String quoted(String value) {
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        StringBuilder quoted = new StringBuilder(value.length() + 8);
+        int segment = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!Character.isSurrogate(c)) continue;
+            encoder.quoteAsString(value.subSequence(segment, i), quoted);
+            quoted.append("\\u").append(HEX[c >> 12]).append(HEX[(c >> 8) & 0xF])
+                  .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+            segment = i + 1;
+        }
+        encoder.quoteAsString(value.subSequence(segment, value.length()), quoted);
+        return quoted.toString();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
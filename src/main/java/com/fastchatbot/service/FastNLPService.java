@@ -1,99 +1,437 @@
 package com.fastchatbot.service;
 
+import com.chatbot.classify.ClassifierCascade;
+import com.chatbot.classify.ExactMatchClassifier;
+import com.chatbot.classify.IntentClassifier.Classification;
+import com.chatbot.classify.LinearIntentClassifier;
+import com.chatbot.concurrent.Scratch;
+import com.chatbot.nlp.KeywordAutomaton;
+import com.chatbot.nlp.MinHashIndex;
+import com.chatbot.nlp.SpellCorrector;
+import com.chatbot.nlp.TokenSet;
+import com.chatbot.nlp.Tokenizer;
+import com.chatbot.nlp.Tokens;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.cache.annotation.Cacheable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
+// Eager despite spring.main.lazy-initialization: building the indexes and training the classifier
+// must not happen inside the first request, least of all on a reactive event loop
 @Service
+@Lazy(false)
 public class FastNLPService {
     
-    // Pre-compiled patterns for ultra-fast matching
-    private static final Map<String, String> INTENT_PATTERNS = new ConcurrentHashMap<>();
-    private static final Set<String> STOP_WORDS = Set.of(
+    private static final Logger log = LoggerFactory.getLogger(FastNLPService.class);
+    
+    // One match from the training patterns, with its estimated Jaccard similarity
+    public record SimilarPattern(String phrase, String intent, float similarity) {}
+    
+    // Intent keywords in priority order: label first, then its keywords
+    private static final String[][] INTENT_KEYWORDS = {
+        {"greeting", "hello", "hi", "hey"},
+        {"goodbye", "bye", "goodbye"},
+        {"gratitude", "thanks", "thank"},
+        {"help", "help", "support", "assist"},
+        {"pricing", "price", "prices", "cost", "costs", "fee", "fees", "pricing"},
+        {"product", "service", "services", "product", "products"}
+    };
+    
+    // Pre-compiled intent automaton
+    private static final KeywordAutomaton INTENT_AUTOMATON = intentAutomaton(INTENT_KEYWORDS);
+    
+    // Built-in training patterns per intent, matched when no keyword is found
+    private static final String[][] TRAINING_PATTERNS = {
+        {"greeting", "good morning", "good afternoon", "good evening", "nice to meet you", "is anyone there",
+            "hello there", "hi there", "hey there", "hiya", "hi how are you", "hey how is it going", "greetings",
+            "hello again", "morning", "yo"},
+        {"goodbye", "see you later", "see you soon", "talk to you later", "have a nice day", "that is all for now",
+            "bye bye", "see ya", "catch you later", "i have to go now", "good night", "take care", "farewell",
+            "i am off now"},
+        {"gratitude", "that was really useful", "much appreciated", "you have been very kind", "great job",
+            "thank you so much", "thanks a lot", "many thanks", "i appreciate it", "thank u", "thx", "cheers",
+            "ta very much"},
+        {"help", "can you assist me", "i need a hand", "i am stuck", "something is not working", "i have a problem",
+            "i need help", "can you help me", "please assist me", "my order has not arrived", "i cannot log in",
+            "the app keeps crashing", "i was charged twice", "it does not work"},
+        {"pricing", "how much is it", "how much do you charge", "is there a free plan", "what does it cost per month",
+            "do you offer discounts", "what are your prices", "is there a monthly fee", "are there any hidden fees",
+            "is there a free trial", "can i get a quote", "how expensive is the service", "what is the price of the pro plan",
+            "is it affordable"},
+        {"product", "what do you offer", "what do you sell", "tell me about your chatbot", "do you build websites",
+            "what can your assistant do", "what services do you offer", "tell me about your products",
+            "which features does the chatbot have", "do you offer consulting", "what integrations do you have",
+            "do you make mobile apps", "does the product have an api", "is there a demo"}
+    };
+    
+    // Question words the intent fallback looks for, also part of the spelling vocabulary
+    private static final String[] QUESTION_WORDS = {"what", "how", "when", "where", "why"};
+    
+    private static final TokenSet STOP_WORDS = TokenSet.of(
         "a", "an", "and", "are", "as", "at", "be", "by", "for", "from",
         "has", "he", "in", "is", "it", "of", "on", "that", "the", "to",
         "was", "will", "with", "this", "but", "they", "have", "what",
         "do", "how", "if", "up", "out", "so", "her", "him", "my", "no"
     );
     
-    static {
-        // Pre-load intent patterns for instant matching
-        INTENT_PATTERNS.put("hello", "greeting");
-        INTENT_PATTERNS.put("hi", "greeting");
-        INTENT_PATTERNS.put("hey", "greeting");
-        INTENT_PATTERNS.put("help", "help");
-        INTENT_PATTERNS.put("support", "help");
-        INTENT_PATTERNS.put("assist", "help");
-        INTENT_PATTERNS.put("price", "pricing");
-        INTENT_PATTERNS.put("cost", "pricing");
-        INTENT_PATTERNS.put("fee", "pricing");
-        INTENT_PATTERNS.put("service", "product");
-        INTENT_PATTERNS.put("product", "product");
-        INTENT_PATTERNS.put("thanks", "gratitude");
-        INTENT_PATTERNS.put("thank", "gratitude");
-        INTENT_PATTERNS.put("bye", "goodbye");
-        INTENT_PATTERNS.put("goodbye", "goodbye");
+    // Per-thread scratch for the two sorted token-hash sets compared by fastSimilarity
+    private static final Scratch<long[][]> SIMILARITY_SCRATCH =
+        new Scratch<>(() -> new long[][]{new long[32], new long[32]});
+    
+    @Value("${fast.spelling.enabled:true}")
+    private boolean spellingEnabled;
+    
+    @Value("${fast.spelling.max-distance:2}")
+    private int spellingMaxDistance;
+    
+    @Value("${fast.spelling.prefix-length:7}")
+    private int spellingPrefixLength;
+    
+    @Value("${fast.spelling.max-memory-mb:16}")
+    private long spellingMaxMemoryMb;
+    
+    @Value("${fast.spelling.max-candidates:100}")
+    private int spellingMaxCandidates;
+    
+    @Value("${fast.spelling.latency-budget-micros:200}")
+    private long spellingLatencyBudgetMicros;
+    
+    private SpellCorrector spellCorrector;
+    
+    @Value("${fast.similarity.bands:16}")
+    private int similarityBands;
+    
+    @Value("${fast.similarity.rows:4}")
+    private int similarityRows;
+    
+    @Value("${fast.similarity.min-similarity:0.5}")
+    private float minSimilarity;
+    
+    @Value("${fast.similarity.max-candidates:1000}")
+    private int similarityMaxCandidates;
+    
+    @Value("${fast.similarity.corpus:}")
+    private String similarityCorpus;
+    
+    // Cascade tiers: a tier's answer at or above min-confidence skips the tiers after it
+    @Value("${fast.classifier.exact.min-confidence:0.9}")
+    private float exactMinConfidence;
+    
+    @Value("${fast.classifier.exact.budget-micros:20}")
+    private long exactBudgetMicros;
+    
+    // Trained at startup (the bean is eager) on the labelled patterns, intent keywords and off-topic
+    // examples; takes the keyword tier's place
+    @Value("${fast.classifier.linear.enabled:true}")
+    private boolean linearEnabled;
+    
+    @Value("${fast.classifier.linear.min-confidence:0.75}")
+    private float linearMinConfidence;
+    
+    @Value("${fast.classifier.linear.budget-micros:20}")
+    private long linearBudgetMicros;
+    
+    @Value("${fast.classifier.linear.feature-bits:16}")
+    private int linearFeatureBits;
+    
+    @Value("${fast.classifier.linear.epochs:30}")
+    private int linearEpochs;
+    
+    @Value("${fast.classifier.linear.simd:true}")
+    private boolean linearSimd;
+    
+    @Value("${fast.classifier.keyword.min-confidence:0.75}")
+    private float keywordMinConfidence;
+    
+    @Value("${fast.classifier.keyword.budget-micros:50}")
+    private long keywordBudgetMicros;
+    
+    @Value("${fast.classifier.similarity.min-confidence:0.5}")
+    private float similarityMinConfidence;
+    
+    @Value("${fast.classifier.similarity.budget-micros:500}")
+    private long similarityBudgetMicros;
+    
+    @Value("${fast.classifier.question.min-confidence:0.0}")
+    private float questionMinConfidence;
+    
+    @Value("${fast.classifier.question.budget-micros:20}")
+    private long questionBudgetMicros;
+    
+    private MinHashIndex patternIndex;
+    private String[] patternIntents;
+    private ExactMatchClassifier exactPatterns;
+    private LinearIntentClassifier linearClassifier;
+    private ClassifierCascade classifier;
+    
+    // Built-in patterns plus the corpus file, if any, with one "intent<TAB>phrase" per line
+    @PostConstruct
+    void buildPatternIndex() {
+        MinHashIndex.Builder builder = MinHashIndex.builder(similarityBands, similarityRows)
+            .maxCandidates(similarityMaxCandidates);
+        ExactMatchClassifier.Builder exact = ExactMatchClassifier.builder();
+        LinearIntentClassifier.Builder linear = LinearIntentClassifier.builder()
+            .featureBits(linearFeatureBits)
+            .epochs(linearEpochs)
+            .simd(linearSimd);
+        List<String> intents = new ArrayList<>();
+        for (String[] row : TRAINING_PATTERNS) {
+            for (int i = 1; i < row.length; i++) {
+                exact.add(row[i], row[0]);
+                linear.add(row[i], row[0]);
+                if (builder.add(row[i]) >= 0) intents.add(row[0]);
+            }
+        }
+        for (String[] row : INTENT_KEYWORDS) {
+            for (int i = 1; i < row.length; i++) linear.add(row[i], row[0]);
+        }
+        if (!similarityCorpus.isBlank()) {
+            Path file = Path.of(similarityCorpus);
+            Map<String, String> labels = new HashMap<>();
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int tab = line.indexOf('\t');
+                    if (tab <= 0 || line.startsWith("#")) continue;
+                    String intent = labels.computeIfAbsent(line.substring(0, tab), k -> k);
+                    String phrase = fastPreprocess(line.substring(tab + 1));
+                    exact.add(phrase, intent);
+                    linear.add(phrase, intent);
+                    if (builder.add(phrase) >= 0) intents.add(intent);
+                }
+            } catch (IOException e) {
+                log.warn("Could not read similarity corpus {}", file, e);
+            }
+        }
+        patternIndex = builder.build();
+        patternIntents = intents.toArray(new String[0]);
+        exactPatterns = exact.build();
+        log.info("Indexed {} training patterns ({} bands x {} rows, ~{} KB)", patternIndex.size(),
+                 similarityBands, similarityRows, patternIndex.estimatedBytes() >> 10);
+        
+        // Cheapest first: whole-text lookup, trained classifier (or keyword automaton), LSH similarity,
+        // question words
+        ClassifierCascade.Builder cascade = ClassifierCascade.builder()
+            .tier("exact", exactPatterns, exactMinConfidence, exactBudgetMicros);
+        if (linearEnabled) {
+            linearClassifier = linear.addOffTopic("general").build();
+            log.info("Trained intent classifier on {} examples: {}", linear.size(), linearClassifier.stats());
+            cascade.tier("linear", this::linearTier, linearMinConfidence, linearBudgetMicros);
+        } else {
+            cascade.tier("keyword", this::keywordTier, keywordMinConfidence, keywordBudgetMicros);
+        }
+        classifier = cascade
+            .tier("similarity", this::similarityTier, similarityMinConfidence, similarityBudgetMicros)
+            .tier("question", this::questionTier, questionMinConfidence, questionBudgetMicros)
+            .fallback("general", 0.70f)
+            .build();
     }
-
+    
+    
+    // The vocabulary is fixed (keywords, question words, built-in patterns, stop words), so the index is built once
+    @PostConstruct
+    void buildSpellCorrector() {
+        SpellCorrector.Builder builder = SpellCorrector.builder()
+            .maxDistance(spellingMaxDistance)
+            .prefixLength(spellingPrefixLength)
+            .maxBytes(spellingMaxMemoryMb << 20)
+            .maxCandidates(spellingMaxCandidates)
+            .latencyBudgetMicros(spellingLatencyBudgetMicros)
+            .addCommonWords(1)
+            .englishLexicon(true);
+        // Weights only break ties at equal distance; keywords are added first so they win the rest
+        for (String[] row : INTENT_KEYWORDS) {
+            for (int i = 1; i < row.length; i++) builder.add(row[i], 1);
+        }
+        for (String word : QUESTION_WORDS) builder.add(word, 1);
+        for (String[] row : TRAINING_PATTERNS) {
+            for (int i = 1; i < row.length; i++) {
+                for (String word : row[i].split(" ")) builder.add(word, 1);
+            }
+        }
+        for (String stopWord : STOP_WORDS.values()) builder.add(stopWord, 2);
+        spellCorrector = builder.build();
+    }
+    
     @Cacheable("processedText")
     public String fastPreprocess(String text) {
         if (text == null || text.isEmpty()) return "";
         
-        // Ultra-fast preprocessing
-        return text.toLowerCase()
-                  .replaceAll("[^a-z0-9\\s]", "")
-                  .replaceAll("\\s+", " ")
-                  .trim();
+        // Ultra-fast single-pass preprocessing
+        return Tokenizer.ALPHANUMERIC.normalize(text);
     }
 
     public String[] fastTokenize(String text) {
-        return fastPreprocess(text).split(" ");
+        Tokens tokens = Tokenizer.ALPHANUMERIC.tokenize(text);
+        if (tokens.isEmpty()) return new String[]{""};
+        
+        String[] result = new String[tokens.count()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = tokens.token(i);
+        }
+        return result;
+    }
+
+    // Intent and confidence from the first tier confident enough, see buildPatternIndex.
+    // Results cut short by a tier budget are not cached, so a slow moment is not remembered.
+    @Cacheable(value = "intents", unless = "#result.overBudget()")
+    public ClassifierCascade.Result fastClassify(String text) {
+        return classifier.classify(fastPreprocess(text));
     }
 
-    @Cacheable("intents")
     public String fastIntentDetection(String text) {
-        String processed = fastPreprocess(text);
-        
-        // Lightning-fast intent detection using pre-compiled patterns
-        for (Map.Entry<String, String> entry : INTENT_PATTERNS.entrySet()) {
-            if (processed.contains(entry.getKey())) {
-                return entry.getValue();
-            }
-        }
-        
-        // Quick question detection
-        if (processed.contains("?") || processed.startsWith("what") || 
-            processed.startsWith("how") || processed.startsWith("when") ||
-            processed.startsWith("where") || processed.startsWith("why")) {
-            return "question";
-        }
+        return fastClassify(text).intent();
+    }
+
+    public ClassifierCascade getClassifier() {
+        return classifier;
+    }
+
+    // Cascade counters plus, when enabled, how the trained classifier was fitted
+    public Map<String, Object> classifierStats() {
+        Map<String, Object> stats = classifier.stats();
+        if (linearClassifier != null) stats.put("linear", linearClassifier.stats());
+        return stats;
+    }
+
+    @Cacheable("spelling")
+    public String fastCorrectSpelling(String text) {
+        if (!spellingEnabled || text == null || text.isEmpty()) return text;
         
-        return "general";
+        // Typos of keywords and common words, fixed before intent detection
+        return spellCorrector.correct(text);
     }
 
     public float fastSimilarity(String text1, String text2) {
         if (text1 == null || text2 == null) return 0.0f;
         
-        String[] tokens1 = fastTokenize(text1);
-        String[] tokens2 = fastTokenize(text2);
+        // Fast Jaccard similarity over sorted token hashes, no intermediate sets
+        long[][] scratch = SIMILARITY_SCRATCH.get();
         
-        Set<String> set1 = new HashSet<>(Arrays.asList(tokens1));
-        Set<String> set2 = new HashSet<>(Arrays.asList(tokens2));
+        Tokens tokens = Tokenizer.ALPHANUMERIC.tokenize(text1);
+        long[] set1 = ensureCapacity(scratch, 0, tokens.count());
+        int size1 = tokens.sortedUniqueHashes(set1);
         
-        // Fast Jaccard similarity
-        Set<String> intersection = new HashSet<>(set1);
-        intersection.retainAll(set2);
+        tokens = Tokenizer.ALPHANUMERIC.tokenize(text2);
+        long[] set2 = ensureCapacity(scratch, 1, tokens.count());
+        int size2 = tokens.sortedUniqueHashes(set2);
         
-        Set<String> union = new HashSet<>(set1);
-        union.addAll(set2);
+        int intersection = 0;
+        for (int i = 0, j = 0; i < size1 && j < size2; ) {
+            if (set1[i] == set2[j]) {
+                intersection++;
+                i++;
+                j++;
+            } else if (set1[i] < set2[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
         
-        return union.isEmpty() ? 0.0f : (float) intersection.size() / union.size();
+        int union = size1 + size2 - intersection;
+        return union == 0 ? 0.0f : (float) intersection / union;
+    }
+
+    // Approximate top matches among the training patterns, best first
+    public List<SimilarPattern> fastSimilarPatterns(String text, int limit) {
+        List<MinHashIndex.Match> matches = patternIndex.query(fastPreprocess(text), limit, minSimilarity);
+        List<SimilarPattern> patterns = new ArrayList<>(matches.size());
+        for (MinHashIndex.Match match : matches) {
+            patterns.add(new SimilarPattern(match.text(), patternIntents[match.id()], match.similarity()));
+        }
+        return patterns;
+    }
+    
+    public Map<String, Object> similarityStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("patterns", patternIndex.size());
+        stats.put("bands", patternIndex.bands());
+        stats.put("rows", patternIndex.rows());
+        stats.put("threshold", Math.round(patternIndex.threshold() * 1000) / 1000.0);
+        stats.put("minSimilarity", minSimilarity);
+        stats.put("estimatedBytes", patternIndex.estimatedBytes());
+        return stats;
     }
 
     public String[] fastKeywords(String text) {
-        return Arrays.stream(fastTokenize(text))
-                    .filter(word -> !STOP_WORDS.contains(word) && word.length() > 2)
-                    .toArray(String[]::new);
+        Tokens tokens = Tokenizer.ALPHANUMERIC.tokenize(text);
+        
+        int kept = 0;
+        String[] keywords = new String[tokens.count()];
+        for (int i = 0; i < tokens.count(); i++) {
+            if (tokens.length(i) > 2 && !STOP_WORDS.contains(tokens, i)) {
+                keywords[kept++] = tokens.token(i);
+            }
+        }
+        return kept == keywords.length ? keywords : Arrays.copyOf(keywords, kept);
+    }
+    
+    // Calibrated probability of the most likely intent; below the cut-off, or when the message
+    // looks off-topic, it abstains rather than compete with the similarity and question scores
+    private Classification linearTier(String text, long deadlineNanos) {
+        Classification answer = linearClassifier.classify(text, deadlineNanos);
+        if (answer.intent().equals("general")) return null;
+        return answer.confidence() >= linearMinConfidence ? answer : null;
+    }
+    
+    // Lightning-fast intent detection using the pre-compiled automaton
+    private Classification keywordTier(String text, long deadlineNanos) {
+        String intent = INTENT_AUTOMATON.match(text);
+        return intent == null ? null : new Classification(intent, confidence(text, intent));
+    }
+    
+    // Closest training pattern, found through its LSH buckets
+    private Classification similarityTier(String text, long deadlineNanos) {
+        List<MinHashIndex.Match> matches = patternIndex.query(text, 1, minSimilarity, deadlineNanos);
+        if (matches.isEmpty()) return null;
+        MinHashIndex.Match best = matches.get(0);
+        return new Classification(patternIntents[best.id()], best.similarity(), best.text());
+    }
+    
+    // Quick question detection
+    private Classification questionTier(String text, long deadlineNanos) {
+        boolean question = text.contains("?");
+        for (int i = 0; i < QUESTION_WORDS.length && !question; i++) {
+            question = text.startsWith(QUESTION_WORDS[i]);
+        }
+        return question ? new Classification("question", confidence(text, "question")) : null;
+    }
+    
+    private static float confidence(String text, String intent) {
+        float baseConfidence = switch (intent) {
+            case "greeting", "goodbye", "gratitude" -> 0.95f;
+            case "help", "question" -> 0.85f;
+            case "pricing", "product" -> 0.80f;
+            default -> 0.70f;
+        };
+        
+        // Adjust for message length (longer = more confident)
+        float lengthBonus = Math.min(0.1f, text.length() / 200.0f);
+        return Math.min(0.99f, baseConfidence + lengthBonus);
+    }
+    
+    private static KeywordAutomaton intentAutomaton(String[][] table) {
+        KeywordAutomaton.Builder builder = KeywordAutomaton.builder();
+        for (String[] row : table) {
+            builder.add(row[0], Arrays.copyOfRange(row, 1, row.length));
+        }
+        return builder.build();
+    }
+    
+    private static long[] ensureCapacity(long[][] scratch, int slot, int size) {
+        if (scratch[slot].length < size) {
+            scratch[slot] = new long[Math.max(size, scratch[slot].length * 2)];
+        }
+        return scratch[slot];
     }
 }
@@ -0,0 +1,154 @@
+package com.fastchatbot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.*;
+
+@Service
+public class NdjsonStreamService {
+    
+    private static final byte NEWLINE = '\n';
+    
+    @Autowired
+    private FastChatService chatService;
+    
+    @Autowired
+    @Qualifier("batchPool")
+    private ForkJoinPool batchPool;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private FastJsonCodec jsonCodec;
+    
+    // Lines classified concurrently; the reader blocks once this many are pending
+    @Value("${fast.stream.window:64}")
+    private int window;
+    
+    @Value("${fast.stream.max-line-length:16384}")
+    private int maxLineLength;
+
+    // Reads {"message": "..."} lines and writes one result line per input line, in order.
+    // Memory is bounded by the window; a slow client stalls writes, which stalls reading.
+    public long process(InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>(window);
+        StringBuilder line = new StringBuilder(256);
+        long lineNumber = 0;
+        long written = 0;
+        
+        while (readLine(reader, line)) {
+            lineNumber++;
+            if (line.length() == 0) continue;
+            
+            if (inFlight.size() >= window) {
+                writeLine(output, await(inFlight.poll()));
+                written++;
+            }
+            inFlight.add(submit(line, lineNumber));
+            
+            // Flush whenever the client has nothing more buffered for us
+            if (!reader.ready()) {
+                while (!inFlight.isEmpty() && inFlight.peek().isDone()) {
+                    writeLine(output, await(inFlight.poll()));
+                    written++;
+                }
+                output.flush();
+            }
+        }
+        
+        while (!inFlight.isEmpty()) {
+            writeLine(output, await(inFlight.poll()));
+            written++;
+        }
+        output.flush();
+        return written;
+    }
+    
+    private Future<byte[]> submit(StringBuilder line, long lineNumber) {
+        String text = line.toString();
+        return batchPool.submit(() -> resultLine(text, lineNumber));
+    }
+    
+    // Result for one input line, without the newline: the reply, or {"error": ..., "line": n}
+    public byte[] resultLine(String line, long lineNumber) throws IOException {
+        Line parsed = parse(line, lineNumber);
+        if (parsed.error() != null) return parsed.error();
+        return jsonCodec.encode(chatService.reply(parsed.message(), null), null);
+    }
+    
+    // Same, without waiting on a message another caller is classifying; for event loop threads
+    public CompletableFuture<byte[]> resultLineAsync(String line, long lineNumber) {
+        Line parsed;
+        try {
+            parsed = parse(line, lineNumber);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (parsed.error() != null) return CompletableFuture.completedFuture(parsed.error());
+        return chatService.replyAsync(parsed.message(), null).thenApply(reply -> jsonCodec.encode(reply, null));
+    }
+    
+    // The message of an input line, or the error line to answer with instead
+    private record Line(String message, byte[] error) {}
+    
+    private Line parse(String line, long lineNumber) throws IOException {
+        if (line.length() > maxLineLength) {
+            return new Line(null, error(lineNumber, "line too long"));
+        }
+        
+        FastJsonCodec.ChatRequest request = jsonCodec.read(line);
+        if (request == null) {
+            return new Line(null, error(lineNumber, "invalid JSON"));
+        }
+        String message = request.message();
+        if (message == null || message.trim().isEmpty()) {
+            return new Line(null, error(lineNumber, "missing message"));
+        }
+        return new Line(message, null);
+    }
+    
+    private byte[] error(long lineNumber, String reason) throws IOException {
+        return objectMapper.writeValueAsBytes(Map.of("error", reason, "line", lineNumber));
+    }
+    
+    // Reads one line into the buffer, keeping at most maxLineLength + 1 chars of it
+    private boolean readLine(BufferedReader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int c = reader.read();
+        if (c < 0) return false;
+        
+        while (c >= 0 && c != '\n') {
+            if (c != '\r' && line.length() <= maxLineLength) {
+                line.append((char) c);
+            }
+            c = reader.read();
+        }
+        return true;
+    }
+    
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while streaming results");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to classify message", e.getCause());
+        }
+    }
+    
+    private static void writeLine(OutputStream output, byte[] json) throws IOException {
+        output.write(json);
+        output.write(NEWLINE);
+    }
+}
@@ -0,0 +1,74 @@
+package com.fastchatbot.service;
+
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class ResponseCatalog {
+    
+    // Ultra-fast response table
+    private static final Map<String, String[]> FAST_RESPONSES = new ConcurrentHashMap<>();
+    
+    static {
+        // Pre-loaded responses for instant access
+        FAST_RESPONSES.put("greeting", new String[]{
+            "Hi! How can I help?", "Hello! What do you need?", "Hey there! How can I assist?"
+        });
+        FAST_RESPONSES.put("help", new String[]{
+            "I'm here to help! What do you need?", "What can I assist with?", "How can I help you?"
+        });
+        FAST_RESPONSES.put("pricing", new String[]{
+            "Our pricing is flexible. What are you looking for?", "Costs vary by needs. Tell me more?", "Let's discuss your requirements!"
+        });
+        FAST_RESPONSES.put("product", new String[]{
+            "We offer AI chatbots and web solutions. Interested?", "Our products include AI assistants. Want details?", "We build smart chatbots. Need one?"
+        });
+        FAST_RESPONSES.put("gratitude", new String[]{
+            "You're welcome!", "Happy to help!", "Anytime!", "Glad I could assist!"
+        });
+        FAST_RESPONSES.put("goodbye", new String[]{
+            "Goodbye! Come back anytime!", "See you later!", "Bye! Have a great day!", "Take care!"
+        });
+        FAST_RESPONSES.put("question", new String[]{
+            "Great question! Let me help.", "I'd be happy to answer that.", "Here's what I know.", "Good question! Let me explain."
+        });
+        FAST_RESPONSES.put("general", new String[]{
+            "I understand. How can I help?", "Tell me more about that.", "Interesting! What would you like to know?", "I'm here to assist!"
+        });
+    }
+
+    // Reply JSON fields up to the timestamp value, UTF-8 encoded once per response:
+    // "message":"<response>","sender":"bot","timestamp":
+    private static final Map<String, byte[][]> ENCODED_RESPONSES = new HashMap<>();
+    
+    static {
+        FAST_RESPONSES.forEach((intent, responses) -> {
+            byte[][] encoded = new byte[responses.length][];
+            for (int i = 0; i < responses.length; i++) encoded[i] = encode(responses[i]);
+            ENCODED_RESPONSES.put(intent, encoded);
+        });
+    }
+
+    // Escaped exactly as FastJsonCodec and Jackson escape it
+    static byte[] encode(String response) {
+        String json = "\"message\":\"" + FastJsonCodec.quoted(response) + "\",\"sender\":\"bot\",\"timestamp\":";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Cached per intent; callers pick one at random so responses stay varied
+    @Cacheable("responses")
+    public String[] responsesFor(String intent) {
+        String[] responses = FAST_RESPONSES.get(intent);
+        return responses != null ? responses : FAST_RESPONSES.get("general");
+    }
+
+    // Same order as responsesFor, so a response index picks the matching prefix
+    public byte[][] encodedFor(String intent) {
+        byte[][] encoded = ENCODED_RESPONSES.get(intent);
+        return encoded != null ? encoded : ENCODED_RESPONSES.get("general");
+    }
+}
@@ -0,0 +1,72 @@
+package com.fastchatbot.config;
+
+import com.chatbot.concurrent.LimiterProperties;
+import com.chatbot.concurrent.LoadShedder;
+import com.fastchatbot.controller.FastReactiveHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.reactive.config.CorsRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.WebFilter;
+import reactor.core.publisher.Mono;
+
+// Reactive mode (spring.profiles.active=reactive): /api/fast on Reactor Netty event loops.
+// Router functions are matched before annotated controllers, so these routes take over the message
+// endpoints from FastChatController; its other endpoints don't touch the servlet API and are
+// served by it on both stacks.
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfig implements WebFluxConfigurer {
+
+    // Tomcat is on the classpath for the servlet mode, and Boot would pick it here too
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> fastChatRoutes(FastReactiveHandler handler) {
+        return RouterFunctions.route()
+                .POST("/api/fast/chat", handler::chat)
+                .POST("/api/fast/chat-async", handler::chatAsync)
+                .POST("/api/fast/chat-batch", handler::chatBatch)
+                .POST("/api/fast/chat-stream", handler::chatStream)
+                .build();
+    }
+
+    // Same admission as the servlet LoadSheddingFilter; the permit is held until the response is done
+    @Bean
+    public WebFilter loadSheddingWebFilter(LoadShedder shedder, LimiterProperties properties) {
+        return (exchange, chain) -> {
+            String path = exchange.getRequest().getPath().pathWithinApplication().value();
+            if (!properties.isEnabled() || !path.startsWith("/api/fast/")) {
+                return chain.filter(exchange);
+            }
+            LoadShedder.Permit permit = shedder.tryAdmit(path);
+            if (permit == null) {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, Integer.toString(shedder.getRetryAfterSeconds()));
+                return response.setComplete();
+            }
+            return chain.filter(exchange).doFinally(signal -> permit.release());
+        };
+    }
+
+    @Override
+    public void addCorsMappings(CorsRegistry registry) {
+        registry.addMapping("/api/**")
+                .allowedOrigins("*")
+                .allowedMethods("GET", "POST", "DELETE", "OPTIONS")
+                .allowedHeaders("*")
+                .maxAge(3600);
+    }
+}
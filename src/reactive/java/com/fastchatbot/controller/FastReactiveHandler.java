@@ -0,0 +1,155 @@
+package com.fastchatbot.controller;
+
+import com.chatbot.session.SessionStore;
+import com.fastchatbot.service.FastChatService;
+import com.fastchatbot.service.FastJsonCodec;
+import com.fastchatbot.service.NdjsonStreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// Message endpoints of /api/fast for the reactive mode. Classification is CPU-light, so it runs
+// inline on the event loop; only /chat-batch moves to the batch pool. Replies come as futures, so a
+// message that another request is already classifying is waited for without parking the loop.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class FastReactiveHandler {
+
+    private static final ParameterizedTypeReference<Map<String, String>> CHAT_REQUEST =
+        new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<List<String>> BATCH_REQUEST =
+        new ParameterizedTypeReference<>() {};
+
+    // Same cap as the WebFlux codecs use for a decoded body
+    private static final int MAX_BODY_BYTES = 256 * 1024;
+    private static final byte NEWLINE = '\n';
+
+    @Autowired
+    private FastChatService chatService;
+
+    @Autowired
+    private FastJsonCodec jsonCodec;
+
+    @Autowired
+    private NdjsonStreamService streamService;
+
+    @Value("${fast.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    private final Scheduler batchScheduler;
+
+    public FastReactiveHandler(@Qualifier("batchPool") ForkJoinPool batchPool) {
+        this.batchScheduler = Schedulers.fromExecutorService(batchPool, "batchPool");
+    }
+
+    // Zero-binding path, as on the servlet stack; the body is joined into one buffer first
+    public Mono<ServerResponse> chat(ServerRequest request) {
+        if (!hasContentType(request, MediaType.APPLICATION_JSON)) {
+            return ServerResponse.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        }
+        return DataBufferUtils.join(request.body(BodyExtractors.toDataBuffers()), MAX_BODY_BYTES)
+            .flatMap(body -> {
+                FastJsonCodec.ChatRequest chat = read(body);
+                if (chat == null || !isValid(chat.message(), chat.sessionId())) {
+                    return ServerResponse.badRequest().build();
+                }
+                return Mono.fromFuture(chatService.replyAsync(chat.message(), chat.sessionId()))
+                    .flatMap(reply -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(jsonCodec.encode(reply, chat.sessionId())));
+            })
+            .switchIfEmpty(Mono.defer(() -> ServerResponse.badRequest().build()))
+            .onErrorResume(DataBufferLimitException.class,
+                           e -> ServerResponse.status(HttpStatus.PAYLOAD_TOO_LARGE).build());
+    }
+
+    // No @Async hop here: the reply is ready as soon as the body is
+    public Mono<ServerResponse> chatAsync(ServerRequest request) {
+        return request.bodyToMono(CHAT_REQUEST)
+            .flatMap(body -> {
+                String message = body.get("message");
+                String sessionId = body.get("sessionId");
+                if (!isValid(message, sessionId)) {
+                    return ServerResponse.badRequest().build();
+                }
+                return Mono.fromFuture(chatService.replyAsync(message, sessionId))
+                    .flatMap(reply -> ServerResponse.ok().bodyValue(chatService.toMessage(reply, sessionId)));
+            })
+            .switchIfEmpty(Mono.defer(() -> ServerResponse.badRequest().build()));
+    }
+
+    // Up to max-size messages is too much work for an event loop
+    public Mono<ServerResponse> chatBatch(ServerRequest request) {
+        return request.bodyToMono(BATCH_REQUEST)
+            .flatMap(messages -> {
+                if (messages.isEmpty() || messages.size() > maxBatchSize) {
+                    return ServerResponse.badRequest().build();
+                }
+                for (String message : messages) {
+                    if (message == null || message.trim().isEmpty()) {
+                        return ServerResponse.badRequest().build();
+                    }
+                }
+                return Mono.fromCallable(() -> chatService.processBatch(messages))
+                    .subscribeOn(batchScheduler)
+                    .flatMap(results -> ServerResponse.ok().bodyValue(results));
+            })
+            .switchIfEmpty(Mono.defer(() -> ServerResponse.badRequest().build()));
+    }
+
+    // One result line per input line, in order, each written as soon as its line has arrived
+    public Mono<ServerResponse> chatStream(ServerRequest request) {
+        if (!hasContentType(request, MediaType.APPLICATION_NDJSON)) {
+            return ServerResponse.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        }
+        Flux<byte[]> results = request.bodyToFlux(String.class)
+            .index()
+            .filter(line -> !line.getT2().isEmpty())
+            .concatMap(line -> Mono.fromFuture(streamService.resultLineAsync(line.getT2(), line.getT1() + 1)))
+            .map(result -> {
+                byte[] withNewline = Arrays.copyOf(result, result.length + 1);
+                withNewline[result.length] = NEWLINE;
+                return withNewline;
+            });
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(results, byte[].class);
+    }
+
+    private FastJsonCodec.ChatRequest read(DataBuffer body) {
+        try (InputStream input = body.asInputStream(true)) {
+            return jsonCodec.read(input);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean isValid(String message, String sessionId) {
+        if (message == null || message.trim().isEmpty()) return false;
+        return sessionId == null || SessionStore.isValidId(sessionId);
+    }
+
+    private static boolean hasContentType(ServerRequest request, MediaType type) {
+        return request.headers().contentType().map(type::isCompatibleWith).orElse(false);
+    }
+}
@@ -0,0 +1,33 @@
+package com.chatbot.classify;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// ScoringKernel on the widest float vectors the CPU has: each block of lanes classes is summed
+// over all feature rows in one register, then scaled and stored once. Only loaded through
+// ScoringKernel.best() when the incubator module is present.
+final class VectorKernel implements ScoringKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public String name() {
+        return "vector";
+    }
+
+    @Override
+    public void score(float[] weights, int width, int[] features, int count, float value, float[] scores) {
+        for (int lane = 0; lane < width; lane += SPECIES.length()) {
+            FloatVector sum = FloatVector.zero(SPECIES);
+            for (int i = 0; i < count; i++) {
+                sum = sum.add(FloatVector.fromArray(SPECIES, weights, features[i] * width + lane));
+            }
+            sum.mul(value).intoArray(scores, lane);
+        }
+    }
+}
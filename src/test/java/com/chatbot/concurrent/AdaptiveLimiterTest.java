@@ -0,0 +1,49 @@
+package com.chatbot.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimiterTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // Keeps the limiter full and releases every request with the given round trip
+    private static void drive(AdaptiveLimiter limiter, int requests, long rttNanos) {
+        for (int i = 0; i < requests; i++) {
+            while (limiter.tryAcquire(1.0)) {}
+            limiter.release(rttNanos);
+        }
+    }
+
+    @Test
+    void limitGrowsWhileLatencyHolds() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 500, 2.0, 0.2);
+        drive(limiter, 5_000, 10 * MILLI);
+        assertEquals(500, limiter.limit());
+        assertEquals(5_000L, limiter.stats().get("samples"));
+        assertEquals(10_000L, limiter.stats().get("shortRttMicros"));
+    }
+
+    @Test
+    void limitFallsWhenLatencyRisesPastTolerance() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(200, 5, 500, 1.5, 0.5);
+        drive(limiter, 2_000, 10 * MILLI);
+        int before = limiter.limit();
+        drive(limiter, 200, 100 * MILLI);
+        assertTrue(limiter.limit() < before / 2, () -> before + " -> " + limiter.limit());
+    }
+
+    @Test
+    void idleReleasesDoNotMoveTheLimit() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(100, 1, 500, 2.0, 0.5);
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(limiter.tryAcquire(1.0));
+            limiter.release(i % 2 == 0 ? MILLI : 100 * MILLI);
+        }
+        assertEquals(100, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+}
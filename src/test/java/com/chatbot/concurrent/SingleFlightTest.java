@@ -0,0 +1,56 @@
+package com.chatbot.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void runAsyncHandsBackAFutureInsteadOfWaiting() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<SingleFlight.Result<String>> leader = CompletableFuture.supplyAsync(() ->
+            flights.run("key", () -> {
+                started.countDown();
+                await(release);
+                return "value";
+            }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // Returns at once although the leader is still computing
+        CompletableFuture<SingleFlight.Result<String>> follower = flights.runAsync("key", () -> fail("computed twice"));
+        assertFalse(follower.isDone());
+
+        release.countDown();
+        assertEquals(new SingleFlight.Result<>("value", true), follower.get(10, TimeUnit.SECONDS));
+        assertEquals(new SingleFlight.Result<>("value", false), leader.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void runAsyncComputesInlineWhenNothingIsInFlight() {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CompletableFuture<SingleFlight.Result<String>> result = flights.runAsync("key", () -> "value");
+        assertEquals(new SingleFlight.Result<>("value", false), result.getNow(null));
+        assertEquals(0, flights.inFlight());
+
+        CompletableFuture<SingleFlight.Result<String>> failed = flights.runAsync("key", () -> {
+            throw new IllegalStateException("boom");
+        });
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0, flights.inFlight());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
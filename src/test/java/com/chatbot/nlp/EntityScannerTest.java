@@ -0,0 +1,89 @@
+package com.chatbot.nlp;
+
+import com.chatbot.nlp.EntityScanner.Entity;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityScannerTest {
+
+    private final EntityScanner scanner = EntityScanner.defaults();
+
+    private Entity only(String text) {
+        List<Entity> entities = scanner.scan(text);
+        assertEquals(1, entities.size(), () -> text + " -> " + entities);
+        return entities.get(0);
+    }
+
+    @Test
+    void eachBuiltInTypeIsRecognizedAndNormalized() {
+        assertEquals(new Entity(EntityRecognizers.EMAIL, 9, 25, "jane@example.com"),
+                     only("write to Jane@Example.com."));
+        assertEquals(new Entity(EntityRecognizers.DATE, 3, 12, "2024-01-15"), only("on 1/15/2024"));
+        assertEquals("2024-02-29", only("2024/2/29").value());
+        assertEquals(new Entity(EntityRecognizers.PHONE, 5, 19, "5551234567"), only("call (555) 123-4567 now"));
+        assertEquals(new Entity(EntityRecognizers.AMOUNT, 4, 13, "1200 USD"), only("pay 1,200 usd"));
+        assertEquals("12.50 GBP", only("£12.50").value());
+        assertEquals(new Entity(EntityRecognizers.ORDER_ID, 6, 15, "ORD-12345"), only("order ord-12345"));
+        assertEquals("A12345", only("#a12345").value());
+        assertEquals(new Entity(EntityRecognizers.NUMBER, 4, 9, "1234"), only("got 1,234 of them"));
+    }
+
+    @Test
+    void countryCodesOfOneToThreeDigitsAreAccepted() {
+        assertEquals("+15551234567", only("+1 555 123 4567").value());
+        assertEquals("+445551234567", only("+44 555.123.4567").value());
+        Entity irish = only("ring +353 555 123 4567 today");
+        assertEquals(EntityRecognizers.PHONE, irish.type());
+        assertEquals(5, irish.start());
+        assertEquals(22, irish.end());
+        assertEquals("+3535551234567", irish.value());
+        // Four digits are not a country code; only the local number is left
+        assertEquals("5551234567", scanner.scan("+3535 555 123 4567").get(1).value());
+    }
+
+    @Test
+    void offsetsPointIntoTheScannedTextAndSpansDoNotOverlap() {
+        String text = "Order #B7781 for $30 on 2024-03-01, mail a@b.io";
+        List<Entity> entities = scanner.scan(text);
+        assertEquals(List.of(EntityRecognizers.ORDER_ID, EntityRecognizers.AMOUNT,
+                             EntityRecognizers.DATE, EntityRecognizers.EMAIL),
+                     entities.stream().map(Entity::type).toList());
+        int previousEnd = 0;
+        for (Entity entity : entities) {
+            assertTrue(entity.start() >= previousEnd);
+            previousEnd = entity.end();
+        }
+        assertEquals("#B7781", text.substring(entities.get(0).start(), entities.get(0).end()));
+        assertEquals("a@b.io", text.substring(entities.get(3).start(), entities.get(3).end()));
+        // Entities only start and end at word boundaries
+        assertTrue(scanner.scan("abc123def").isEmpty());
+    }
+
+    @Test
+    void addedRecognizersRunAfterTheDefaults() {
+        EntityRecognizer ticket = new EntityRecognizer() {
+            public String type() { return "TICKET"; }
+            public boolean canStart(char c) { return c == 'T'; }
+
+            public int match(CharSequence text, int start) {
+                int i = start + 1;
+                if (i >= text.length() || text.charAt(i) != '-') return -1;
+                int end = i + 1;
+                while (end < text.length() && EntityRecognizers.isDigit(text.charAt(end))) end++;
+                return end > i + 1 ? end : -1;
+            }
+
+            public String normalize(CharSequence text, int start, int end) {
+                return text.subSequence(start + 2, end).toString();
+            }
+        };
+        EntityScanner custom = EntityScanner.builder().addDefaults().add(ticket).build();
+
+        assertEquals(List.of(new Entity("TICKET", 7, 12, "904"), new Entity(EntityRecognizers.NUMBER, 17, 19, "12")),
+                     custom.scan("ticket T-904 has 12 replies"));
+        assertTrue(scanner.scan("ticket T-904").stream().noneMatch(e -> e.type().equals("TICKET")));
+    }
+}
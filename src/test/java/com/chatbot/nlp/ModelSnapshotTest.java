@@ -0,0 +1,46 @@
+package com.chatbot.nlp;
+
+import com.chatbot.service.NLPService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void mappedPatternsAreFoundByExactText() throws IOException {
+        NLPService nlp = new NLPService();
+        TermDictionary dictionary = new TermDictionary();
+        Map<String, List<String>> patterns = Map.of(
+            "hello", List.of("Hi!"),
+            "hello there", List.of("Hi there!"),
+            "help", List.of("How can I help?"),
+            "café hours", List.of("Nine to five."),
+            "zebra crossing rules", List.of("Look both ways."));
+        PatternIndex built = PatternIndex.build(patterns, text -> nlp.termVector(text, dictionary));
+        Path file = dir.resolve("model.snapshot");
+        new ModelSnapshot(dictionary, built, Map.of("greeting", List.of("Hello!")), nlp.defaultIntentAutomaton())
+            .write(file);
+
+        PatternIndex mapped = ModelSnapshot.map(file).getPatternIndex();
+        patterns.forEach((pattern, responses) -> assertEquals(responses, mapped.responses(pattern), pattern));
+        // Prefixes, extensions and neighbours of stored patterns are not matches
+        for (String absent : new String[]{"", "hell", "hello there!", "hello  there", "helq", "cafe hours", "zz"}) {
+            assertNull(mapped.responses(absent), absent);
+        }
+        // A replaced pattern is found through the delta, the rest still through the mapping
+        PatternIndex updated = mapped.withPattern("help", List.of("Ask away."), nlp.termVector("help", dictionary));
+        assertEquals(List.of("Ask away."), updated.responses("help"));
+        assertEquals(List.of("Hi there!"), updated.responses("hello there"));
+        assertEquals(patterns.size(), updated.size());
+    }
+}
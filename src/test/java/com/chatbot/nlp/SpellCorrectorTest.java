@@ -0,0 +1,45 @@
+package com.chatbot.nlp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpellCorrectorTest {
+
+    private final SpellCorrector corrector = SpellCorrector.builder()
+        .addCommonWords(1)
+        .englishLexicon(true)
+        .add("hello", 1).add("help", 1).add("support", 1).add("pricing", 1).add("thanks", 1)
+        .add("fee", 1).add("fees", 1).add("price", 1)
+        .build();
+
+    @Test
+    void realWordsOutsideTheVocabularyAreLeftAlone() {
+        assertEquals("my feet hurt", corrector.correct("my feet hurt"));
+        assertEquals("that looks like hell", corrector.correct("that looks like hell"));
+        assertEquals("i won a prize", corrector.correct("i won a prize"));
+    }
+
+    @Test
+    void misspelledWordsAreStillCorrected() {
+        assertEquals("hello", corrector.correct("helo"));
+        assertEquals("i need support", corrector.correct("i need suport"));
+        assertEquals("what is your pricing?", corrector.correct("what is your pricng?"));
+        assertEquals("thanks", corrector.correct("thnks"));
+    }
+
+    @Test
+    void lexiconWordsAreNeverSuggested() {
+        // Without the lexicon "feet" is one edit from the keyword "fee"
+        SpellCorrector plain = SpellCorrector.builder().add("fee", 1).build();
+        assertEquals("fee", plain.correctWord("feet", 0, 4));
+        // "prise" is one edit from the lexicon word "prize" but only "price" may replace it
+        assertEquals("price", corrector.correctWord("prise", 0, 5));
+    }
+
+    @Test
+    void weightOnlyBreaksTiesAtEqualDistance() {
+        SpellCorrector weighted = SpellCorrector.builder().add("prices", 100).add("pricing", 1).build();
+        assertEquals("pricing", weighted.correctWord("pricng", 0, 6));
+    }
+}
@@ -0,0 +1,84 @@
+package com.chatbot.service;
+
+import com.chatbot.config.ChatConfig;
+import com.chatbot.model.ChatMessage;
+import com.chatbot.storage.TrainingLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Messages here are held out: none of them is an intent example, keyword or off-topic example
+class ChatbotServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private AnnotationConfigApplicationContext context;
+    private ChatbotService chat;
+
+    @BeforeEach
+    void open() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+            "chat.training.log.dir", dir.toString(),
+            // The classifier alone, without spelling correction in front of it
+            "chat.spelling.enabled", "false")));
+        context.register(ChatConfig.class, NLPService.class, TrainingDataService.class, ChatbotService.class);
+        context.refresh();
+        chat = context.getBean(ChatbotService.class);
+    }
+
+    @AfterEach
+    void close() {
+        context.close();
+    }
+
+    @Test
+    void ingestedPatternIsAnsweredWithItsOwnResponse() {
+        context.getBean(TrainingDataService.class).ingest(new TrainingLog.Entry(
+            TrainingLog.Type.PATTERN, "zebra crossing rules", "Look both ways.")).join();
+
+        ChatMessage reply = chat.processMessage("zebra crossing rules");
+        assertEquals("Look both ways.", reply.getMessage());
+    }
+
+    // The similarity tier may still find a weak overlap with a training pattern ("cost")
+    @Test
+    void everydayMessagesGetNoConfidentIntent() {
+        for (String message : new String[]{
+                "my feet are sore", "he won the race", "the prize draw is tonight", "hell yeah",
+                "the cost of living is high", "my fees at the gym went up", "i hate mondays",
+                "my hands are freezing", "the film was boring", "she is a doctor", "i fell off my bike",
+                "what a lovely day", "i love my dog"}) {
+            ChatMessage reply = chat.processMessage(message);
+            assertTrue(reply.getIntent().equals("general") || reply.getConfidence() < 0.5,
+                       message + " -> " + reply.getIntent() + " " + reply.getConfidence());
+        }
+    }
+
+    @Test
+    void requestsFindTheirIntent() {
+        Map<String, String> expected = Map.ofEntries(
+            Map.entry("hello friend", "greeting"),
+            Map.entry("bye for now", "goodbye"),
+            Map.entry("see you tomorrow", "goodbye"),
+            Map.entry("can you help", "help"),
+            Map.entry("i need some assistance", "help"),
+            Map.entry("how expensive is it", "pricing"),
+            Map.entry("what is the price for ten users", "pricing"),
+            Map.entry("what do you sell", "product_inquiry"),
+            Map.entry("tell me about your services", "product_inquiry"),
+            Map.entry("thanks mate", "gratitude"),
+            Map.entry("appreciate it", "gratitude"));
+        expected.forEach((message, intent) ->
+            assertEquals(intent, chat.processMessage(message).getIntent(), message));
+    }
+}
@@ -0,0 +1,67 @@
+package com.chatbot.service;
+
+import com.chatbot.nlp.ModelSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NLPServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private AnnotationConfigApplicationContext context;
+    private NLPService nlp;
+    private ModelSnapshot model;
+
+    @BeforeEach
+    void open() throws InterruptedException {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+            "chat.training.log.dir", dir.toString())));
+        context.register(NLPService.class, TrainingDataService.class);
+        context.refresh();
+        nlp = context.getBean(NLPService.class);
+        model = context.getBean(TrainingDataService.class).getModel();
+        awaitSpellingIndex();
+    }
+
+    // The index is built on the spelling-index thread; text passes through uncorrected until then
+    private void awaitSpellingIndex() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (nlp.spellCorrector(model) == null) {
+            assertTrue(System.nanoTime() < deadline, "spelling index not built");
+            Thread.sleep(10);
+        }
+    }
+
+    @AfterEach
+    void close() {
+        context.close();
+    }
+
+    @Test
+    void everydaySentencesKeepTheirWordsAndIntent() {
+        for (String text : new String[]{"my feet hurt", "that looks like hell", "i won a prize"}) {
+            String corrected = nlp.correctSpelling(nlp.preprocessText(text), model);
+            assertEquals(text, corrected);
+            assertNull(nlp.matchIntent(corrected, model), text);
+        }
+    }
+
+    @Test
+    void typosOfKeywordsStillFindTheirIntent() {
+        assertEquals("greeting", nlp.matchIntent(nlp.correctSpelling("helo there", model), model));
+        assertEquals("pricing", nlp.matchIntent(nlp.correctSpelling("your pricng please", model), model));
+        assertEquals("gratitude", nlp.matchIntent(nlp.correctSpelling("thnks a lot", model), model));
+    }
+}
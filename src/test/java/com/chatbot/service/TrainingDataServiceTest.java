@@ -0,0 +1,66 @@
+package com.chatbot.service;
+
+import com.chatbot.storage.TrainingLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrainingDataServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ingestDuringCompactionIsKeptAndSurvivesRestart() {
+        List<String> added = new ArrayList<>();
+        try (AnnotationConfigApplicationContext context = open()) {
+            TrainingDataService service = context.getBean(TrainingDataService.class);
+            for (int i = 0; i < 2000; i++) ingest(service, "before " + i, added);
+
+            // Keep adding while the base is written; those entries must be rebased onto it
+            CompletableFuture<Void> compaction = service.compact();
+            int during = 0;
+            while (!compaction.isDone() || during == 0) ingest(service, "during " + during++, added);
+            compaction.join();
+            ingest(service, "after", added);
+
+            assertPatterns(service, added);
+        }
+
+        // Restart: mapped base plus the replayed segments written after it
+        try (AnnotationConfigApplicationContext context = open()) {
+            assertPatterns(context.getBean(TrainingDataService.class), added);
+        }
+    }
+
+    private AnnotationConfigApplicationContext open() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+            "chat.training.log.dir", dir.toString(),
+            // Only the compactions the test starts
+            "chat.training.log.compact-threshold", "1000000")));
+        context.register(NLPService.class, TrainingDataService.class);
+        context.refresh();
+        return context;
+    }
+
+    private static void ingest(TrainingDataService service, String pattern, List<String> added) {
+        service.ingest(new TrainingLog.Entry(TrainingLog.Type.PATTERN, pattern, "response to " + pattern)).join();
+        added.add(pattern);
+    }
+
+    private static void assertPatterns(TrainingDataService service, List<String> patterns) {
+        for (String pattern : patterns) {
+            assertEquals(List.of("response to " + pattern), service.getPatternIndex().responses(pattern), pattern);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.chatbot.storage;
+
+import com.chatbot.nlp.ModelSnapshot;
+import com.chatbot.nlp.PatternIndex;
+import com.chatbot.nlp.TermDictionary;
+import com.chatbot.service.NLPService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrainingLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayTruncatesTornTail() throws IOException {
+        writeEntries(3);
+        Path segment = onlySegment();
+        long intact = Files.size(segment);
+        // Header and half a payload, as left by a crash in the middle of a write
+        Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 0, 0, 0}, StandardOpenOption.APPEND);
+
+        assertEquals(entries(3), replayAll());
+        assertEquals(intact, Files.size(segment));
+    }
+
+    @Test
+    void replayTruncatesRecordWithBadChecksum() throws IOException {
+        writeEntries(3);
+        Path segment = onlySegment();
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), size - 1);
+        }
+
+        assertEquals(entries(2), replayAll());
+        assertTrue(Files.size(segment) < size);
+    }
+
+    @Test
+    void appendsAfterRecoveryFollowTheTruncatedTail() throws IOException {
+        writeEntries(2);
+        Files.write(onlySegment(), new byte[]{0, 0, 0, 9}, StandardOpenOption.APPEND);
+
+        try (TrainingLog log = TrainingLog.open(dir)) {
+            log.replay(entry -> {});
+            log.start();
+            log.append(entry(2)).join();
+        }
+        assertEquals(entries(3), replayAll());
+    }
+
+    @Test
+    void commitBaseDropsOnlySealedSegments() throws IOException {
+        long sealed;
+        try (TrainingLog log = TrainingLog.open(dir)) {
+            log.start();
+            log.append(entry(0)).join();
+            log.append(entry(1)).join();
+            sealed = log.roll().join();
+            // Added while the base is being written: must survive the commit
+            log.append(entry(2)).join();
+            log.commitBase(model(), sealed);
+
+            assertTrue(Files.exists(log.basePath(sealed)));
+            assertEquals(1, segments().size());
+        }
+
+        try (TrainingLog log = TrainingLog.open(dir)) {
+            assertEquals(log.basePath(sealed), log.latestBase().orElseThrow());
+            List<TrainingLog.Entry> replayed = new ArrayList<>();
+            log.replay(replayed::add);
+            assertEquals(List.of(entry(2)), replayed);
+        }
+    }
+
+    @Test
+    void commitBaseDropsOlderBases() throws IOException {
+        try (TrainingLog log = TrainingLog.open(dir)) {
+            log.start();
+            log.append(entry(0)).join();
+            long first = log.roll().join();
+            log.commitBase(model(), first);
+            log.append(entry(1)).join();
+            long second = log.roll().join();
+            log.commitBase(model(), second);
+
+            assertFalse(Files.exists(log.basePath(first)));
+            assertTrue(Files.exists(log.basePath(second)));
+            assertTrue(segments().isEmpty());
+        }
+        assertEquals(List.of(), replayAll());
+    }
+
+    private void writeEntries(int count) throws IOException {
+        try (TrainingLog log = TrainingLog.open(dir)) {
+            log.start();
+            for (int i = 0; i < count; i++) log.append(entry(i)).join();
+        }
+    }
+
+    private List<TrainingLog.Entry> replayAll() throws IOException {
+        List<TrainingLog.Entry> replayed = new ArrayList<>();
+        try (TrainingLog log = TrainingLog.open(dir)) {
+            log.replay(replayed::add);
+        }
+        return replayed;
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static ModelSnapshot model() {
+        NLPService nlp = new NLPService();
+        TermDictionary dictionary = new TermDictionary();
+        PatternIndex index = PatternIndex.build(Map.of("hello", List.of("Hi!")), text -> nlp.termVector(text, dictionary));
+        return new ModelSnapshot(dictionary, index, Map.of("greeting", List.of("Hello!")), nlp.defaultIntentAutomaton());
+    }
+
+    private static TrainingLog.Entry entry(int i) {
+        return new TrainingLog.Entry(TrainingLog.Type.PATTERN, "pattern " + i, "response " + i);
+    }
+
+    private static List<TrainingLog.Entry> entries(int count) {
+        List<TrainingLog.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) entries.add(entry(i));
+        return entries;
+    }
+}
@@ -0,0 +1,90 @@
+package com.chatbot.suggest;
+
+import com.chatbot.nlp.EntityScanner;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypeaheadTest {
+
+    private static final List<String> SEEDS = List.of("How much does it cost?", "how much does it cost", "Hello!");
+
+    @Test
+    void normalizeDropsPunctuationAtWordEnds() {
+        assertEquals("how much does it cost", Typeahead.normalize("How much does it COST?!", true));
+        assertEquals("hello how are you", Typeahead.normalize("  Hello,  how are you ?", true));
+        assertEquals("it's 3.5", Typeahead.normalize("It's 3.5.", true));
+        assertEquals("how ", Typeahead.normalize("how ", false));
+        assertEquals("", Typeahead.normalize("?! ...", true));
+    }
+
+    @Test
+    void seedsDifferingOnlyByPunctuationAreOnePhrase() {
+        try (Typeahead typeahead = typeahead(null, 1)) {
+            assertEquals(List.of("how much does it cost"), typeahead.complete("how", 5));
+        }
+    }
+
+    @Test
+    void unknownMessagesAreNeverSuggestedByDefault() throws InterruptedException {
+        try (Typeahead typeahead = typeahead(null, 1)) {
+            for (int i = 0; i < 5; i++) typeahead.record("call me at 555-123-4567 john");
+            for (int i = 0; i < 5; i++) typeahead.record("Hello");
+            // Known phrases are counted in place, so the ranking changes without a rebuild
+            await(() -> typeahead.complete("", 5).equals(List.of("hello", "how much does it cost")));
+
+            assertEquals(List.of(), typeahead.complete("call", 5));
+            assertEquals(0L, typeahead.stats().get("rebuilds"));
+        }
+    }
+
+    @Test
+    void learnedPhrasesSkipEntitiesAndNeedMinCount() throws InterruptedException {
+        EntityScanner scanner = EntityScanner.defaults();
+        try (Typeahead typeahead = typeahead(text -> scanner.scan(text).isEmpty(), 3)) {
+            for (int i = 0; i < 5; i++) typeahead.record("call me at 555-123-4567 john");
+            for (int i = 0; i < 3; i++) typeahead.record("where is my parcel");
+            for (int i = 0; i < 2; i++) typeahead.record("where are you based");
+            await(() -> !typeahead.complete("where", 5).isEmpty());
+
+            assertEquals(List.of("where is my parcel"), typeahead.complete("where", 5));
+            assertEquals(List.of(), typeahead.complete("call", 5));
+        }
+    }
+
+    @Test
+    void newSeedsShowUpWithoutAnyQueries() throws InterruptedException {
+        List<String> seeds = new CopyOnWriteArrayList<>(SEEDS);
+        AtomicReference<Object> version = new AtomicReference<>(new Object());
+        try (Typeahead typeahead = new Typeahead(1000, 1, 100, null, () -> seeds, version::get, null)) {
+            assertEquals(List.of(), typeahead.complete("zeb", 5));
+
+            // As after a pattern ingest: new seeds and a new model, nothing recorded
+            seeds.add("zebra crossing rules");
+            version.set(new Object());
+            await(() -> !typeahead.complete("zeb", 5).isEmpty());
+
+            assertEquals(List.of("zebra crossing rules"), typeahead.complete("zeb", 5));
+            assertEquals(1L, typeahead.stats().get("rebuilds"));
+        }
+    }
+
+    // Counts below minCount are dropped on each rebuild, so the interval must cover all records
+    private static Typeahead typeahead(Predicate<String> newPhrases, int minCount) {
+        return new Typeahead(1000, minCount, 500, null, () -> SEEDS, null, newPhrases);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "typeahead did not catch up");
+            Thread.sleep(20);
+        }
+    }
+}
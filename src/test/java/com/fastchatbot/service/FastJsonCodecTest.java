@@ -0,0 +1,134 @@
+package com.fastchatbot.service;
+
+import com.fastchatbot.config.FastConfig;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastJsonCodecTest {
+
+    // Responses the built-in catalog does not have: non-ASCII text and chars JSON must escape
+    private static final Map<String, String[]> EXTRA_RESPONSES = Map.of(
+        "café", new String[]{"Ça va? Voilà le menu ☕ — 😀", "Tab\there, \"quotes\", back\\slash and \u0001"});
+
+    private AnnotationConfigApplicationContext context;
+    private FastJsonCodec codec;
+    private FastChatService chatService;
+    private ResponseCatalog catalog;
+    // Configured like the application: spring.jackson.default-property-inclusion=NON_NULL
+    private final ObjectMapper objectMapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    @BeforeEach
+    void open() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(ObjectMapper.class, () -> objectMapper);
+        context.registerBean(ResponseCatalog.class, () -> new ResponseCatalog() {
+            @Override
+            public String[] responsesFor(String intent) {
+                String[] responses = EXTRA_RESPONSES.get(intent);
+                return responses != null ? responses : super.responsesFor(intent);
+            }
+
+            @Override
+            public byte[][] encodedFor(String intent) {
+                String[] responses = EXTRA_RESPONSES.get(intent);
+                if (responses == null) return super.encodedFor(intent);
+                byte[][] encoded = new byte[responses.length][];
+                for (int i = 0; i < responses.length; i++) encoded[i] = ResponseCatalog.encode(responses[i]);
+                return encoded;
+            }
+        });
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+            "fast.spelling.enabled", "false")));
+        context.register(FastConfig.class, FastNLPService.class, FastChatService.class, FastJsonCodec.class);
+        context.refresh();
+        codec = context.getBean(FastJsonCodec.class);
+        chatService = context.getBean(FastChatService.class);
+        catalog = context.getBean(ResponseCatalog.class);
+    }
+
+    @AfterEach
+    void close() {
+        context.close();
+    }
+
+    private FastChatService.Reply reply(String intent, int response, float confidence, String messageId) {
+        return new FastChatService.Reply(intent, catalog.responsesFor(intent)[response], response, confidence,
+                                         1_718_000_000_123L + response, messageId);
+    }
+
+    private void assertSameAsJackson(FastChatService.Reply reply, String sessionId) throws IOException {
+        byte[] expected = objectMapper.writeValueAsBytes(chatService.toMessage(reply, sessionId));
+        assertEquals(new String(expected, StandardCharsets.UTF_8),
+                     new String(codec.encode(reply, sessionId), StandardCharsets.UTF_8));
+        assertArrayEquals(expected, codec.encode(reply, sessionId));
+
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        codec.write(reply, sessionId, written);
+        assertArrayEquals(expected, written.toByteArray());
+    }
+
+    @Test
+    void encodeMatchesJacksonWithoutASession() throws IOException {
+        for (String intent : new String[]{"greeting", "pricing", "general"}) {
+            for (int response = 0; response < 3; response++) {
+                assertSameAsJackson(reply(intent, response, 0.95f, null), null);
+            }
+        }
+        assertSameAsJackson(reply("help", 1, 1.0f, null), "ignored-without-id");
+        assertSameAsJackson(reply("question", 2, 0.1234567f, null), null);
+        assertSameAsJackson(reply("goodbye", 0, 0f, null), null);
+        // Replies as the pipeline produces them
+        for (String message : new String[]{"hello there", "what does it cost", "bye", "qwerty"}) {
+            assertSameAsJackson(chatService.reply(message, null), null);
+        }
+    }
+
+    @Test
+    void encodeMatchesJacksonWithASession() throws IOException {
+        assertSameAsJackson(reply("greeting", 0, 0.75f, "m-1"), "session-42");
+        // Session ids are user input and need escaping
+        assertSameAsJackson(reply("help", 2, 0.5f, "m-2"), "quote\" back\\slash\nnew line\t\u0007 ünï 😀");
+        assertSameAsJackson(reply("help", 2, 0.5f, "m-\"3\""), "");
+        assertSameAsJackson(chatService.reply("can you help me", "session-7"), "session-7");
+    }
+
+    @Test
+    void encodeMatchesJacksonForNonAsciiResponses() throws IOException {
+        assertSameAsJackson(reply("café", 0, 0.875f, null), null);
+        assertSameAsJackson(reply("café", 1, 0.25f, "m-4"), "s-ü");
+        // Longer than the initial buffer, so it is grown and the next reply reuses it
+        String longSession = "ß".repeat(600);
+        assertSameAsJackson(reply("café", 0, 0.5f, "m-5"), longSession);
+        assertSameAsJackson(reply("greeting", 1, 0.5f, null), null);
+    }
+
+    @Test
+    void readTakesTheTopLevelStringsAndSkipsEverythingElse() throws IOException {
+        String json = """
+            {"meta":{"message":"nested","tags":["sessionId",{"message":"deeper"}]},
+             "count":3,"message":"Hi ☕","flags":[true,null,1.5],"sessionId":"s-1","extra":{"a":{}}}""";
+        assertEquals(new FastJsonCodec.ChatRequest("Hi ☕", "s-1"), codec.read(json));
+        assertEquals(new FastJsonCodec.ChatRequest("Hi ☕", "s-1"),
+                     codec.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))));
+
+        // Non-string values are ignored rather than coerced
+        assertEquals(new FastJsonCodec.ChatRequest(null, null), codec.read("{\"message\":42,\"sessionId\":{}}"));
+        assertEquals(new FastJsonCodec.ChatRequest("a\"b\n", null), codec.read("{\"message\":\"a\\\"b\\n\"}"));
+        assertNull(codec.read("[\"message\"]"));
+        assertNull(codec.read("{\"message\":\"unterminated\""));
+        assertNull(codec.read("not json"));
+    }
+}
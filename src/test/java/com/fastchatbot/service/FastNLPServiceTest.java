@@ -0,0 +1,56 @@
+package com.fastchatbot.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Messages here are held out: none of them is a training pattern, keyword or off-topic example
+class FastNLPServiceTest {
+
+    private AnnotationConfigApplicationContext context;
+    private FastNLPService nlp;
+
+    @BeforeEach
+    void open() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+            "fast.spelling.enabled", "false")));
+        context.register(FastNLPService.class);
+        context.refresh();
+        nlp = context.getBean(FastNLPService.class);
+    }
+
+    @AfterEach
+    void close() {
+        context.close();
+    }
+
+    @Test
+    void everydayMessagesGetNoIntent() {
+        for (String message : new String[]{
+                "my feet are sore", "he won the race", "the prize draw is tonight", "hell yeah",
+                "the cost of living is high", "i hate mondays", "the film was boring", "i love my dog"}) {
+            assertEquals("general", nlp.fastIntentDetection(message), message);
+        }
+    }
+
+    @Test
+    void requestsFindTheirIntent() {
+        Map<String, String> expected = Map.of(
+            "hello friend", "greeting",
+            "bye for now", "goodbye",
+            "can you help", "help",
+            "i need some assistance", "help",
+            "how expensive is it", "pricing",
+            "tell me about your services", "product",
+            "thanks mate", "gratitude",
+            "appreciate it", "gratitude");
+        expected.forEach((message, intent) -> assertEquals(intent, nlp.fastIntentDetection(message), message));
+    }
+}